@@ -0,0 +1,112 @@
+package wordcount;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Per-word cost of counting and looking up a batch of {@value #BATCH} words
+ * with one call per word against {@link HashWords#addWords(String[], int, int)}
+ * and {@link HashWords#frequencies(String[])}, on a filled table. The
+ * batches cycle through the corpus, so the loop and batch variants see the
+ * same words.
+ * 
+ * @author Zander Polk
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+    static final int BATCH = 4096;
+
+    @Param({"mlk-have-dream.txt", "zipf-10000", "zipf-200000"})
+    String corpus;
+
+    private HashWords table;
+    private String[][] tokenBatches;
+    private String[][] wordBatches;
+    private int next;
+
+    @Setup
+    public void setUp() throws FileNotFoundException {
+        Corpus data = Corpus.load(corpus);
+        table = new HashWords(17);
+        for (String w : data.tokens) {
+            table.addWord(w);
+        }
+        tokenBatches = batches(data.tokens);
+        wordBatches = batches(data.words);
+    }
+
+    /**
+     * Cuts a stream into batches of {@value #BATCH} words, wrapping around
+     * to fill the last one.
+     * 
+     * @param words the stream
+     * @return the batches
+     */
+    private static String[][] batches(String[] words) {
+        String[][] batches = new String[(words.length + BATCH - 1) / BATCH][BATCH];
+        for (int i = 0; i < batches.length * BATCH; i++) {
+            batches[i / BATCH][i % BATCH] = words[i % words.length];
+        }
+        return batches;
+    }
+
+    /**
+     * Returns the next batch, cycling.
+     * 
+     * @param batches the batches
+     * @return one of them
+     */
+    private String[] next(String[][] batches) {
+        int i = next % batches.length;
+        next = i + 1;
+        return batches[i];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void addWordLoop() {
+        String[] batch = next(tokenBatches);
+        for (String w : batch) {
+            table.addWord(w);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void addWords() {
+        String[] batch = next(tokenBatches);
+        table.addWords(batch, 0, batch.length);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void frequencyLoop(Blackhole blackhole) {
+        for (String w : next(wordBatches)) {
+            blackhole.consume(table.frequency(w));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int[] frequencies() {
+        return table.frequencies(next(wordBatches));
+    }
+}
@@ -0,0 +1,76 @@
+package wordcount;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * Token streams shared by the benchmarks. A corpus is either one of the
+ * bundled texts, read with the same delimiter as the Project2 driver, or
+ * {@code zipf-<n>}: a shuffled synthetic stream of n distinct words where
+ * word i appears about n / (i + 1) times.
+ * 
+ * @author Zander Polk
+ */
+final class Corpus {
+    final String[] tokens;
+    final String[] words;
+    final String[] misses;
+
+    private Corpus(String[] tokens) {
+        this.tokens = tokens;
+        this.words = new LinkedHashSet<>(Arrays.asList(tokens)).toArray(new String[0]);
+        this.misses = new String[words.length];
+        for (int i = 0; i < words.length; i++) {
+            misses[i] = words[i] + "~";   // '~' is a delimiter, so never a word
+        }
+    }
+
+    /**
+     * Loads a corpus by name.
+     * 
+     * @param name a bundled text file name or zipf-n
+     * @return the tokens, distinct words and guaranteed misses of the corpus
+     * @throws FileNotFoundException if a bundled text cannot be found
+     */
+    static Corpus load(String name) throws FileNotFoundException {
+        if (name.startsWith("zipf-")) {
+            return new Corpus(zipf(Integer.parseInt(name.substring(5))));
+        }
+        File file = new File(name);
+        if (!file.exists()) {
+            file = new File("..", name);   // Run from jmh/
+        }
+        List<String> tokens = new ArrayList<>();
+        Scanner scanner = new Scanner(file).useDelimiter("[\\s\\p{Punct}]+");
+        while (scanner.hasNext()) {
+            tokens.add(scanner.next());
+        }
+        scanner.close();
+        return new Corpus(tokens.toArray(new String[0]));
+    }
+
+    /**
+     * Builds a shuffled Zipf-like stream.
+     * 
+     * @param vocabulary the number of distinct words
+     * @return the tokens
+     */
+    private static String[] zipf(int vocabulary) {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < vocabulary; i++) {
+            String word = "Word" + Integer.toString(i, 36);
+            for (int r = Math.max(1, vocabulary / (i + 1)); r > 0; r--) {
+                tokens.add(word);
+            }
+        }
+        Collections.shuffle(tokens, new Random(42));
+        return tokens.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,52 @@
+package wordcount;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to count a whole corpus into a new table of initial size 17, as the
+ * Project2 driver does, so every growth of the table is included. Divide by
+ * the corpus size for the average addWord cost.
+ * 
+ * @author Zander Polk
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CountCorpusBenchmark {
+    @Param({"gettysburg.txt", "preamble.txt", "mlk-have-dream.txt", "zipf-10000", "zipf-200000"})
+    String corpus;
+
+    @Param({"arrays", "objects"})
+    String layout;
+
+    private Corpus data;
+
+    @Setup
+    public void setUp() throws FileNotFoundException {
+        data = Corpus.load(corpus);
+    }
+
+    @Benchmark
+    public WordCounter countCorpus() {
+        WordCounter table = HashWordsBenchmark.newTable(layout);
+        for (String w : data.tokens) {
+            table.addWord(w);
+        }
+        return table;
+    }
+}
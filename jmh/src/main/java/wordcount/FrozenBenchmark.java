@@ -0,0 +1,68 @@
+package wordcount;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Lookups in a filled {@link HashWords} table against the
+ * {@link FrozenHashWords} view returned by {@link HashWords#freeze()}, for
+ * words in the table and words that are not.
+ * 
+ * @author Zander Polk
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrozenBenchmark {
+    @Param({"mlk-have-dream.txt", "zipf-10000", "zipf-200000"})
+    String corpus;
+
+    @Param({"mutable", "frozen"})
+    String table;
+
+    private WordCounts counter;
+    private String[] words;
+    private String[] misses;
+
+    @Setup
+    public void setUp() throws FileNotFoundException {
+        Corpus data = Corpus.load(corpus);
+        HashWords mutable = new HashWords(17);
+        for (String w : data.tokens) {
+            mutable.addWord(w);
+        }
+        counter = table.equals("frozen") ? mutable.freeze() : mutable;
+        words = data.words;
+        misses = data.misses;
+    }
+
+    @Benchmark
+    public void frequencyHit(Blackhole blackhole) {
+        for (String w : words) {
+            blackhole.consume(counter.frequency(w));
+        }
+    }
+
+    @Benchmark
+    public void frequencyMiss(Blackhole blackhole) {
+        for (String w : misses) {
+            blackhole.consume(counter.frequency(w));
+        }
+    }
+}
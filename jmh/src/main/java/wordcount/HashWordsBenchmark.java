@@ -0,0 +1,102 @@
+package wordcount;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-call cost of the hot paths of a filled table: counting a word that is
+ * already there, hit and miss lookups, and {@code mostCommonWord}. The
+ * {@code layout} parameter compares {@link HashWords} with the original
+ * one-{@link WordFrequency}-per-slot layout.
+ * 
+ * @author Zander Polk
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashWordsBenchmark {
+    @Param({"gettysburg.txt", "preamble.txt", "mlk-have-dream.txt", "zipf-10000", "zipf-200000"})
+    String corpus;
+
+    @Param({"arrays", "objects"})
+    String layout;
+
+    private Corpus data;
+    private WordCounter table;
+    private int next;
+
+    @Setup
+    public void setUp() throws FileNotFoundException {
+        data = Corpus.load(corpus);
+        table = newTable(layout);
+        for (String w : data.tokens) {
+            table.addWord(w);
+        }
+    }
+
+    /**
+     * Creates an empty table of the given layout.
+     * 
+     * @param layout "arrays" or "objects"
+     * @return the table
+     */
+    static WordCounter newTable(String layout) {
+        return layout.equals("arrays") ? new HashWords(17) : new ObjectLayoutHashWords(17);
+    }
+
+    /**
+     * Returns the next index into an array, cycling.
+     * 
+     * @param length the array length
+     * @return an index in [0, length)
+     */
+    private int next(int length) {
+        int i = next;
+        next = i + 1 < length ? i + 1 : 0;
+        return i;
+    }
+
+    @Benchmark
+    public void addWord() {
+        table.addWord(data.tokens[next(data.tokens.length)]);
+    }
+
+    @Benchmark
+    public int frequencyHit() {
+        return table.frequency(data.words[next(data.words.length)]);
+    }
+
+    @Benchmark
+    public int frequencyMiss() {
+        return table.frequency(data.misses[next(data.misses.length)]);
+    }
+
+    @Benchmark
+    public boolean containsHit() {
+        return table.contains(data.words[next(data.words.length)]);
+    }
+
+    @Benchmark
+    public boolean containsMiss() {
+        return table.contains(data.misses[next(data.misses.length)]);
+    }
+
+    @Benchmark
+    public String mostCommonWord() {
+        return table.mostCommonWord();
+    }
+}
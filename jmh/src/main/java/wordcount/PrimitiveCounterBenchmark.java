@@ -0,0 +1,134 @@
+package wordcount;
+
+import java.io.FileNotFoundException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Counting int token ids and long hashes with {@link IntCounter} and
+ * {@link LongCounter} against a boxed {@code HashMap}. Each token of the
+ * corpus becomes the index of its word among the distinct words (int), or
+ * its 64-bit hash (long).
+ * 
+ * @author Zander Polk
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveCounterBenchmark {
+    @Param({"mlk-have-dream.txt", "zipf-10000", "zipf-200000"})
+    String corpus;
+
+    @Param({"primitive", "boxed"})
+    String counter;
+
+    private int[] ids;
+    private long[] hashes;
+    private IntCounter intCounter;
+    private LongCounter longCounter;
+    private Map<Integer, Long> intMap;
+    private Map<Long, Long> longMap;
+
+    @Setup
+    public void setUp() throws FileNotFoundException {
+        Corpus data = Corpus.load(corpus);
+        Map<String, Integer> idOf = new HashMap<>();
+        for (String w : data.words) {
+            idOf.put(w, idOf.size());
+        }
+        ids = new int[data.tokens.length];
+        hashes = new long[data.tokens.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = idOf.get(data.tokens[i]);
+            hashes[i] = Fnv1aHasher.hash64(data.tokens[i]);
+        }
+        intCounter = countInts();
+        longCounter = countLongs();
+        intMap = countIntsBoxed();
+        longMap = countLongsBoxed();
+    }
+
+    private IntCounter countInts() {
+        IntCounter c = new IntCounter();
+        for (int id : ids) {
+            c.add(id);
+        }
+        return c;
+    }
+
+    private LongCounter countLongs() {
+        LongCounter c = new LongCounter();
+        for (long h : hashes) {
+            c.add(h);
+        }
+        return c;
+    }
+
+    private Map<Integer, Long> countIntsBoxed() {
+        Map<Integer, Long> m = new HashMap<>();
+        for (int id : ids) {
+            m.merge(id, 1L, Long::sum);
+        }
+        return m;
+    }
+
+    private Map<Long, Long> countLongsBoxed() {
+        Map<Long, Long> m = new HashMap<>();
+        for (long h : hashes) {
+            m.merge(h, 1L, Long::sum);
+        }
+        return m;
+    }
+
+    @Benchmark
+    public Object countIntKeys() {
+        return counter.equals("primitive") ? countInts() : countIntsBoxed();
+    }
+
+    @Benchmark
+    public Object countLongKeys() {
+        return counter.equals("primitive") ? countLongs() : countLongsBoxed();
+    }
+
+    @Benchmark
+    public void lookupIntKeys(Blackhole blackhole) {
+        if (counter.equals("primitive")) {
+            for (int id : ids) {
+                blackhole.consume(intCounter.longFrequency(id));
+            }
+        } else {
+            for (int id : ids) {
+                blackhole.consume(intMap.getOrDefault(id, 0L).longValue());
+            }
+        }
+    }
+
+    @Benchmark
+    public void lookupLongKeys(Blackhole blackhole) {
+        if (counter.equals("primitive")) {
+            for (long h : hashes) {
+                blackhole.consume(longCounter.longFrequency(h));
+            }
+        } else {
+            for (long h : hashes) {
+                blackhole.consume(longMap.getOrDefault(h, 0L).longValue());
+            }
+        }
+    }
+}
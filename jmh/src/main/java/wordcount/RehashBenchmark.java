@@ -0,0 +1,61 @@
+package wordcount;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of one growAndRehash: the table is filled to one word below its
+ * threshold before each call, and the measured addWord pushes it over.
+ * With {@code incremental} only the first step of the rehash is paid here.
+ * 
+ * @author Zander Polk
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(1)
+public class RehashBenchmark {
+    @Param({"gettysburg.txt", "preamble.txt", "mlk-have-dream.txt", "zipf-10000", "zipf-200000"})
+    String corpus;
+
+    @Param({"false", "true"})
+    boolean incremental;
+
+    private Corpus data;
+    private HashWords table;
+
+    @Setup(Level.Trial)
+    public void load() throws FileNotFoundException {
+        data = Corpus.load(corpus);
+    }
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        // With a load factor of 1 the table grows when its last slot is taken
+        table = new HashWords(data.words.length + 1, new Fnv1aHasher(),
+                1.0, HashWords.DEFAULT_GROWTH_FACTOR, incremental);
+        for (String w : data.words) {
+            table.addWord(w);
+        }
+    }
+
+    @Benchmark
+    public HashWords growAndRehash() {
+        table.addWord(data.misses[0]);
+        return table;
+    }
+}
@@ -0,0 +1,60 @@
+package wordcount;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of {@link HashWords#topK(int)} as the vocabulary grows, on a table
+ * where a handful of words repeat and every other word occurs once, like
+ * the long tail of a real text. {@code topK(10)} then takes most of its
+ * words from the count-1 bucket, which holds nearly the whole vocabulary;
+ * the cost should depend on k, not on the vocabulary.
+ * 
+ * @author Zander Polk
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopKBenchmark {
+    // Words with a count above 1, fewer than k
+    private static final int REPEATED = 4;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int vocabulary;
+
+    private HashWords table;
+
+    @Setup
+    public void setUp() {
+        table = new HashWords(17);
+        for (int i = 0; i < REPEATED; i++) {
+            table.addWord("Repeated" + i, 10 + i);
+        }
+        for (int i = REPEATED; i < vocabulary; i++) {
+            table.addWord("Word" + Integer.toString(i, 36));
+        }
+    }
+
+    @Benchmark
+    public WordFrequency[] topK() {
+        return table.topK(10);
+    }
+
+    @Benchmark
+    public String mostCommonWord() {
+        return table.mostCommonWord();
+    }
+}
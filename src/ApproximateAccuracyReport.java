@@ -0,0 +1,56 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Counts a text file exactly with {@link HashWords} and approximately with
+ * {@link ApproximateWordCounter} at several memory budgets, and prints the
+ * memory and the frequency and distinct-count errors of each.
+ * 
+ * <p>Usage: {@code java ApproximateAccuracyReport [file]}, defaults to
+ * mlk-have-dream.txt.
+ * 
+ * @author Zander Polk
+ */
+public class ApproximateAccuracyReport {
+    public static void main(String[] args) throws FileNotFoundException {
+        String file = args.length > 0 ? args[0] : "mlk-have-dream.txt";
+        List<String> tokens = new ArrayList<>();
+        Scanner scanner = new Scanner(new File(file)).useDelimiter("[\\s\\p{Punct}]+");
+        while (scanner.hasNext()) {
+            tokens.add(scanner.next());
+        }
+        scanner.close();
+
+        HashWords exact = new HashWords(17);
+        for (String w : tokens) {
+            exact.addWord(w);
+        }
+        String[] words = exact.words();
+        System.out.printf("%s: %d words, %d distinct, exact table ~%d KB%n", file,
+                exact.totalNumOfWords(), words.length, exact.stats().estimatedBytes() >> 10);
+
+        for (long budget = 1 << 10; budget <= 16 << 20; budget <<= 2) {
+            ApproximateWordCounter approximate = ApproximateWordCounter.withMemoryBudget(budget);
+            for (String w : tokens) {
+                approximate.addWord(w);
+            }
+
+            long overCount = 0;
+            int maxOverCount = 0;
+            for (String w : words) {
+                int error = approximate.frequency(w) - exact.frequency(w);
+                overCount += error;
+                maxOverCount = Math.max(maxOverCount, error);
+            }
+            double distinctError = (approximate.numUniqueWordsInTable() - words.length)
+                    / (double) words.length;
+            System.out.printf("  budget %8d KB  used %8d KB  avg over-count %8.3f"
+                    + "  max over-count %6d  distinct error %+6.2f%%%n",
+                    budget >> 10, approximate.memoryBytes() >> 10,
+                    (double) overCount / words.length, maxOverCount, 100 * distinctError);
+        }
+    }
+}
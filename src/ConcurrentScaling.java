@@ -0,0 +1,94 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures counting throughput with 1 to N producer threads sharing one
+ * table: {@link ConcurrentHashWords} against a {@link HashWords} behind a
+ * single lock.
+ * 
+ * <p>Usage: {@code java ConcurrentScaling [maxThreads] [vocabularySize]};
+ * maxThreads defaults to the number of available processors.
+ * 
+ * @author Zander Polk
+ */
+public class ConcurrentScaling {
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0
+                ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int vocabulary = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        String[] corpus = LayoutBenchmark.buildCorpus(vocabulary);
+        System.out.printf("%d tokens per thread%n", corpus.length);
+
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            double striped = run(threads, corpus, new ConcurrentHashWords(17));
+            HashWords shared = new HashWords(17);
+            double locked = run(threads, corpus, new WordCounter() {
+                public synchronized void addWord(String w) {
+                    shared.addWord(w);
+                }
+
+                public int frequency(String w) {
+                    return shared.frequency(w);
+                }
+
+                public boolean contains(String w) {
+                    return shared.contains(w);
+                }
+
+                public int numUniqueWordsInTable() {
+                    return shared.numUniqueWordsInTable();
+                }
+
+                public int totalNumOfWords() {
+                    return shared.totalNumOfWords();
+                }
+
+                public String mostCommonWord() {
+                    return shared.mostCommonWord();
+                }
+
+                public double termFrequency(String w) {
+                    return shared.termFrequency(w);
+                }
+            });
+            System.out.printf("%2d threads  concurrent %7.1f Mwords/s  single lock %7.1f Mwords/s%n",
+                    threads, striped, locked);
+        }
+    }
+
+    /**
+     * Every thread counts the whole corpus into the shared table. The table
+     * is reused across rounds, so later rounds measure mostly increments.
+     * 
+     * @param threads the number of producer threads
+     * @param corpus the tokens each thread adds
+     * @param counter the shared table
+     * @return the best throughput in millions of words per second
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static double run(int threads, String[] corpus, WordCounter counter)
+            throws InterruptedException {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(new Thread(() -> {
+                    for (String w : corpus) {
+                        counter.addWord(w);
+                    }
+                }));
+            }
+            long start = System.nanoTime();
+            for (Thread worker : workers) {
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) corpus.length * threads * 1e3 / best;
+    }
+}
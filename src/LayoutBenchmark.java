@@ -0,0 +1,117 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.function.Supplier;
+
+/**
+ * Compares the parallel-array layout of {@link HashWords} with the original
+ * one-object-per-slot layout ({@link ObjectLayoutHashWords}): heap retained
+ * after counting, addWord throughput and frequency throughput.
+ * 
+ * <p>Usage: {@code java LayoutBenchmark [vocabularySize]}. The corpus is the
+ * bundled texts plus a synthetic vocabulary of the given size (default 200000).
+ * 
+ * @author Zander Polk
+ */
+public class LayoutBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws FileNotFoundException {
+        int vocabulary = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String[] corpus = buildCorpus(vocabulary);
+        System.out.printf("%d tokens, vocabulary of about %d words%n", corpus.length, vocabulary);
+
+        report("parallel arrays", () -> new HashWords(17), corpus);
+        report("WordFrequency[]", () -> new ObjectLayoutHashWords(17), corpus);
+    }
+
+    /**
+     * Bundled texts followed by a synthetic Zipf-like stream where word i
+     * appears roughly vocabulary / (i + 1) times.
+     * 
+     * @param vocabulary the number of synthetic distinct words
+     * @return the tokens
+     * @throws FileNotFoundException if a bundled text is missing
+     */
+    static String[] buildCorpus(int vocabulary) throws FileNotFoundException {
+        List<String> tokens = new ArrayList<>();
+        for (String file : new String[] {"preamble.txt", "gettysburg.txt", "mlk-have-dream.txt"}) {
+            Scanner scanner = new Scanner(new File(file)).useDelimiter("[\\s\\p{Punct}]+");
+            while (scanner.hasNext()) {
+                tokens.add(scanner.next());
+            }
+            scanner.close();
+        }
+        for (int i = 0; i < vocabulary; i++) {
+            String word = "Word" + Integer.toString(i, 36);
+            for (int r = Math.max(1, vocabulary / (i + 1)); r > 0; r--) {
+                tokens.add(word);
+            }
+        }
+        // Interleave so repeats are not adjacent
+        String[] corpus = tokens.toArray(new String[0]);
+        Collections.shuffle(Arrays.asList(corpus), new Random(42));
+        return corpus;
+    }
+
+    /**
+     * Prints the best-of-{@value #ROUNDS} add and lookup throughput of one layout.
+     * 
+     * @param name the label of the layout
+     * @param factory creates an empty table
+     * @param corpus the tokens to count and look up
+     */
+    private static void report(String name, Supplier<WordCounter> factory, String[] corpus) {
+        long addNanos = Long.MAX_VALUE;
+        long lookupNanos = Long.MAX_VALUE;
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            WordCounter counter = factory.get();
+            long start = System.nanoTime();
+            for (String w : corpus) {
+                counter.addWord(w);
+            }
+            addNanos = Math.min(addNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (String w : corpus) {
+                sink += counter.frequency(w);
+            }
+            lookupNanos = Math.min(lookupNanos, System.nanoTime() - start);
+        }
+
+        long retained = retainedBytes(factory, corpus);
+        System.out.printf("%-16s add %7.1f Mwords/s  frequency %7.1f Mlookups/s  retained %7.1f MB"
+                + "  (checksum %d)%n", name, corpus.length * 1e3 / addNanos,
+                corpus.length * 1e3 / lookupNanos, retained / 1e6, sink);
+    }
+
+    /**
+     * Heap growth caused by one filled table, measured around a forced GC.
+     * This includes the lower-cased keys, which both layouts hold.
+     * 
+     * @param factory creates an empty table
+     * @param corpus the tokens to count
+     * @return the approximate number of bytes retained by the table
+     */
+    private static long retainedBytes(Supplier<WordCounter> factory, String[] corpus) {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        WordCounter counter = factory.get();
+        for (String w : corpus) {
+            counter.addWord(w);
+        }
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        if (counter.numUniqueWordsInTable() < 0) {
+            throw new IllegalStateException(); // keeps counter reachable until here
+        }
+        return after - before;
+    }
+}
@@ -0,0 +1,188 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator for a {@link WordCountServer}, e.g. one started with
+ * {@code java Project2 --serve=7070}.
+ * 
+ * <p>Usage: {@code java LoadGenerator --port=N [--connections=C]
+ * [--requests=R] [--ingest] [file]}. Each of the C connections sends R
+ * {@code FREQ} queries one at a time, for words of the file (preamble.txt by
+ * default) and for as many words that are not in it, and times each round
+ * trip. With {@code --ingest} one more connection streams the file as
+ * {@code ADD} lines for as long as the queries run, to show how much ingest
+ * slows the readers down. Prints the throughput and the p50, p99 and max
+ * latency of the queries.
+ * 
+ * @author Zander Polk
+ */
+public class LoadGenerator {
+    public static void main(String[] args) throws Exception {
+        int port = -1;
+        int connections = 4;
+        int requests = 100_000;
+        boolean ingest = false;
+        String fileName = "preamble.txt";
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--connections=")) {
+                connections = Integer.parseInt(arg.substring("--connections=".length()));
+            } else if (arg.startsWith("--requests=")) {
+                requests = Integer.parseInt(arg.substring("--requests=".length()));
+            } else if (arg.equals("--ingest")) {
+                ingest = true;
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            } else {
+                fileName = arg;
+            }
+        }
+        if (port < 0) {
+            throw new IllegalArgumentException("--port=N is required");
+        }
+
+        List<String> lines = new ArrayList<>();
+        List<String> words = new ArrayList<>();
+        try (Scanner scanner = new Scanner(new File(fileName))) {
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine();
+                lines.add(line);
+                for (String w : line.split("[\\s\\p{Punct}]+")) {
+                    if (!w.isEmpty()) {
+                        words.add(w);
+                        words.add(w + "-miss");
+                    }
+                }
+            }
+        }
+
+        long[][] latencies = new long[connections][requests];
+        Thread[] readers = new Thread[connections];
+        final int serverPort = port;
+        final int perConnection = requests;
+        for (int c = 0; c < connections; c++) {
+            final long[] times = latencies[c];
+            final Random random = new Random(c);
+            readers[c] = new Thread(() -> query(serverPort, words, random, times));
+        }
+        AtomicLong ingested = new AtomicLong();
+        Thread writer = new Thread(() -> ingest(serverPort, lines, readers, ingested));
+
+        long start = System.nanoTime();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        if (ingest) {
+            writer.start();
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (ingest) {
+            writer.join();
+        }
+
+        long[] all = new long[connections * perConnection];
+        for (int c = 0; c < connections; c++) {
+            System.arraycopy(latencies[c], 0, all, c * perConnection, perConnection);
+        }
+        Arrays.sort(all);
+        System.out.printf("%d queries over %d connections in %.3f s: %.0f queries/s%n",
+                all.length, connections, seconds, all.length / seconds);
+        System.out.printf("Latency p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                percentile(all, 0.50) / 1e3, percentile(all, 0.99) / 1e3,
+                all[all.length - 1] / 1e3);
+        if (ingest) {
+            System.out.printf("Ingested %d words alongside: %.0f words/s%n",
+                    ingested.get(), ingested.get() / seconds);
+        }
+    }
+
+    /**
+     * Sends FREQ queries for random words one at a time, timing each.
+     * 
+     * @param port the server port
+     * @param words the words to ask for
+     * @param random picks the words
+     * @param times receives the round-trip time of each query, in ns
+     */
+    private static void query(int port, List<String> words, Random random, long[] times) {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            for (int i = 0; i < times.length; i++) {
+                byte[] request = ("FREQ " + words.get(random.nextInt(words.size())) + "\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                long sent = System.nanoTime();
+                out.write(request);
+                out.flush();
+                if (in.readLine() == null) {
+                    throw new IOException("Server closed the connection");
+                }
+                times[i] = System.nanoTime() - sent;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Streams the lines of the file as ADD requests until the readers are
+     * done.
+     * 
+     * @param port the server port
+     * @param lines the lines of the file
+     * @param readers the query threads
+     * @param ingested receives the number of words counted
+     */
+    private static void ingest(int port, List<String> lines, Thread[] readers,
+            AtomicLong ingested) {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            OutputStream out = socket.getOutputStream();
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            StringBuilder batch = new StringBuilder();
+            while (Arrays.stream(readers).anyMatch(Thread::isAlive)) {
+                batch.setLength(0);
+                for (String line : lines) {
+                    batch.append("ADD ").append(line).append('\n');
+                }
+                out.write(batch.toString().getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                for (int i = 0; i < lines.size(); i++) {
+                    String reply = in.readLine();
+                    ingested.addAndGet(Long.parseLong(reply.substring("OK ".length())));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns a percentile of sorted values.
+     * 
+     * @param sorted the values, in increasing order
+     * @param p the fraction, e.g. 0.99
+     * @return the value at that fraction
+     */
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+    }
+}
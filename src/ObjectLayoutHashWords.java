@@ -0,0 +1,118 @@
+/**
+ * The original {@link HashWords} layout, one {@link WordFrequency} object per
+ * slot, kept only as a baseline for {@link LayoutBenchmark}. It uses the same
+ * hasher, load factor and growth factor as {@link HashWords} so the benchmark
+ * measures nothing but the layout.
+ * 
+ * @author Zander Polk
+ */
+public class ObjectLayoutHashWords implements WordCounter {
+    private WordFrequency[] table;
+    private final WordHasher hasher;
+    private int size;
+    private int uniqueWordCount = 0;
+    private int totalWordsCount = 0;
+
+    /**
+     * Creates an empty table with the default hasher.
+     * 
+     * @param initialSize the starting size of our table
+     */
+    public ObjectLayoutHashWords(int initialSize) {
+        this.size = initialSize;
+        this.hasher = new Fnv1aHasher();
+        this.table = new WordFrequency[size];
+    }
+
+    private int hashKey(String word) {
+        return (hasher.hash(word) & 0x7fffffff) % size;
+    }
+
+    private WordFrequency getUsingWord(String word) {
+        int key = hashKey(word);
+        while (table[key] != null) {
+            if (table[key].getWord().equals(word)) {
+                return table[key];
+            }
+            key = (key + 1) % size;  // Linear probing
+        }
+        return null;
+    }
+
+    @Override
+    public void addWord(String w) {
+        String word = w.toLowerCase();
+        int key = hashKey(word);
+
+        totalWordsCount++;
+
+        while (table[key] != null) {
+            if (table[key].getWord().equals(word)) {
+                table[key].increment();
+                return;
+            }
+            key = (key + 1) % size;
+        }
+
+        table[key] = new WordFrequency(word);
+        uniqueWordCount++;
+
+        if (uniqueWordCount >= size * HashWords.DEFAULT_MAX_LOAD_FACTOR) {
+            growAndRehash();
+        }
+    }
+
+    private void growAndRehash() {
+        WordFrequency[] oldTable = table;
+        size = (int) Math.ceil(size * HashWords.DEFAULT_GROWTH_FACTOR);
+        table = new WordFrequency[size];
+        for (WordFrequency wf : oldTable) {
+            if (wf != null) {
+                int key = hashKey(wf.getWord());
+                while (table[key] != null) {
+                    key = (key + 1) % size;
+                }
+                table[key] = wf;
+            }
+        }
+    }
+
+    @Override
+    public int frequency(String w) {
+        WordFrequency wf = getUsingWord(w.toLowerCase());
+        return wf != null ? wf.getCount() : 0;
+    }
+
+    @Override
+    public boolean contains(String w) {
+        return getUsingWord(w.toLowerCase()) != null;
+    }
+
+    @Override
+    public int numUniqueWordsInTable() {
+        return uniqueWordCount;
+    }
+
+    @Override
+    public int totalNumOfWords() {
+        return totalWordsCount;
+    }
+
+    @Override
+    public String mostCommonWord() {
+        String word = null;
+        int count = 0;
+        for (WordFrequency wf : table) {
+            if (wf != null && wf.getCount() > count) {
+                count = wf.getCount();
+                word = wf.getWord();
+            }
+        }
+        return word;
+    }
+
+    @Override
+    public double termFrequency(String w) {
+        return totalWordsCount > 0 ? (double) frequency(w) / totalWordsCount : 0.0;
+    }
+}
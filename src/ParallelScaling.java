@@ -0,0 +1,46 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times the {@link ParallelTokenizer} on one file with 1 to N worker threads
+ * and prints the speedup over the single-threaded {@link MappedTokenizer}.
+ * 
+ * <p>Usage: {@code java ParallelScaling file [maxThreads]}; maxThreads defaults
+ * to the number of available processors.
+ * 
+ * @author Zander Polk
+ */
+public class ParallelScaling {
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        File file = new File(args.length > 0 ? args[0] : "mlk-have-dream.txt");
+        int maxThreads = args.length > 1
+                ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        double megabytes = file.length() / 1e6;
+
+        long sequential = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            new MappedTokenizer().tokenize(file.toPath(), new HashWords(1024));
+            sequential = Math.min(sequential, System.nanoTime() - start);
+        }
+        System.out.printf("sequential  %8.1f MB/s%n", megabytes / (sequential / 1e9));
+
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            // Aim for a few ranges per thread so stragglers can be balanced
+            long chunk = Math.max(64 << 10, file.length() / (threads * 4L));
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                new ParallelTokenizer(pool, chunk).tokenize(file.toPath());
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            pool.shutdown();
+            System.out.printf("%2d threads  %8.1f MB/s  speedup %.2fx%n",
+                    threads, megabytes / (best / 1e9), (double) sequential / best);
+        }
+    }
+}
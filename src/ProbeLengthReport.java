@@ -0,0 +1,63 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Scanner;
+
+/**
+ * Loads a text file with each {@link WordHasher} and {@link ProbingStrategy}
+ * and prints the resulting probe lengths, to compare how much each
+ * combination clusters on real text. The histogram lists how many words are
+ * found on the 1st, 2nd, ... probe.
+ * 
+ * <p>Usage: {@code java ProbeLengthReport [file ...]}, defaults to
+ * mlk-have-dream.txt.
+ * 
+ * @author Zander Polk
+ */
+public class ProbeLengthReport {
+    public static void main(String[] args) throws FileNotFoundException {
+        String[] files = args.length > 0 ? args : new String[] {"mlk-have-dream.txt"};
+        WordHasher[] hashers = {new AsciiSumHasher(), new Fnv1aHasher()};
+
+        for (String file : files) {
+            System.out.println(file);
+            for (WordHasher hasher : hashers) {
+                for (ProbingStrategy probing : ProbingStrategy.values()) {
+                    HashWords table = new HashWords(17, hasher, probing,
+                            HashWords.DEFAULT_MAX_LOAD_FACTOR, HashWords.DEFAULT_GROWTH_FACTOR, false);
+                    Scanner scanner = new Scanner(new File(file)).useDelimiter("[\\s\\p{Punct}]+");
+                    while (scanner.hasNext()) {
+                        table.addWord(scanner.next());
+                    }
+                    scanner.close();
+
+                    System.out.printf("  %-15s %-11s unique %6d  avg probe %6.2f  max probe %5d  %s%n",
+                            hasher.getClass().getSimpleName(), probing,
+                            table.numUniqueWordsInTable(), table.averageProbeLength(),
+                            table.maxProbeLength(), histogram(table.probeLengthHistogram()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Formats the first few buckets of a probe-length histogram.
+     * 
+     * @param histogram words per probe length, element 0 unused
+     * @return e.g. "[412 88 25 14 +9]"
+     */
+    private static String histogram(int[] histogram) {
+        StringBuilder text = new StringBuilder("[");
+        int shown = Math.min(histogram.length, 6);
+        for (int p = 1; p < shown; p++) {
+            text.append(p > 1 ? " " : "").append(histogram[p]);
+        }
+        int rest = 0;
+        for (int p = shown; p < histogram.length; p++) {
+            rest += histogram[p];
+        }
+        if (rest > 0) {
+            text.append(" +").append(rest);
+        }
+        return text.append("]").toString();
+    }
+}
@@ -1,26 +1,89 @@
 import java.util.*;
 import java.io.File; // Import the File class
 import java.io.FileNotFoundException; // Import this class to handle errors
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Driver for Project 2 for the Fall 2024 of the ITSC 2214 Course.
  * 
+ * <p>Usage: {@code java Project2 [--scanner | --mapped | --parallel] [--stats]
+ * [--ngrams=N] [--serve=PORT] [--follow[=CHECKPOINT]] [file]}.
+ * By default the file is preamble.txt and it is read with a {@link Scanner};
+ * {@code --mapped} reads it with the {@link MappedTokenizer} instead, and
+ * {@code --parallel} splits it across cores with the {@link ParallelTokenizer}.
+ * {@code --stats} also prints the {@link HashWordsStats} of the table.
+ * {@code --ngrams=N} also counts the 2- to N-word phrases with an
+ * {@link NGramCounter} (Scanner only) and prints the most common ones.
+ * {@code --serve=PORT} then keeps the table live behind a
+ * {@link WordCountServer} on that localhost port until the process is killed.
+ * {@code --follow} instead tails the file with a {@link FileFollower},
+ * counting only what is appended, until the process is killed; with a
+ * checkpoint file it saves its progress after every change and resumes from
+ * it on the next run.
+ * 
  * @author manuel a. perez-quinones
  * @version July 2024
  */
 public class Project2 {
-    public static void main(String[] args) throws FileNotFoundException {
+    public static void main(String[] args) throws IOException {
+        String mode = "--scanner";
+        String fileName = "preamble.txt";
+        boolean stats = false;
+        int ngrams = 0;
+        int serve = -1;
+        String follow = null;
+        for (String arg : args) {
+            if (arg.equals("--stats")) {
+                stats = true;
+            } else if (arg.startsWith("--ngrams=")) {
+                ngrams = Integer.parseInt(arg.substring("--ngrams=".length()));
+            } else if (arg.startsWith("--serve=")) {
+                serve = Integer.parseInt(arg.substring("--serve=".length()));
+            } else if (arg.equals("--follow")) {
+                follow = "";
+            } else if (arg.startsWith("--follow=")) {
+                follow = arg.substring("--follow=".length());
+            } else if (arg.startsWith("--")) {
+                mode = arg;
+            } else {
+                fileName = arg;
+            }
+        }
+        if (follow != null) {
+            follow(Paths.get(fileName), follow.isEmpty() ? null : Paths.get(follow));
+            return;
+        }
+
         // Create a hashmap from string to integers
         HashWords table = new HashWords(17);
+        table.setStatsEnabled(stats);
+        NGramCounter phrases = ngrams > 0 ? new NGramCounter(ngrams, table) : null;
+        if (phrases != null && !mode.equals("--scanner")) {
+            throw new IllegalArgumentException("--ngrams only works with --scanner");
+        }
 
         // Read from a file
-        File theFile = new File("preamble.txt");
-        Scanner scanner = new Scanner(theFile).useDelimiter("[\\s\\p{Punct}]+");
-        while (scanner.hasNext()) {
-            String w = scanner.next();
-            table.addWord(w);
+        File theFile = new File(fileName);
+        long start = System.nanoTime();
+        long tokens;
+        if (mode.equals("--mapped")) {
+            tokens = new MappedTokenizer().tokenize(theFile.toPath(), table);
+        } else if (mode.equals("--parallel")) {
+            table = new ParallelTokenizer().tokenize(theFile.toPath(), stats);
+            tokens = table.totalNumOfWords();
+        } else if (mode.equals("--scanner")) {
+            tokens = phrases != null ? readWithScanner(theFile, phrases)
+                    : readWithScanner(theFile, table);
+        } else {
+            throw new IllegalArgumentException("Unknown option " + mode);
         }
-        scanner.close();
+        double seconds = (System.nanoTime() - start) / 1e9;
 
         // Print the results
         System.out.println("Size of the table " + table.size());
@@ -35,5 +98,105 @@ public class Project2 {
         System.out.println("Contains? \"United\": " + table.contains("United"));
         System.out.println("Frequency of \"United\": " + table.frequency("United"));
         System.out.println("Term frequency of \"United\": " + table.termFrequency("United"));
+
+        System.out.printf("Read %s with %s in %.3f s: %.1f MB/s, %.0f tokens/s%n",
+                fileName, mode, seconds,
+                theFile.length() / 1e6 / seconds, tokens / seconds);
+        if (stats) {
+            System.out.println("Stats: " + table.stats());
+        }
+        for (int n = 2; phrases != null && n <= ngrams; n++) {
+            System.out.print("Most common " + n + "-grams:");
+            for (WordFrequency phrase : phrases.topK(n, 5)) {
+                System.out.print(" \"" + phrase.getWord() + "\" " + phrase.getLongCount());
+            }
+            System.out.println();
+        }
+        if (serve >= 0) {
+            WordCountServer server = new WordCountServer(table, serve);
+            System.out.println("Serving on localhost:" + server.port());
+            server.run();
+        }
+    }
+
+    /**
+     * Counts what is appended to a file for as long as the process runs.
+     * Waits for changes to the file's directory with a {@link WatchService},
+     * and also polls every second in case an event is missed.
+     * 
+     * @param file the file to follow
+     * @param checkpoint the checkpoint file, or null to start from scratch
+     * @throws IOException if the file or the checkpoint cannot be read
+     */
+    private static void follow(Path file, Path checkpoint) throws IOException {
+        FileFollower follower = checkpoint != null ? FileFollower.resume(file, checkpoint)
+                : new FileFollower(file);
+        System.out.println("Following " + file + " from byte " + follower.offset());
+        Path dir = file.toAbsolutePath().getParent();
+        try (WatchService watcher = dir.getFileSystem().newWatchService()) {
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            while (true) {
+                long words = follower.poll();
+                if (words > 0) {
+                    HashWords table = follower.table();
+                    System.out.println("+" + words + " words, " + table.longTotalNumOfWords()
+                            + " in total, " + table.numUniqueWordsInTable()
+                            + " unique, most common \"" + table.mostCommonWord() + "\"");
+                    if (checkpoint != null) {
+                        follower.checkpoint(checkpoint);
+                    }
+                }
+                WatchKey key = watcher.poll(1, TimeUnit.SECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads the file with a Scanner, one word per delimiter-separated token.
+     * 
+     * @param theFile the text file
+     * @param table the table to add the words to
+     * @return the number of words added
+     * @throws FileNotFoundException if the file does not exist
+     */
+    private static long readWithScanner(File theFile, HashWords table)
+            throws FileNotFoundException {
+        long tokens = 0;
+        Scanner scanner = new Scanner(theFile).useDelimiter("[\\s\\p{Punct}]+");
+        while (scanner.hasNext()) {
+            String w = scanner.next();
+            table.addWord(w);
+            tokens++;
+        }
+        scanner.close();
+        return tokens;
+    }
+
+    /**
+     * Reads the file with a Scanner into an n-gram counter, which also
+     * counts the single words into its dictionary.
+     * 
+     * @param theFile the text file
+     * @param phrases the counter to add the words to
+     * @return the number of words added
+     * @throws FileNotFoundException if the file does not exist
+     */
+    private static long readWithScanner(File theFile, NGramCounter phrases)
+            throws FileNotFoundException {
+        long tokens = 0;
+        Scanner scanner = new Scanner(theFile).useDelimiter("[\\s\\p{Punct}]+");
+        while (scanner.hasNext()) {
+            phrases.addWord(scanner.next());
+            tokens++;
+        }
+        scanner.close();
+        return tokens;
     }
 }
@@ -0,0 +1,307 @@
+/**
+ * Fixed-memory counterpart of {@link HashWords} for unbounded streams. Word
+ * counts are estimated with a Count-Min Sketch and the number of distinct
+ * words with a HyperLogLog, so memory is set when the counter is created and
+ * never grows, however many words are added.
+ * 
+ * <p>The estimates are one-sided: {@link #frequency(String)} never
+ * under-counts, and with probability at least {@code 1 - delta} over-counts
+ * by at most {@code epsilon * totalNumOfWords()}. The sketch uses conservative
+ * update (only the smallest counters of a word are raised), which keeps the
+ * over-count well below that bound in practice. Counters stop at
+ * {@code Integer.MAX_VALUE} rather than wrapping.
+ * {@link #numUniqueWordsInTable()} has a relative standard error of about
+ * {@code 1.04 / sqrt(registers)}.
+ * 
+ * <p>No words are stored, apart from the current {@link #mostCommonWord()}
+ * candidate: the word with the highest estimate seen so far.
+ * 
+ * @author Zander Polk
+ */
+public class ApproximateWordCounter implements WordCounter {
+    private final int[] sketch;       // depth rows of width counters
+    private final int width;
+    private final int depth;
+    private final byte[] registers;   // HyperLogLog, one per bucket
+    private final int precision;      // log2(registers.length)
+    // Largest array length every JVM allocates
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    private long totalWordsCount;
+    private String mostCommon;
+    private int mostCommonEstimate;
+
+    /**
+     * Creates a counter sized for the given error bounds.
+     * 
+     * @param epsilon the over-count bound on frequencies, as a fraction of all
+     *        words; in (0, 1)
+     * @param delta the probability of exceeding that bound, in (0, 1)
+     * @param distinctError the wanted relative standard error of the distinct
+     *        word count, in (0, 1)
+     * @throws IllegalArgumentException if a bound is out of range, or the
+     *         sketch they call for is too large for one array
+     */
+    public ApproximateWordCounter(double epsilon, double delta, double distinctError) {
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)
+                || !(distinctError > 0 && distinctError < 1)) {
+            throw new IllegalArgumentException("error bounds must be in (0, 1): "
+                    + epsilon + ", " + delta + ", " + distinctError);
+        }
+        int p = 4;
+        while (p < 18 && (1 << p) < Math.pow(1.04 / distinctError, 2)) {
+            p++;
+        }
+        this.width = (int) Math.min(1 << 26, Math.ceil(Math.E / epsilon));
+        this.depth = (int) Math.ceil(Math.log(1 / delta));
+        this.sketch = new int[sketchLength(width, depth)];
+        this.precision = p;
+        this.registers = new byte[1 << p];
+    }
+
+    /**
+     * Creates a counter with the given dimensions.
+     * 
+     * @param width the counters per sketch row
+     * @param depth the sketch rows
+     * @param precision log2 of the number of HyperLogLog registers
+     */
+    private ApproximateWordCounter(int width, int depth, int precision) {
+        this.width = width;
+        this.depth = depth;
+        this.sketch = new int[sketchLength(width, depth)];
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Returns the number of counters in a sketch, computed without overflow.
+     * 
+     * @param width the counters per row
+     * @param depth the rows
+     * @return width * depth
+     * @throws IllegalArgumentException if that does not fit in one array
+     */
+    private static int sketchLength(int width, int depth) {
+        long length = (long) width * depth;
+        if (length > MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException("sketch of " + width + " x " + depth
+                    + " counters is too large");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Creates a counter that fits in about the given number of bytes, with a
+     * 1% chance of exceeding the frequency bound. An eighth of the budget (at
+     * most 64 KB) goes to the distinct count, the rest to the sketch.
+     * 
+     * @param bytes the memory budget
+     * @return a counter whose {@link #memoryBytes()} is at most bytes (and at
+     *         most 256 MB)
+     * @throws IllegalArgumentException if the budget is under 1 KB
+     */
+    public static ApproximateWordCounter withMemoryBudget(long bytes) {
+        if (bytes < 1024) {
+            throw new IllegalArgumentException("budget must be at least 1 KB: " + bytes);
+        }
+        int distinctBytes = Integer.highestOneBit((int) Math.min(1 << 16, bytes / 8));
+        int depth = (int) Math.ceil(Math.log(1 / 0.01));
+        long width = Math.min(1 << 26, (bytes - distinctBytes) / 4 / depth);
+        return new ApproximateWordCounter((int) width, depth,
+                Integer.numberOfTrailingZeros(distinctBytes));
+    }
+
+    /**
+     * Returns the memory used by the sketch and the registers. It is fixed
+     * when the counter is created.
+     * 
+     * @return the size of the counting arrays in bytes
+     */
+    public long memoryBytes() {
+        return 4L * sketch.length + registers.length;
+    }
+
+    /**
+     * Returns the number of counters per row of the sketch. Frequencies are
+     * over-counted by at most {@code e / width()} of all words, with the
+     * probability given by {@link #depth()}.
+     * 
+     * @return the width, e / epsilon rounded up
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows of the sketch. The over-count bound holds
+     * with probability {@code 1 - e^-depth()}.
+     * 
+     * @return the depth, ln(1 / delta) rounded up
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * Index of a word's counter in one row, from two halves of its hash
+     * (Kirsch-Mitzenmacher double hashing).
+     * 
+     * @param hash the 64-bit hash of the word
+     * @param row the row of the sketch
+     * @return the index in {@link #sketch}
+     */
+    private int counter(long hash, int row) {
+        int h = (int) hash + row * (int) (hash >>> 32);
+        return row * width + (h & 0x7fffffff) % width;
+    }
+
+    @Override
+    public void addWord(String w) {
+        addWord((CharSequence) w);
+    }
+
+    /**
+     * Same as {@link #addWord(String)} for any character sequence. Allocates
+     * nothing unless the word becomes the most common one.
+     * 
+     * @param w the word
+     */
+    public void addWord(CharSequence w) {
+        long hash = Fnv1aHasher.hash64(w);
+        totalWordsCount++;
+
+        // Conservative update: raise only the counters at the current minimum
+        int estimate = Math.min(estimate(hash), Integer.MAX_VALUE - 1) + 1;
+        for (int row = 0; row < depth; row++) {
+            int i = counter(hash, row);
+            if (sketch[i] < estimate) {
+                sketch[i] = estimate;
+            }
+        }
+
+        int bucket = (int) (hash >>> (64 - precision));
+        int rank = Long.numberOfLeadingZeros(hash << precision | 1L << (precision - 1)) + 1;
+        if (rank > registers[bucket]) {
+            registers[bucket] = (byte) rank;
+        }
+
+        if (estimate > mostCommonEstimate) {
+            if (mostCommon == null || !HashWords.matches(mostCommon, w)) {
+                mostCommon = HashWords.foldCase(w);
+            }
+            mostCommonEstimate = estimate;
+        } else if (estimate == mostCommonEstimate && !HashWords.matches(mostCommon, w)) {
+            String word = HashWords.foldCase(w);
+            if (word.compareTo(mostCommon) < 0) {
+                mostCommon = word;
+            }
+        }
+    }
+
+    /**
+     * Smallest counter of a word over all rows.
+     * 
+     * @param hash the 64-bit hash of the word
+     * @return the estimated count
+     */
+    private int estimate(long hash) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, sketch[counter(hash, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * Estimates how many times a word was added. Never less than the true
+     * count.
+     * 
+     * @param w the word
+     * @return the estimated count of (w)
+     */
+    @Override
+    public int frequency(String w) {
+        return frequency((CharSequence) w);
+    }
+
+    /**
+     * Same as {@link #frequency(String)} for any character sequence.
+     * 
+     * @param w the word
+     * @return the estimated count of (w)
+     */
+    public int frequency(CharSequence w) {
+        return estimate(Fnv1aHasher.hash64(w));
+    }
+
+    /**
+     * Was this word (probably) added? Never false for a word that was added;
+     * may be true for one that was not.
+     * 
+     * @param w the word
+     * @return true if the estimated count is above 0
+     */
+    @Override
+    public boolean contains(String w) {
+        return frequency(w) > 0;
+    }
+
+    /**
+     * Estimates the number of distinct words with HyperLogLog, using linear
+     * counting while many registers are still empty.
+     * 
+     * @return the estimated number of distinct words
+     */
+    @Override
+    public int numUniqueWordsInTable() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) {
+                zeros++;
+            }
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709
+                : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.round(estimate));
+    }
+
+    /**
+     * Total number of words added; this one is exact.
+     * 
+     * @return the number of addWord calls
+     */
+    @Override
+    public int totalNumOfWords() {
+        return (int) Math.min(Integer.MAX_VALUE, totalWordsCount);
+    }
+
+    @Override
+    public long longTotalNumOfWords() {
+        return totalWordsCount;
+    }
+
+    /**
+     * Returns the word with the highest estimated count at the time it was
+     * last added, alphabetical among equal estimates. A word whose counters
+     * are raised only by collisions can be missed, so this is approximate
+     * too.
+     * 
+     * @return the most common word, or null if nothing was added
+     */
+    @Override
+    public String mostCommonWord() {
+        return mostCommon;
+    }
+
+    @Override
+    public double termFrequency(String w) {
+        return totalWordsCount > 0 ? (double) frequency(w) / totalWordsCount : 0.0;
+    }
+}
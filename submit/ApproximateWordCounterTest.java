@@ -0,0 +1,155 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the ApproximateWordCounter class.
+ * Estimates are checked against an exact HashWords on the bundled texts.
+ */
+public class ApproximateWordCounterTest {
+    private static final String[] TEXTS = {"preamble.txt", "gettysburg.txt", "mlk-have-dream.txt"};
+
+    /**
+     * Reads every word of the bundled texts.
+     * 
+     * @return the words in order
+     * @throws FileNotFoundException if a text is missing
+     */
+    private static List<String> bundledWords() throws FileNotFoundException {
+        List<String> words = new ArrayList<>();
+        for (String text : TEXTS) {
+            Scanner scanner = new Scanner(new File(text)).useDelimiter("[\\s\\p{Punct}]+");
+            while (scanner.hasNext()) {
+                words.add(scanner.next());
+            }
+            scanner.close();
+        }
+        return words;
+    }
+
+    /**
+     * Test that frequencies are never under-counted and stay within the bound.
+     * 
+     * @throws FileNotFoundException if a text is missing
+     */
+    @Test
+    public void testFrequencyBound() throws FileNotFoundException {
+        double epsilon = 0.005;
+        ApproximateWordCounter approximate = new ApproximateWordCounter(epsilon, 0.01, 0.05);
+        HashWords exact = new HashWords(17);
+        List<String> words = bundledWords();
+        for (String w : words) {
+            approximate.addWord(w);
+            exact.addWord(w);
+        }
+
+        assertEquals("Total is exact", exact.totalNumOfWords(), approximate.totalNumOfWords());
+        int bound = (int) Math.ceil(epsilon * words.size());
+        int exactHits = 0;
+        for (String w : words) {
+            int estimate = approximate.frequency(w);
+            assertTrue("Never under-counts " + w, estimate >= exact.frequency(w));
+            assertTrue("Within the bound " + w, estimate - exact.frequency(w) <= bound);
+            if (estimate == exact.frequency(w)) {
+                exactHits++;
+            }
+        }
+        assertTrue("Most estimates are exact", exactHits > words.size() * 0.9);
+        assertEquals("Most common word", exact.mostCommonWord(), approximate.mostCommonWord());
+        assertEquals("Case is folded", approximate.frequency("the"), approximate.frequency("THE"));
+        assertTrue("Contains", approximate.contains("People"));
+    }
+
+    /**
+     * Test the distinct word estimate on the bundled texts and a large stream.
+     * 
+     * @throws FileNotFoundException if a text is missing
+     */
+    @Test
+    public void testDistinctEstimate() throws FileNotFoundException {
+        ApproximateWordCounter approximate = new ApproximateWordCounter(0.01, 0.01, 0.02);
+        HashWords exact = new HashWords(17);
+        for (String w : bundledWords()) {
+            approximate.addWord(w);
+            exact.addWord(w);
+        }
+        int unique = exact.numUniqueWordsInTable();
+        assertEquals("Bundled texts", unique, approximate.numUniqueWordsInTable(), unique * 0.06);
+
+        for (int i = 0; i < 200_000; i++) {
+            approximate.addWord("word" + i);
+        }
+        int expected = unique + 200_000;
+        assertEquals("Large stream", expected, approximate.numUniqueWordsInTable(), expected * 0.06);
+        assertEquals("Empty", 0, new ApproximateWordCounter(0.01, 0.01, 0.02).numUniqueWordsInTable());
+    }
+
+    /**
+     * Test that memory stays fixed and error shrinks as the budget grows.
+     * 
+     * @throws FileNotFoundException if a text is missing
+     */
+    @Test
+    public void testAccuracyVersusMemory() throws FileNotFoundException {
+        List<String> words = bundledWords();
+        HashWords exact = new HashWords(17);
+        for (String w : words) {
+            exact.addWord(w);
+        }
+
+        long previousError = Long.MAX_VALUE;
+        for (long budget : new long[] {2 << 10, 16 << 10, 128 << 10}) {
+            ApproximateWordCounter approximate = ApproximateWordCounter.withMemoryBudget(budget);
+            long memory = approximate.memoryBytes();
+            assertTrue("Fits the budget " + budget, memory <= budget);
+            for (String w : words) {
+                approximate.addWord(w);
+            }
+            assertEquals("Memory does not grow", memory, approximate.memoryBytes());
+
+            long error = 0;
+            for (String w : words) {
+                error += approximate.frequency(w) - exact.frequency(w);
+            }
+            assertTrue("More memory, less error at " + budget, error <= previousError);
+            previousError = error;
+        }
+        assertEquals("Largest budget is exact here", 0, previousError);
+    }
+
+    /**
+     * Test the sketch dimensions and bad bounds.
+     */
+    @Test
+    public void testDimensions() {
+        ApproximateWordCounter counter = new ApproximateWordCounter(0.001, 0.01, 0.01);
+        assertEquals("Width", 2719, counter.width());
+        assertEquals("Depth", 5, counter.depth());
+        assertEquals("Nothing added", 0, counter.frequency("the"));
+        assertNull("No most common word", counter.mostCommonWord());
+        assertEquals("No term frequency", 0.0, counter.termFrequency("the"), 0.0);
+        try {
+            new ApproximateWordCounter(0, 0.01, 0.01);
+            fail("epsilon of 0");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            // 2^26 counters per row and 691 rows overflow an int
+            new ApproximateWordCounter(1e-9, 1e-300, 0.01);
+            fail("Sketch too large");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            ApproximateWordCounter.withMemoryBudget(100);
+            fail("Budget too small");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
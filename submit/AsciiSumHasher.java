@@ -0,0 +1,24 @@
+/**
+ * The original {@link HashWords} hash: the sum of the character codes of the
+ * lower-cased word. Every anagram ("abc", "bca", "cab") gets the same hash,
+ * so it clusters badly and is only kept for comparison.
+ * 
+ * @author Zander Polk
+ */
+public class AsciiSumHasher implements WordHasher {
+
+    /**
+     * Sums the lower-cased character codes of the word.
+     * 
+     * @param word the word
+     * @return the sum of the character codes
+     */
+    @Override
+    public int hash(CharSequence word) {
+        int hash = 0;
+        for (int i = 0; i < word.length(); i++) {
+            hash += Character.toLowerCase(word.charAt(i)); // Sum ASCII values
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,65 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the BlockedBloomFilter class.
+ */
+public class BlockedBloomFilterTest {
+    /**
+     * Test that every added hash passes the filter.
+     */
+    @Test
+    public void testNoFalseNegatives() {
+        BlockedBloomFilter filter = new BlockedBloomFilter(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(("word" + i).hashCode());
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue("word" + i, filter.mightContain(("word" + i).hashCode()));
+        }
+    }
+
+    /**
+     * Test that an empty filter rejects everything.
+     */
+    @Test
+    public void testEmpty() {
+        BlockedBloomFilter filter = new BlockedBloomFilter(0);
+        for (int i = 0; i < 1000; i++) {
+            assertFalse("Nothing added", filter.mightContain(i * 0x9E3779B9));
+        }
+    }
+
+    /**
+     * Test the false-positive rate of a full filter.
+     */
+    @Test
+    public void testFalsePositiveRate() {
+        int words = 50_000;
+        BlockedBloomFilter filter = new BlockedBloomFilter(words);
+        WordHasher fnv = new Fnv1aHasher();
+        for (int i = 0; i < words; i++) {
+            filter.add(fnv.hash("word" + i));
+        }
+        int passed = 0;
+        int tries = 200_000;
+        for (int i = 0; i < tries; i++) {
+            if (filter.mightContain(fnv.hash("miss" + i))) {
+                passed++;
+            }
+        }
+        double rate = (double) passed / tries;
+        assertTrue("False-positive rate " + rate, rate < 0.03);
+    }
+
+    /**
+     * Test that the filter uses about the planned number of bits per word.
+     */
+    @Test
+    public void testSize() {
+        long bytes = new BlockedBloomFilter(100_000).estimatedBytes();
+        long planned = 100_000L * BlockedBloomFilter.BITS_PER_WORD / 8;
+        assertTrue("At least the planned bits: " + bytes, bytes >= planned);
+        assertTrue("At most twice: " + bytes, bytes <= 2 * planned + 64);
+    }
+}
@@ -0,0 +1,350 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe counterpart of {@link HashWords} for several threads counting
+ * into one shared vocabulary.
+ * 
+ * <p>The words are spread over independent segments by hash. Each segment is
+ * an open-addressing table with linear probing like {@link HashWords}:
+ * <ul>
+ * <li>counting a word that is already there takes no lock, the slot's counter
+ * is bumped with a compare-and-set;</li>
+ * <li>inserting a new word locks only its segment;</li>
+ * <li>a segment grows on its own, so a resize only delays the threads touching
+ * that segment.</li>
+ * </ul>
+ * The totals are kept in {@link LongAdder}s, so threads do not fight over a
+ * single counter. Queries are weakly consistent while words are being added.
+ * A word's count stops at Integer.MAX_VALUE, while the total keeps counting.
+ * 
+ * @author Zander Polk
+ */
+public class ConcurrentHashWords implements WordCounter {
+    /** Default number of segments, rounded up to a power of two. */
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 64;
+
+    // Count of a slot whose word has been copied into a grown table; live
+    // counts saturate at Integer.MAX_VALUE and never wrap around to it
+    private static final int MOVED = -1;
+
+    private final Segment[] segments;
+    private final WordHasher hasher;
+    private final LongAdder uniqueWordCount = new LongAdder();
+    private final LongAdder totalWordsCount = new LongAdder();
+
+    /**
+     * Creates a table with the default hasher and concurrency level.
+     * 
+     * @param initialSize the starting number of slots over all segments
+     */
+    public ConcurrentHashWords(int initialSize) {
+        this(initialSize, DEFAULT_CONCURRENCY_LEVEL, new Fnv1aHasher());
+    }
+
+    /**
+     * Creates a table split into about concurrencyLevel segments.
+     * 
+     * @param initialSize the starting number of slots over all segments
+     * @param concurrencyLevel the number of segments, rounded up to a power of two
+     * @param hasher the hash function used for every word
+     * @throws IllegalArgumentException if a size is not positive
+     */
+    public ConcurrentHashWords(int initialSize, int concurrencyLevel, WordHasher hasher) {
+        if (initialSize < 1 || concurrencyLevel < 1) {
+            throw new IllegalArgumentException("sizes must be positive: "
+                    + initialSize + ", " + concurrencyLevel);
+        }
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel) {
+            segmentCount <<= 1;
+        }
+        // At least 4 slots, so a segment always grows before its last slot is taken
+        // and a lock-free probe always reaches an empty slot
+        int segmentSize = Math.max(4, (initialSize + segmentCount - 1) / segmentCount);
+        this.hasher = hasher;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * Returns the number of slots over all segments.
+     * 
+     * @return the size of the table
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.table.size;
+        }
+        return size;
+    }
+
+    /**
+     * Picks the segment of a hash from bits that are not used for the slot.
+     * 
+     * @param hash the full hash of a word
+     * @return the segment holding that word
+     */
+    private Segment segmentFor(int hash) {
+        return segments[(Fnv1aHasher.mix(hash) >>> 16) & (segments.length - 1)];
+    }
+
+    @Override
+    public void addWord(String w) {
+        addWord((CharSequence) w);
+    }
+
+    /**
+     * Same as {@link #addWord(String)} for any character sequence.
+     * 
+     * @param w the word
+     */
+    public void addWord(CharSequence w) {
+        addWord(w, 1);
+    }
+
+    /**
+     * Counts several occurrences of a word at once. Its count stops at
+     * Integer.MAX_VALUE.
+     * 
+     * @param w the word
+     * @param occurrences the number of occurrences, at least 1
+     * @throws IllegalArgumentException if occurrences is less than 1
+     */
+    void addWord(CharSequence w, int occurrences) {
+        if (occurrences < 1) {
+            throw new IllegalArgumentException("occurrences must be positive: " + occurrences);
+        }
+        int hash = hasher.hash(w);
+        segmentFor(hash).add(w, hash, occurrences);
+        totalWordsCount.add(occurrences);
+    }
+
+    @Override
+    public int frequency(String w) {
+        return frequency((CharSequence) w);
+    }
+
+    /**
+     * Same as {@link #frequency(String)} for any character sequence.
+     * 
+     * @param w the word
+     * @return the count of (w) if it exists in the table; otherwise, 0
+     */
+    public int frequency(CharSequence w) {
+        int hash = hasher.hash(w);
+        return segmentFor(hash).frequency(w, hash);
+    }
+
+    @Override
+    public boolean contains(String w) {
+        return frequency(w) > 0;
+    }
+
+    @Override
+    public int numUniqueWordsInTable() {
+        return uniqueWordCount.intValue();
+    }
+
+    @Override
+    public int totalNumOfWords() {
+        return (int) Math.min(Integer.MAX_VALUE, totalWordsCount.sum());
+    }
+
+    @Override
+    public long longTotalNumOfWords() {
+        return totalWordsCount.sum();
+    }
+
+    /**
+     * Finds the most common word, breaking ties alphabetically like
+     * {@link HashWords#mostCommonWord()}.
+     * 
+     * @return the word with the highest count, or null if nothing was added
+     */
+    @Override
+    public String mostCommonWord() {
+        String word = null;
+        int count = 0;
+        for (Segment segment : segments) {
+            Table table = segment.table;
+            for (int i = 0; i < table.size; i++) {
+                String key = table.keys.get(i);
+                int c = table.counts.get(i);
+                if (key != null && (c > count || c == count && key.compareTo(word) < 0)) {
+                    count = c;
+                    word = key;
+                }
+            }
+        }
+        return word;
+    }
+
+    @Override
+    public double termFrequency(String w) {
+        long total = totalWordsCount.sum();
+        return total > 0 ? (double) frequency(w) / total : 0.0;
+    }
+
+    /**
+     * Fixed-size slot arrays of one segment. Keys are published last, so a
+     * reader that sees a key also sees its hash and count.
+     */
+    private static final class Table {
+        final int size;
+        final AtomicReferenceArray<String> keys;
+        final AtomicIntegerArray counts;
+        final int[] hashes;
+
+        Table(int size) {
+            this.size = size;
+            this.keys = new AtomicReferenceArray<>(size);
+            this.counts = new AtomicIntegerArray(size);
+            this.hashes = new int[size];
+        }
+
+        int indexFor(int hash) {
+            return (hash & 0x7fffffff) % size;
+        }
+    }
+
+    /**
+     * One independently locked and grown part of the table.
+     */
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Table table;
+        private int unique;     // Guarded by lock
+
+        Segment(int size) {
+            this.table = new Table(size);
+        }
+
+        int frequency(CharSequence w, int hash) {
+            while (true) {
+                Table t = table;
+                int key = t.indexFor(hash);
+                for (String k; (k = t.keys.get(key)) != null; key = (key + 1) % t.size) {
+                    if (t.hashes[key] == hash && HashWords.matches(k, w)) {
+                        int count = t.counts.get(key);
+                        if (count != MOVED) {
+                            return count;
+                        }
+                        // Copied into a grown table, wait until it is published
+                        while (table == t) {
+                            Thread.onSpinWait();
+                        }
+                        break;
+                    }
+                }
+                if (t == table) {
+                    return 0;
+                }
+            }
+        }
+
+        void add(CharSequence w, int hash, int occurrences) {
+            // Fast path: the word is already there, bump its counter without locking
+            Table t = table;
+            int key = t.indexFor(hash);
+            for (String k; (k = t.keys.get(key)) != null; key = (key + 1) % t.size) {
+                if (t.hashes[key] == hash && HashWords.matches(k, w)) {
+                    if (increment(t, key, occurrences)) {
+                        return;
+                    }
+                    break;
+                }
+            }
+
+            lock.lock();
+            try {
+                insert(w, hash, occurrences);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Adds to a slot's counter unless the slot has been moved. The counter
+         * saturates at Integer.MAX_VALUE, so it can never wrap around to
+         * {@link #MOVED}.
+         * 
+         * @param t the table holding the slot
+         * @param key the slot
+         * @param occurrences the number to add, at least 1
+         * @return false if the slot was moved by a resize
+         */
+        private boolean increment(Table t, int key, int occurrences) {
+            while (true) {
+                int count = t.counts.get(key);
+                if (count == MOVED) {
+                    return false;
+                }
+                if (count == Integer.MAX_VALUE) {
+                    return true;
+                }
+                int next = (int) Math.min(Integer.MAX_VALUE, (long) count + occurrences);
+                if (t.counts.compareAndSet(key, count, next)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Locked path: counts the word, inserting it if it is new.
+         * 
+         * @param w the word
+         * @param hash its full hash
+         * @param occurrences the number to count, at least 1
+         */
+        private void insert(CharSequence w, int hash, int occurrences) {
+            Table t = table;
+            int key = t.indexFor(hash);
+            for (String k; (k = t.keys.get(key)) != null; key = (key + 1) % t.size) {
+                if (t.hashes[key] == hash && HashWords.matches(k, w)) {
+                    increment(t, key, occurrences);  // Never moved while we hold the lock
+                    return;
+                }
+            }
+            t.hashes[key] = hash;
+            t.counts.set(key, occurrences);
+            t.keys.set(key, HashWords.foldCase(w));
+            unique++;
+            uniqueWordCount.increment();
+
+            if (unique >= t.size * HashWords.DEFAULT_MAX_LOAD_FACTOR) {
+                grow(t);
+            }
+        }
+
+        /**
+         * Copies the segment into a table twice as large. Each old counter is
+         * swapped for {@link #MOVED} as it is copied, so no lock-free increment
+         * can be lost; threads that see it retry on the new table.
+         * 
+         * @param old the current table
+         */
+        private void grow(Table old) {
+            Table grown = new Table(old.size * 2);
+            for (int i = 0; i < old.size; i++) {
+                String k = old.keys.get(i);
+                if (k != null) {
+                    int count = old.counts.getAndSet(i, MOVED);
+                    int key = grown.indexFor(old.hashes[i]);
+                    while (grown.keys.get(key) != null) {
+                        key = (key + 1) % grown.size;
+                    }
+                    grown.hashes[key] = old.hashes[i];
+                    grown.counts.set(key, count);
+                    grown.keys.set(key, k);
+                }
+            }
+            table = grown;
+        }
+    }
+}
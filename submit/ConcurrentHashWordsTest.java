@@ -0,0 +1,185 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the ConcurrentHashWords class.
+ * The stress tests compare many threads counting into one table with a
+ * sequential {@link HashWords} fed the same words.
+ */
+public class ConcurrentHashWordsTest {
+    private static final int THREADS = 8;
+    private static final int WORDS_PER_THREAD = 40000;
+
+    private ConcurrentHashWords concurrent;
+
+    /**
+     * Setup method, starts from a tiny table so segments grow under load.
+     */
+    @Before
+    public void setup() {
+        concurrent = new ConcurrentHashWords(4, 4, new Fnv1aHasher());
+    }
+
+    /**
+     * The word thread t adds at step i. A few words are shared by every
+     * thread and the rest are mostly private, so both hot counters and
+     * concurrent inserts are exercised.
+     * 
+     * @param t the thread number
+     * @param i the step
+     * @return the word
+     */
+    private static String word(int t, int i) {
+        if (i % 3 == 0) {
+            return "Shared" + (i % 17);
+        }
+        return (i % 2 == 0 ? "w" : "W") + ((t * 7919L + i * 31L) % 5000);
+    }
+
+    /**
+     * Runs one task per thread, all released at the same time. A failure in
+     * any thread is rethrown here.
+     * 
+     * @param task the work of each thread, given the thread number
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void runThreads(IntConsumer task)
+            throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int id = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    task.accept(id);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("Worker thread failed", failure.get());
+        }
+    }
+
+    /**
+     * Test that concurrent counting matches a sequential run.
+     * 
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void testStressMatchesSequential() throws InterruptedException {
+        runThreads(t -> {
+            for (int i = 0; i < WORDS_PER_THREAD; i++) {
+                concurrent.addWord(word(t, i));
+            }
+        });
+
+        HashWords sequential = new HashWords(17);
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < WORDS_PER_THREAD; i++) {
+                sequential.addWord(word(t, i));
+            }
+        }
+
+        assertEquals("Same total number of words",
+                sequential.totalNumOfWords(), concurrent.totalNumOfWords());
+        assertEquals("Same number of unique words",
+                sequential.numUniqueWordsInTable(), concurrent.numUniqueWordsInTable());
+        assertEquals("Same most common word", sequential.mostCommonWord(), concurrent.mostCommonWord());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals("Same frequency of 'w" + i + "'",
+                    sequential.frequency("w" + i), concurrent.frequency("w" + i));
+        }
+        for (int i = 0; i < 17; i++) {
+            assertEquals("Shared word counted by every thread",
+                    sequential.frequency("shared" + i), concurrent.frequency("SHARED" + i));
+        }
+    }
+
+    /**
+     * Test that readers never see a count go backwards while segments grow.
+     * 
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void testReadsDuringGrowth() throws InterruptedException {
+        concurrent.addWord("hot");
+        runThreads(t -> {
+            int last = 0;
+            for (int i = 0; i < WORDS_PER_THREAD; i++) {
+                if (t % 2 == 0) {
+                    concurrent.addWord("hot");
+                    concurrent.addWord("new" + t + "_" + i);
+                } else {
+                    int seen = concurrent.frequency("hot");
+                    assertTrue("Count of 'hot' never drops", seen >= last);
+                    last = seen;
+                }
+            }
+        });
+        assertEquals("Every increment of 'hot' was kept",
+                1 + THREADS / 2 * WORDS_PER_THREAD, concurrent.frequency("hot"));
+    }
+
+    /**
+     * Test the single-threaded behaviour matches HashWords.
+     */
+    @Test
+    public void testBasicCounting() {
+        assertNull("Empty table has no most common word", concurrent.mostCommonWord());
+        assertEquals("Term frequency of empty table", 0.0, concurrent.termFrequency("a"), 0.0);
+
+        concurrent.addWord("Hello");
+        concurrent.addWord("hello");
+        concurrent.addWord("world");
+        assertEquals("Frequency of 'hello' should be 2", 2, concurrent.frequency("HELLO"));
+        assertTrue("Contains 'world' should be true", concurrent.contains("world"));
+        assertFalse("Contains 'missing' should be false", concurrent.contains("missing"));
+        assertEquals("Number of unique words should be 2", 2, concurrent.numUniqueWordsInTable());
+        assertEquals("Total number of words should be 3", 3, concurrent.totalNumOfWords());
+        assertEquals("Term frequency of 'hello'", 2.0 / 3.0, concurrent.termFrequency("hello"), 1e-9);
+        assertEquals("Most common word will be 'hello'", "hello", concurrent.mostCommonWord());
+    }
+
+    /**
+     * A count started near the limit stops at Integer.MAX_VALUE instead of
+     * wrapping around to the value that marks a moved slot, so reading it
+     * afterwards returns instead of spinning.
+     */
+    @Test(timeout = 10000)
+    public void testCountSaturates() {
+        concurrent.addWord("hot", Integer.MAX_VALUE - 2);
+        for (int i = 0; i < 5; i++) {
+            concurrent.addWord("hot");
+        }
+        assertEquals("Count should stop at Integer.MAX_VALUE",
+                Integer.MAX_VALUE, concurrent.frequency("hot"));
+        concurrent.addWord("hot", Integer.MAX_VALUE);
+        assertEquals("Count should still be Integer.MAX_VALUE",
+                Integer.MAX_VALUE, concurrent.frequency("hot"));
+        assertEquals("Total should keep counting", 2L * Integer.MAX_VALUE + 3,
+                concurrent.longTotalNumOfWords());
+
+        // Growing the segment copies the saturated count as it is
+        for (int i = 0; i < 100; i++) {
+            concurrent.addWord("w" + i);
+        }
+        assertEquals("Count should survive growth",
+                Integer.MAX_VALUE, concurrent.frequency("hot"));
+        assertEquals("Most common word will be 'hot'", "hot", concurrent.mostCommonWord());
+    }
+}
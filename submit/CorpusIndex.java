@@ -0,0 +1,188 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Scores words across many documents with TF-IDF. Each document is counted
+ * into its own {@link HashWords}, and a shared table counts in how many
+ * documents each word appears.
+ * 
+ * <p>The inverse document frequency of a word is {@code ln(N / df)}, where N
+ * is the number of documents and df the number that contain the word. Since
+ * {@code ln(N / df) = ln N - ln df}, the index caches {@code ln df} per word
+ * and {@code ln N} once. Adding a document only recomputes {@code ln df} for
+ * the words of that document; nothing is recomputed over the whole corpus.
+ * 
+ * @author Zander Polk
+ */
+public class CorpusIndex {
+    private HashWords[] documents = new HashWords[8];
+    private int documentCount;
+    private final HashWords documentFrequency = new HashWords(1024);
+
+    // ln(df) by id in documentFrequency, and ln(N)
+    private double[] logDf = new double[1024];
+    private double logN;
+
+    /**
+     * Adds a counted document. The table belongs to the index from now on and
+     * must not be changed, or its words' document frequencies go stale.
+     * 
+     * @param document the word counts of the document
+     * @return the id of the document, counting from 0
+     */
+    public int addDocument(HashWords document) {
+        if (documentCount == documents.length) {
+            documents = Arrays.copyOf(documents, documentCount * 2);
+        }
+        documents[documentCount] = document;
+
+        for (String word : document.words()) {
+            // One probe per word: the id comes back from the add, the count from the id
+            int id = documentFrequency.addWordForId(word);
+            if (id >= logDf.length) {
+                logDf = Arrays.copyOf(logDf, Math.max(id + 1, logDf.length * 2));
+            }
+            logDf[id] = Math.log(documentFrequency.countOf(id));
+        }
+        logN = Math.log(documentCount + 1);
+        return documentCount++;
+    }
+
+    /**
+     * Counts a text file with a {@link MappedTokenizer} and adds it.
+     * 
+     * @param file the text file
+     * @return the id of the document
+     * @throws IOException if the file cannot be read
+     */
+    public int addDocument(Path file) throws IOException {
+        HashWords document = new HashWords(1024);
+        new MappedTokenizer().tokenize(file, document);
+        return addDocument(document);
+    }
+
+    /**
+     * Returns the number of documents added.
+     * 
+     * @return the number of documents
+     */
+    public int documentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Returns the word counts of a document.
+     * 
+     * @param doc the id of the document
+     * @return its table
+     * @throws IllegalArgumentException if there is no such document
+     */
+    public HashWords document(int doc) {
+        if (doc < 0 || doc >= documentCount) {
+            throw new IllegalArgumentException("No document " + doc);
+        }
+        return documents[doc];
+    }
+
+    /**
+     * Returns the number of documents a word appears in.
+     * 
+     * @param w the word
+     * @return its document frequency
+     */
+    public int documentFrequency(String w) {
+        return documentFrequency.frequency(w);
+    }
+
+    /**
+     * Inverse document frequency, {@code ln(N / df)}, from the cached
+     * {@code ln df}. Words in every document score 0.
+     * 
+     * @param w the word
+     * @return the idf of the word, or 0 if no document contains it
+     */
+    public double idf(String w) {
+        int id = documentFrequency.idOf(w);
+        return id < 0 ? 0.0 : logN - logDf[id];
+    }
+
+    /**
+     * TF-IDF of a word in a document: its term frequency in the document
+     * times its idf over the corpus.
+     * 
+     * @param doc the id of the document
+     * @param w the word
+     * @return the tf-idf score, 0 if the word is not in the document
+     * @throws IllegalArgumentException if there is no such document
+     */
+    public double tfidf(int doc, String w) {
+        return document(doc).termFrequency(w) * idf(w);
+    }
+
+    /**
+     * Returns the k words of a document with the highest TF-IDF, highest
+     * first and alphabetical among equal scores.
+     * 
+     * @param doc the id of the document
+     * @param k the number of words wanted
+     * @return at most k words with their scores
+     * @throws IllegalArgumentException if there is no such document or k is negative
+     */
+    public Term[] topTerms(int doc, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        HashWords document = document(doc);
+        String[] words = document.words();
+        Term[] terms = new Term[words.length];
+        for (int i = 0; i < words.length; i++) {
+            terms[i] = new Term(words[i], tfidf(doc, words[i]));
+        }
+        Arrays.sort(terms, (a, b) -> a.score != b.score
+                ? Double.compare(b.score, a.score) : a.word.compareTo(b.word));
+        return Arrays.copyOf(terms, Math.min(k, terms.length));
+    }
+
+    /**
+     * A word with its TF-IDF score in one document.
+     */
+    public static final class Term {
+        private final String word;
+        private final double score;
+
+        /**
+         * Creates a scored word.
+         * 
+         * @param word the lower-cased word
+         * @param score its tf-idf
+         */
+        Term(String word, double score) {
+            this.word = word;
+            this.score = score;
+        }
+
+        /**
+         * Gets the word.
+         * 
+         * @return the word
+         */
+        public String getWord() {
+            return word;
+        }
+
+        /**
+         * Gets the TF-IDF score of the word.
+         * 
+         * @return the score
+         */
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return word + "=" + score;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the CorpusIndex class.
+ */
+public class CorpusIndexTest {
+    private static final double DELTA = 1e-12;
+
+    private CorpusIndex index;
+
+    /**
+     * Setup method, creates an empty index for each test.
+     */
+    @Before
+    public void setup() {
+        index = new CorpusIndex();
+    }
+
+    /**
+     * Counts the given words into a new table.
+     * 
+     * @param words the words of the document
+     * @return the table
+     */
+    private static HashWords document(String... words) {
+        HashWords table = new HashWords(4);
+        for (String w : words) {
+            table.addWord(w);
+        }
+        return table;
+    }
+
+    /**
+     * Test document frequency and idf as documents are added.
+     */
+    @Test
+    public void testIdf() {
+        assertEquals("Empty corpus", 0.0, index.idf("the"), DELTA);
+
+        assertEquals("First id", 0, index.addDocument(document("the", "cat", "The")));
+        assertEquals("Word in every document", 0.0, index.idf("the"), DELTA);
+
+        assertEquals("Second id", 1, index.addDocument(document("the", "dog")));
+        assertEquals("Documents", 2, index.documentCount());
+        assertEquals("Counted once per document", 2, index.documentFrequency("THE"));
+        assertEquals("Still in every document", 0.0, index.idf("the"), DELTA);
+        assertEquals("In one of two", Math.log(2), index.idf("cat"), DELTA);
+
+        index.addDocument(document("bird"));
+        assertEquals("N changed for words of older documents", Math.log(3.0 / 2), index.idf("the"), DELTA);
+        assertEquals("In one of three", Math.log(3), index.idf("Dog"), DELTA);
+        assertEquals("Unknown word", 0.0, index.idf("fish"), DELTA);
+    }
+
+    /**
+     * Test tf-idf against the formula.
+     */
+    @Test
+    public void testTfidf() {
+        index.addDocument(document("the", "cat", "sat", "the", "cat", "cat"));
+        index.addDocument(document("the", "dog", "sat"));
+        index.addDocument(document("the", "end"));
+
+        assertEquals("cat", 3.0 / 6 * Math.log(3), index.tfidf(0, "cat"), DELTA);
+        assertEquals("sat", 1.0 / 3 * Math.log(3.0 / 2), index.tfidf(1, "Sat"), DELTA);
+        assertEquals("the is everywhere", 0.0, index.tfidf(2, "the"), DELTA);
+        assertEquals("Not in this document", 0.0, index.tfidf(2, "cat"), DELTA);
+    }
+
+    /**
+     * Test the top terms of a document.
+     */
+    @Test
+    public void testTopTerms() {
+        index.addDocument(document("the", "cat", "sat", "the", "cat", "mat"));
+        index.addDocument(document("the", "dog", "sat"));
+
+        CorpusIndex.Term[] top = index.topTerms(0, 3);
+        assertEquals("Three terms", 3, top.length);
+        assertEquals("Most distinctive", "cat", top[0].getWord());
+        assertEquals("Score", index.tfidf(0, "cat"), top[0].getScore(), DELTA);
+        assertEquals("Tie broken alphabetically", "mat", top[1].getWord());
+        assertEquals("Shared word next", "sat", top[2].getWord());
+        assertEquals("Fewer words than k", 4, index.topTerms(0, 10).length);
+        assertEquals("k of 0", 0, index.topTerms(1, 0).length);
+    }
+
+    /**
+     * Test adding the bundled texts by file.
+     * 
+     * @throws IOException if a text cannot be read
+     */
+    @Test
+    public void testBundledTexts() throws IOException {
+        int preamble = index.addDocument(Paths.get("preamble.txt"));
+        index.addDocument(Paths.get("gettysburg.txt"));
+        index.addDocument(Paths.get("mlk-have-dream.txt"));
+
+        assertEquals("Preamble words", 52, index.document(preamble).totalNumOfWords());
+        assertEquals("the is everywhere", 3, index.documentFrequency("the"));
+        assertEquals("posterity is only in the preamble", Math.log(3),
+                index.idf("posterity"), DELTA);
+        assertEquals("Top term of the preamble has the highest score",
+                index.topTerms(preamble, 1)[0].getScore(),
+                index.tfidf(preamble, index.topTerms(preamble, 1)[0].getWord()), DELTA);
+    }
+
+    /**
+     * Test that bad arguments are rejected.
+     */
+    @Test
+    public void testBadArguments() {
+        index.addDocument(document("one"));
+        try {
+            index.tfidf(1, "one");
+            fail("No document 1");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            index.topTerms(0, -1);
+            fail("Negative k");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,320 @@
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+/**
+ * Counts the words of a growing, append-only file (e.g. a log) into a
+ * {@link HashWords} table, reading only the bytes appended since the last
+ * {@link #poll()}. Words are split like {@link MappedTokenizer} does.
+ * 
+ * <p>The follower remembers the offset of the first byte it has not counted.
+ * A word at the end of the file that is not followed by a delimiter yet may
+ * still be growing, so it is left for a later poll: the offset stays at its
+ * first byte. Since delimiters are ASCII, the offset never falls inside a
+ * UTF-8 character. {@link #finish()} counts that last word too, for when the
+ * writer is known to be done.
+ * 
+ * <p>{@link #checkpoint(Path)} saves the table and the offset so that
+ * {@link #resume(Path, Path)} can carry on after a restart without counting
+ * anything twice. The table goes to a new snapshot file named after the
+ * checkpoint and a generation number, and the small checkpoint file naming
+ * it is then replaced atomically; the previous snapshot is deleted last. A
+ * crash at any point leaves a checkpoint whose table and offset match.
+ * 
+ * <p>The follower also remembers the identity of the file, its
+ * {@link BasicFileAttributes#fileKey() file key} (device and inode on Unix).
+ * If the file is replaced by another one, e.g. by log rotation, or becomes
+ * shorter than the offset, it is read again from the start into the same
+ * table. The counts of the old content are kept, so the table holds the
+ * words of every version of the file that was followed; content written
+ * again after a truncation is counted again. On file systems without file
+ * keys only truncation is noticed.
+ * 
+ * @author Zander Polk
+ */
+public class FileFollower {
+    static final int MAGIC = 0x5743504B;  // "WCPK"
+    static final int VERSION = 1;
+
+    // Slots in the table of a follower that starts from scratch
+    static final int INITIAL_SIZE = 1024;
+
+    // Bytes read at a time when looking back for the last delimiter
+    private static final int SCAN_BACK_BYTES = 4096;
+
+    private final Path file;
+    private final HashWords table;
+    private final MappedTokenizer tokenizer = new MappedTokenizer();
+    private long offset;
+    private long generation;
+    private String fileKey;     // Identity of the file read so far, null if not known yet
+
+    /**
+     * Creates a follower that starts at the beginning of the file, counting
+     * into a new table.
+     * 
+     * @param file the file to follow; it need not exist yet
+     */
+    public FileFollower(Path file) {
+        this(file, new HashWords(INITIAL_SIZE));
+    }
+
+    /**
+     * Creates a follower that starts at the beginning of the file.
+     * 
+     * @param file the file to follow; it need not exist yet
+     * @param table the table to count into
+     */
+    public FileFollower(Path file, HashWords table) {
+        this(file, table, 0, 0, null);
+    }
+
+    /**
+     * Creates a follower at a saved position.
+     * 
+     * @param file the file to follow
+     * @param table the table holding the words before the offset
+     * @param offset the first byte not counted
+     * @param generation the generation of the last checkpoint
+     * @param fileKey the identity of the file the offset is in, or null
+     */
+    private FileFollower(Path file, HashWords table, long offset, long generation,
+            String fileKey) {
+        this.file = file;
+        this.table = table;
+        this.offset = offset;
+        this.generation = generation;
+        this.fileKey = fileKey;
+    }
+
+    /**
+     * Carries on from a checkpoint written by {@link #checkpoint(Path)}, or
+     * starts at the beginning of the file with an empty table if there is no
+     * checkpoint yet.
+     * 
+     * @param file the file to follow
+     * @param checkpoint the checkpoint file
+     * @return the follower
+     * @throws IOException if the checkpoint cannot be read, is not a
+     *         checkpoint, or was written for another file
+     */
+    public static FileFollower resume(Path file, Path checkpoint) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return new FileFollower(file);
+        }
+        long offset;
+        long generation;
+        String followed;
+        String fileKey;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(checkpoint))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a follow checkpoint: " + checkpoint);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version);
+            }
+            offset = in.readLong();
+            generation = in.readLong();
+            followed = in.readUTF();
+            String key = in.readUTF();
+            fileKey = key.isEmpty() ? null : key;
+        }
+        if (!followed.equals(file.toAbsolutePath().toString())) {
+            throw new IOException("Checkpoint " + checkpoint + " is for " + followed);
+        }
+        HashWords table = HashWords.load(snapshotFile(checkpoint, generation));
+        return new FileFollower(file, table, offset, generation, fileKey);
+    }
+
+    /**
+     * Returns the snapshot file of one generation of a checkpoint.
+     * 
+     * @param checkpoint the checkpoint file
+     * @param generation the generation
+     * @return the snapshot file next to it
+     */
+    static Path snapshotFile(Path checkpoint, long generation) {
+        return checkpoint.resolveSibling(checkpoint.getFileName() + "." + generation + ".hws");
+    }
+
+    /**
+     * Returns the file being followed.
+     * 
+     * @return the file
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Returns the table the words are counted into.
+     * 
+     * @return the table
+     */
+    public HashWords table() {
+        return table;
+    }
+
+    /**
+     * Returns the offset of the first byte not counted yet.
+     * 
+     * @return the offset in bytes
+     */
+    public long offset() {
+        return offset;
+    }
+
+    /**
+     * Counts the complete words appended since the last poll. A word still
+     * touching the end of the file is left for later.
+     * 
+     * @return the number of words counted; 0 if the file does not exist
+     * @throws IOException if the file cannot be read
+     */
+    public long poll() throws IOException {
+        return read(false);
+    }
+
+    /**
+     * Counts every word appended since the last poll, including a last word
+     * with no delimiter after it.
+     * 
+     * @return the number of words counted; 0 if the file does not exist
+     * @throws IOException if the file cannot be read
+     */
+    public long finish() throws IOException {
+        return read(true);
+    }
+
+    /**
+     * Counts the words from the offset up to the end of the file, or up to
+     * the last delimiter.
+     * 
+     * @param all true to count a last word that has no delimiter after it
+     * @return the number of words counted
+     * @throws IOException if the file cannot be read
+     */
+    private long read(boolean all) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        String key = fileKey(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (!Objects.equals(key, fileKey(file))) {
+                return 0;   // Replaced while being opened, try again at the next poll
+            }
+            long size = channel.size();
+            if (size < offset || key != null && fileKey != null && !key.equals(fileKey)) {
+                offset = 0;  // Truncated or replaced: start over
+            }
+            if (key != null) {
+                fileKey = key;
+            }
+            long end = all ? size : afterLastDelimiter(channel, offset, size);
+            if (end <= offset) {
+                return 0;
+            }
+            long words = tokenizer.tokenize(channel, offset, end, table);
+            offset = end;
+            return words;
+        }
+    }
+
+    /**
+     * Returns the identity of a file, which stays the same while it is
+     * appended to and changes when another file takes its name.
+     * 
+     * @param path the file
+     * @return its file key as a string, or null if the file system has none
+     * @throws IOException if the attributes cannot be read
+     */
+    private static String fileKey(Path path) throws IOException {
+        Object key = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        return key != null ? key.toString() : null;
+    }
+
+    /**
+     * Finds where the last complete word of a range ends.
+     * 
+     * @param channel the open file
+     * @param start the first byte of the range
+     * @param end the byte after the range
+     * @return the byte after the last delimiter in the range, or start if
+     *         there is none
+     * @throws IOException if the file cannot be read
+     */
+    private static long afterLastDelimiter(FileChannel channel, long start, long end)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BACK_BYTES);
+        long position = end;
+        while (position > start) {
+            int length = (int) Math.min(SCAN_BACK_BYTES, position - start);
+            position -= length;
+            buffer.clear().limit(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("File shrank while being read: " + channel);
+                }
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                if (MappedTokenizer.isDelimiter(buffer.get(i))) {
+                    return position + i + 1;
+                }
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Saves the table and the offset so that {@link #resume(Path, Path)} can
+     * carry on from here.
+     * 
+     * @param checkpoint the checkpoint file
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void checkpoint(Path checkpoint) throws IOException {
+        long next = generation + 1;
+        Path snapshot = snapshotFile(checkpoint, next);
+        table.save(snapshot);
+        force(snapshot);
+
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(offset);
+            out.writeLong(next);
+            out.writeUTF(file.toAbsolutePath().toString());
+            out.writeUTF(fileKey != null ? fileKey : "");
+        }
+        force(temporary);
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(snapshotFile(checkpoint, generation));
+        generation = next;
+    }
+
+    /**
+     * Flushes a written file to the disk, so a crash cannot leave the
+     * checkpoint naming a snapshot that was never stored.
+     * 
+     * @param written the file
+     * @throws IOException if the file cannot be synced
+     */
+    private static void force(Path written) throws IOException {
+        try (FileChannel channel = FileChannel.open(written, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the FileFollower class.
+ */
+public class FileFollowerTest {
+    private Path dir;
+    private Path log;
+    private Path checkpoint;
+
+    /**
+     * Setup method, creates a temporary directory for each test.
+     * 
+     * @throws IOException if the directory cannot be created
+     */
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("follow");
+        log = dir.resolve("app.log");
+        checkpoint = dir.resolve("app.ckpt");
+    }
+
+    /**
+     * Deletes the temporary directory.
+     * 
+     * @throws IOException if it cannot be deleted
+     */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    /**
+     * Appends text to the log.
+     * 
+     * @param text the text
+     * @throws IOException if the log cannot be written
+     */
+    private void append(String text) throws IOException {
+        Files.write(log, text.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Test that only appended bytes are read, and that a word still being
+     * written is left for the next poll.
+     * 
+     * @throws IOException if the log cannot be read
+     */
+    @Test
+    public void testPollAppends() throws IOException {
+        FileFollower follower = new FileFollower(log, new HashWords(16));
+        assertEquals("No file yet", 0, follower.poll());
+        append("the cat sa");
+        assertEquals("Partial word held back", 2, follower.poll());
+        assertEquals("Offset at the partial word", 8, follower.offset());
+        assertEquals("Nothing new", 0, follower.poll());
+        append("t on the mat.\n");
+        assertEquals("Completed word counted once", 4, follower.poll());
+        assertEquals("sat", 1, follower.table().frequency("sat"));
+        assertEquals("sa not counted", 0, follower.table().frequency("sa"));
+        assertEquals("the", 2, follower.table().frequency("the"));
+        assertEquals("Offset at the end", Files.size(log), follower.offset());
+    }
+
+    /**
+     * Test that finish() counts a last word with no delimiter after it.
+     * 
+     * @throws IOException if the log cannot be read
+     */
+    @Test
+    public void testFinish() throws IOException {
+        FileFollower follower = new FileFollower(log, new HashWords(16));
+        append("caf\u00e9 na\u00efve end");
+        assertEquals("Two complete words", 2, follower.poll());
+        assertEquals("Last word", 1, follower.finish());
+        assertEquals("UTF-8 word", 1, follower.table().frequency("CAF\u00c9"));
+        assertEquals("end", 1, follower.table().frequency("end"));
+    }
+
+    /**
+     * Test resuming from a checkpoint after a restart.
+     * 
+     * @throws IOException if a file cannot be read or written
+     */
+    @Test
+    public void testCheckpointAndResume() throws IOException {
+        FileFollower first = FileFollower.resume(log, checkpoint);
+        append("one two two thr");
+        first.poll();
+        first.checkpoint(checkpoint);
+        append("ee four\n");
+        first.poll();
+        first.checkpoint(checkpoint);
+        append("five ");
+        first.poll();  // Counted, but lost with the process: not checkpointed
+
+        FileFollower second = FileFollower.resume(log, checkpoint);
+        assertEquals("Offset restored", 23, second.offset());
+        assertEquals("Counts restored", 2, second.table().frequency("two"));
+        assertEquals("three", 1, second.table().frequency("three"));
+        assertEquals("five not counted yet", 0, second.table().frequency("five"));
+        append("six\n");
+        assertEquals("Only new words", 2, second.poll());
+        assertEquals("five counted once", 1, second.table().frequency("five"));
+        assertEquals("Total", 7, second.table().totalNumOfWords());
+
+        second.checkpoint(checkpoint);
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals("One snapshot kept", 1,
+                    files.filter(p -> p.toString().endsWith(".hws")).count());
+        }
+    }
+
+    /**
+     * Test that a checkpoint for another file is rejected.
+     * 
+     * @throws IOException if a file cannot be read or written
+     */
+    @Test(expected = IOException.class)
+    public void testCheckpointForAnotherFile() throws IOException {
+        append("words\n");
+        FileFollower follower = new FileFollower(log, new HashWords(16));
+        follower.poll();
+        follower.checkpoint(checkpoint);
+        FileFollower.resume(dir.resolve("other.log"), checkpoint);
+    }
+
+    /**
+     * Test that a checkpoint in any other format version is rejected.
+     * 
+     * @throws IOException if a file cannot be read or written
+     */
+    @Test(expected = IOException.class)
+    public void testCheckpointOtherVersion() throws IOException {
+        append("words\n");
+        FileFollower follower = new FileFollower(log);
+        follower.poll();
+        follower.checkpoint(checkpoint);
+        try (FileChannel channel = FileChannel.open(checkpoint, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, FileFollower.VERSION + 1), 4);
+        }
+        FileFollower.resume(log, checkpoint);
+    }
+
+    /**
+     * Test that a truncated file is read again from the start.
+     * 
+     * @throws IOException if the log cannot be read
+     */
+    @Test
+    public void testTruncated() throws IOException {
+        FileFollower follower = new FileFollower(log, new HashWords(16));
+        append("alpha beta gamma\n");
+        follower.poll();
+        Files.write(log, "delta\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals("Read from the start", 1, follower.poll());
+        assertEquals("New word", 1, follower.table().frequency("delta"));
+        assertEquals("Old words kept", 1, follower.table().frequency("alpha"));
+    }
+
+    /**
+     * Replaces the log with a new file holding the given text, the way log
+     * rotation does.
+     * 
+     * @param text the text of the new file
+     * @throws IOException if the log cannot be written
+     */
+    private void replace(String text) throws IOException {
+        Path next = dir.resolve("app.log.new");
+        Files.write(next, text.getBytes(StandardCharsets.UTF_8));
+        Files.move(next, log, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Test that a replaced file longer than the offset is read from the
+     * start, not from the offset into the old file.
+     * 
+     * @throws IOException if the log cannot be read
+     */
+    @Test
+    public void testReplacedByLongerFile() throws IOException {
+        append("alpha beta\n");
+        Assume.assumeNotNull(Files.readAttributes(log, BasicFileAttributes.class).fileKey());
+        FileFollower follower = new FileFollower(log, new HashWords(16));
+        assertEquals("Old file", 2, follower.poll());
+        replace("gamma delta epsilon zeta\n");
+        assertEquals("Read from the start", 4, follower.poll());
+        assertEquals("First word of the new file", 1, follower.table().frequency("gamma"));
+        assertEquals("Old words kept", 1, follower.table().frequency("alpha"));
+        assertEquals("Offset at the end", Files.size(log), follower.offset());
+    }
+
+    /**
+     * Test that a checkpoint remembers the file, so a replacement while the
+     * follower was not running is noticed after resuming.
+     * 
+     * @throws IOException if a file cannot be read or written
+     */
+    @Test
+    public void testReplacedWhileStopped() throws IOException {
+        append("one two\n");
+        Assume.assumeNotNull(Files.readAttributes(log, BasicFileAttributes.class).fileKey());
+        FileFollower first = FileFollower.resume(log, checkpoint);
+        first.poll();
+        first.checkpoint(checkpoint);
+        replace("three four five six\n");
+
+        FileFollower second = FileFollower.resume(log, checkpoint);
+        assertEquals("Read from the start", 4, second.poll());
+        assertEquals("three", 1, second.table().frequency("three"));
+        assertEquals("Total", 6, second.table().totalNumOfWords());
+    }
+}
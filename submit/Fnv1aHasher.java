@@ -0,0 +1,83 @@
+/**
+ * FNV-1a hash over the lower-cased characters of a word, followed by the
+ * Murmur3 finalizer so that the low bits used for the slot index depend on
+ * every character. This is the default {@link WordHasher} of {@link HashWords}.
+ * 
+ * <p>{@link #hash64(CharSequence, long)} is the 64-bit variant, for the
+ * structures that need more bits than a slot index: the sketches of
+ * {@link ApproximateWordCounter} and the perfect hash of
+ * {@link FrozenHashWords}.
+ * 
+ * @author Zander Polk
+ */
+public class Fnv1aHasher implements WordHasher {
+    private static final int OFFSET_BASIS = 0x811c9dc5;
+    private static final int PRIME = 0x01000193;
+    private static final long OFFSET_BASIS_64 = 0xcbf29ce484222325L;
+    private static final long PRIME_64 = 0x100000001b3L;
+
+    /**
+     * Hashes the word one lower-cased character at a time.
+     * 
+     * @param word the word
+     * @return the mixed hash code
+     */
+    @Override
+    public int hash(CharSequence word) {
+        int hash = OFFSET_BASIS;
+        for (int i = 0; i < word.length(); i++) {
+            hash ^= Character.toLowerCase(word.charAt(i));
+            hash *= PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Hashes the lower-cased characters of a word to 64 bits: 64-bit FNV-1a
+     * followed by the Murmur3 64-bit finalizer.
+     * 
+     * @param w the word
+     * @return the mixed hash
+     */
+    static long hash64(CharSequence w) {
+        return hash64(w, 0);
+    }
+
+    /**
+     * Same as {@link #hash64(CharSequence)} with the FNV offset basis moved
+     * by a seed, so that words colliding under one seed are unlikely to
+     * collide under another.
+     * 
+     * @param w the word
+     * @param seed the seed, 0 for {@link #hash64(CharSequence)}
+     * @return the mixed hash
+     */
+    static long hash64(CharSequence w, long seed) {
+        long h = OFFSET_BASIS_64 ^ seed;
+        for (int i = 0; i < w.length(); i++) {
+            h ^= Character.toLowerCase(w.charAt(i));
+            h *= PRIME_64;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Murmur3 32-bit finalizer, spreads the entropy across all bits.
+     * 
+     * @param h the hash to mix
+     * @return the mixed hash
+     */
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
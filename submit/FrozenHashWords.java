@@ -0,0 +1,346 @@
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of a {@link HashWords} table for serving queries,
+ * returned by {@link HashWords#freeze()}. The words sit in dense arrays with
+ * no empty slots, placed by a minimal perfect hash function: every word of
+ * the table maps to its own slot in {@code [0, n)}. A lookup hashes the word
+ * once, reads the pilot of its bucket, computes the slot and compares the
+ * word stored there, so it always takes one probe and one key check.
+ * 
+ * <p>The hash function is built the PTHash way. Words are hashed to 64 bits
+ * and split into about n / {@value #BUCKET_SIZE} buckets. Buckets are placed
+ * largest first; for each one the smallest pilot is searched for that sends
+ * all of its words to free slots, with
+ * {@code slot = position(hash ^ pilot * C)}. Only the pilots are kept,
+ * one int per bucket. If two words share a 64-bit hash, or a bucket finds no
+ * pilot within {@link #pilotLimit(int)} tries, the words are hashed again
+ * with another seed and the build starts over.
+ * 
+ * <p>Counts are stored like those of {@link HashWords}: an int per word,
+ * with counts past {@code Integer.MAX_VALUE} kept as longs on the side. All
+ * fields are final and never change after construction, so a frozen table
+ * can be shared between threads without synchronization.
+ * 
+ * @author Zander Polk
+ */
+public final class FrozenHashWords implements WordCounts {
+    /** Average number of words per bucket of the hash function. */
+    static final int BUCKET_SIZE = 4;
+
+    /** Number of seeds tried before the build gives up. */
+    static final int MAX_SEEDS = 64;
+
+    private static final long PILOT_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final long seed;            // Seed of the word hashes, see Fnv1aHasher.hash64
+    private final int[] pilots;
+    private final String[] keys;
+    private final int[] counts;         // The count, or ~i for overflowCounts[i]
+    private final long[] overflowCounts;
+    private final long totalWordsCount;
+    private final String mostCommon;
+
+    /**
+     * Builds the perfect hash function over the given words and places
+     * them.
+     * 
+     * @param words the distinct lower-cased words
+     * @param wordCounts the count of each word, at least 1
+     * @param totalWordsCount the sum of the counts
+     * @param mostCommon the most common word, or null if there are none
+     * @throws IllegalStateException if no seed gives a perfect hash, which
+     *         only happens if words has duplicates
+     */
+    FrozenHashWords(String[] words, long[] wordCounts, long totalWordsCount, String mostCommon) {
+        this(words, wordCounts, totalWordsCount, mostCommon, pilotLimit(words.length));
+    }
+
+    /**
+     * Builds the perfect hash function with a given bound on the pilot
+     * search, so tests can force reseeding.
+     * 
+     * @param words the distinct lower-cased words
+     * @param wordCounts the count of each word, at least 1
+     * @param totalWordsCount the sum of the counts
+     * @param mostCommon the most common word, or null if there are none
+     * @param pilotLimit the number of pilots tried per bucket under one seed
+     * @throws IllegalStateException if no seed gives a perfect hash
+     */
+    FrozenHashWords(String[] words, long[] wordCounts, long totalWordsCount, String mostCommon,
+            int pilotLimit) {
+        int n = words.length;
+        this.totalWordsCount = totalWordsCount;
+        this.mostCommon = mostCommon;
+        this.keys = new String[n];
+        this.counts = new int[n];
+        this.pilots = new int[Math.max(1, (n + BUCKET_SIZE - 1) / BUCKET_SIZE)];
+
+        long[] hashes = new long[n];
+        int[] slotOf = null;
+        long s = 0;
+        for (int attempt = 0; slotOf == null; attempt++) {
+            if (attempt == MAX_SEEDS) {
+                throw new IllegalStateException("No perfect hash after " + MAX_SEEDS
+                        + " seeds; are the words distinct?");
+            }
+            s = attempt * PILOT_MULTIPLIER;
+            for (int i = 0; i < n; i++) {
+                hashes[i] = Fnv1aHasher.hash64(words[i], s);
+            }
+            slotOf = place(hashes, pilotLimit);
+        }
+        this.seed = s;
+
+        int overflow = 0;
+        for (long count : wordCounts) {
+            if (count > Integer.MAX_VALUE) {
+                overflow++;
+            }
+        }
+        this.overflowCounts = new long[overflow];
+        overflow = 0;
+        for (int i = 0; i < n; i++) {
+            keys[slotOf[i]] = words[i];
+            if (wordCounts[i] > Integer.MAX_VALUE) {
+                overflowCounts[overflow] = wordCounts[i];
+                counts[slotOf[i]] = ~overflow++;
+            } else {
+                counts[slotOf[i]] = (int) wordCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the default bound on the pilots tried per bucket. The last
+     * buckets placed have a single word and few free slots left, about n
+     * tries on average for the very last one, so the bound grows with n.
+     * 
+     * @param n the number of words
+     * @return the number of pilots to try before reseeding
+     */
+    static int pilotLimit(int n) {
+        return (int) Math.min(Integer.MAX_VALUE, 64L * n + 1024);
+    }
+
+    /**
+     * Finds a pilot for every bucket, largest buckets first, so that all
+     * words land in different slots.
+     * 
+     * @param hashes the 64-bit hash of each word
+     * @param pilotLimit the number of pilots to try per bucket
+     * @return the slot of each word, or null if two words have the same hash
+     *         or a bucket found no pilot, so another seed is needed
+     */
+    private int[] place(long[] hashes, int pilotLimit) {
+        int n = hashes.length;
+        int buckets = pilots.length;
+
+        // Group the words by bucket (counting sort), then order buckets by size
+        int[] start = new int[buckets + 1];
+        for (long h : hashes) {
+            start[bucket(h, buckets) + 1]++;
+        }
+        int largest = 0;
+        for (int b = 0; b < buckets; b++) {
+            largest = Math.max(largest, start[b + 1]);
+            start[b + 1] += start[b];
+        }
+        int[] members = new int[n];
+        int[] fill = Arrays.copyOf(start, buckets);
+        for (int i = 0; i < n; i++) {
+            members[fill[bucket(hashes[i], buckets)]++] = i;
+        }
+        int[] bySize = new int[largest + 2];
+        for (int b = 0; b < buckets; b++) {
+            bySize[largest - (start[b + 1] - start[b]) + 1]++;
+        }
+        for (int s = 0; s <= largest; s++) {
+            bySize[s + 1] += bySize[s];
+        }
+        int[] order = new int[buckets];
+        for (int b = 0; b < buckets; b++) {
+            order[bySize[largest - (start[b + 1] - start[b])]++] = b;
+        }
+
+        boolean[] taken = new boolean[n];
+        int[] slotOf = new int[n];
+        int[] tried = new int[largest];
+        for (int b : order) {
+            int from = start[b];
+            int to = start[b + 1];
+            if (from == to) {
+                break;  // Only empty buckets are left
+            }
+            for (int i = from; i < to; i++) {
+                for (int j = from; j < i; j++) {
+                    if (hashes[members[i]] == hashes[members[j]]) {
+                        return null;  // No pilot can separate them
+                    }
+                }
+            }
+            for (int pilot = 0; ; pilot++) {
+                if (pilot == pilotLimit) {
+                    return null;
+                }
+                int placed = 0;
+                for (int i = from; i < to; i++) {
+                    int slot = slot(hashes[members[i]], pilot, n);
+                    if (taken[slot]) {
+                        break;
+                    }
+                    taken[slot] = true;
+                    tried[placed++] = slot;
+                }
+                if (placed == to - from) {
+                    pilots[b] = pilot;
+                    for (int i = 0; i < placed; i++) {
+                        slotOf[members[from + i]] = tried[i];
+                    }
+                    break;
+                }
+                for (int i = 0; i < placed; i++) {
+                    taken[tried[i]] = false;
+                }
+            }
+        }
+        return slotOf;
+    }
+
+    /**
+     * Returns the bucket of a hash, from its low 32 bits.
+     * 
+     * @param hash the 64-bit hash of a word
+     * @param buckets the number of buckets
+     * @return the bucket, in [0, buckets)
+     */
+    private static int bucket(long hash, int buckets) {
+        return (int) (((hash & 0xFFFFFFFFL) * buckets) >>> 32);
+    }
+
+    /**
+     * Returns the slot a pilot sends a hash to.
+     * 
+     * @param hash the 64-bit hash of a word
+     * @param pilot the pilot of its bucket
+     * @param n the number of slots
+     * @return the slot, in [0, n)
+     */
+    private static int slot(long hash, int pilot, int n) {
+        long h = hash ^ pilot * PILOT_MULTIPLIER;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) (((h >>> 32) * n) >>> 32);
+    }
+
+    /**
+     * Returns the only slot that may hold a word.
+     * 
+     * @param w the word, in any case
+     * @return its slot, or -1 if the word is not in the table
+     */
+    private int slotOf(CharSequence w) {
+        int n = keys.length;
+        if (n == 0) {
+            return -1;
+        }
+        long hash = Fnv1aHasher.hash64(w, seed);
+        int slot = slot(hash, pilots[bucket(hash, pilots.length)], n);
+        return HashWords.matches(keys[slot], w) ? slot : -1;
+    }
+
+    /**
+     * Returns the seed the words were hashed with.
+     * 
+     * @return 0 unless the build had to start over
+     */
+    long seed() {
+        return seed;
+    }
+
+    @Override
+    public int frequency(String w) {
+        return frequency((CharSequence) w);
+    }
+
+    /**
+     * Same as {@link #frequency(String)} for any character sequence.
+     * 
+     * @param w the word
+     * @return the count of (w), at most Integer.MAX_VALUE; otherwise, 0
+     */
+    public int frequency(CharSequence w) {
+        return (int) Math.min(Integer.MAX_VALUE, longFrequency(w));
+    }
+
+    @Override
+    public long longFrequency(String w) {
+        return longFrequency((CharSequence) w);
+    }
+
+    /**
+     * Looks a word up with one probe and one key comparison.
+     * 
+     * @param w the word, in any case
+     * @return the count of (w); otherwise, 0
+     */
+    public long longFrequency(CharSequence w) {
+        int slot = slotOf(w);
+        if (slot < 0) {
+            return 0;
+        }
+        int count = counts[slot];
+        return count >= 0 ? count : overflowCounts[~count];
+    }
+
+    @Override
+    public boolean contains(String w) {
+        return slotOf(w) >= 0;
+    }
+
+    @Override
+    public int numUniqueWordsInTable() {
+        return keys.length;
+    }
+
+    @Override
+    public int totalNumOfWords() {
+        return (int) Math.min(Integer.MAX_VALUE, totalWordsCount);
+    }
+
+    @Override
+    public long longTotalNumOfWords() {
+        return totalWordsCount;
+    }
+
+    /**
+     * Returns the most common word as it was when the table was frozen.
+     * 
+     * @return the most common word, or null for an empty table
+     */
+    @Override
+    public String mostCommonWord() {
+        return mostCommon;
+    }
+
+    @Override
+    public double termFrequency(String w) {
+        return totalWordsCount > 0 ? (double) longFrequency(w) / totalWordsCount : 0.0;
+    }
+
+    /**
+     * Estimates the heap retained by the frozen table, on the same terms as
+     * {@link HashWordsStats#estimatedBytes()}: its arrays and its words.
+     * 
+     * @return the estimated size in bytes
+     */
+    public long estimatedBytes() {
+        long bytes = 16 + 4L * pilots.length + 16 + 4L * keys.length + 16 + 4L * counts.length
+                + 16 + 8L * overflowCounts.length;
+        for (String k : keys) {
+            bytes += 24 + ((16 + k.length() + 7) & ~7L);   // String plus its byte[]
+        }
+        return bytes;
+    }
+}
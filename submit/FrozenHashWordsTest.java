@@ -0,0 +1,170 @@
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for {@link HashWords#freeze()} and the FrozenHashWords view.
+ */
+public class FrozenHashWordsTest {
+    private static final String[] TEXT = {
+        "We", "the", "People", "of", "the", "United", "States", "in", "Order", "to",
+        "form", "a", "more", "perfect", "Union", "THE", "people", "caf\u00e9", "Caf\u00c9",
+        "\u65e5\u672c", "na\u00efve", "\ud83d\ude00", "the"
+    };
+
+    private HashWords table;
+
+    /**
+     * Setup method, creates a table of TEXT for each test.
+     */
+    @Before
+    public void setup() {
+        table = new HashWords(8);
+        for (String w : TEXT) {
+            table.addWord(w);
+        }
+    }
+
+    /**
+     * Test that the frozen table answers like the table it was taken from.
+     */
+    @Test
+    public void testMatchesSource() {
+        FrozenHashWords frozen = table.freeze();
+        for (String w : TEXT) {
+            assertEquals(w, table.frequency(w), frozen.frequency(w));
+            assertTrue(w, frozen.contains(w));
+        }
+        assertEquals("Case is ignored", 4, frozen.frequency("tHe"));
+        assertEquals("Case is ignored", 4, frozen.frequency(new StringBuilder("THE")));
+        assertEquals("Missing word", 0, frozen.frequency("nation"));
+        assertFalse("Missing word", frozen.contains("nation"));
+        assertEquals("Unique words", table.numUniqueWordsInTable(), frozen.numUniqueWordsInTable());
+        assertEquals("Total words", TEXT.length, frozen.totalNumOfWords());
+        assertEquals("Most common", "the", frozen.mostCommonWord());
+        assertEquals("Term frequency", 4.0 / TEXT.length, frozen.termFrequency("the"), 1e-12);
+    }
+
+    /**
+     * Test that the frozen table does not follow later changes.
+     */
+    @Test
+    public void testSnapshot() {
+        FrozenHashWords frozen = table.freeze();
+        table.addWord("nation");
+        table.addWord("the");
+        assertEquals("New word not in the snapshot", 0, frozen.frequency("nation"));
+        assertEquals("Old count", 4, frozen.frequency("the"));
+    }
+
+    /**
+     * Test an empty table.
+     */
+    @Test
+    public void testEmpty() {
+        FrozenHashWords frozen = new HashWords(8).freeze();
+        assertEquals("No words", 0, frozen.numUniqueWordsInTable());
+        assertEquals("Nothing found", 0, frozen.frequency("the"));
+        assertFalse("Nothing found", frozen.contains("the"));
+        assertNull("No most common word", frozen.mostCommonWord());
+        assertEquals("No term frequency", 0.0, frozen.termFrequency("the"), 0.0);
+    }
+
+    /**
+     * Test that counts past Integer.MAX_VALUE are kept.
+     */
+    @Test
+    public void testCountsPastIntMax() {
+        long big = Integer.MAX_VALUE + 10L;
+        table.addWord("union", big);
+        FrozenHashWords frozen = table.freeze();
+        assertEquals("Long count", big + 1, frozen.longFrequency("Union"));
+        assertEquals("Saturated count", Integer.MAX_VALUE, frozen.frequency("union"));
+        assertEquals("Small count", 2, frozen.longFrequency("people"));
+        assertEquals("Long total", TEXT.length + big, frozen.longTotalNumOfWords());
+        assertEquals("Saturated total", Integer.MAX_VALUE, frozen.totalNumOfWords());
+    }
+
+    /**
+     * Test a large random vocabulary: every word found, misses rejected, and
+     * less memory than the mutable table.
+     */
+    @Test
+    public void testManyWords() {
+        HashWords words = new HashWords(1024);
+        Random random = new Random(20);
+        for (int i = 0; i < 100_000; i++) {
+            words.addWord(Long.toString(random.nextLong() & Long.MAX_VALUE, 36));
+        }
+        words.addWord("again", 5);
+        FrozenHashWords frozen = words.freeze();
+        assertEquals("Unique words", words.numUniqueWordsInTable(), frozen.numUniqueWordsInTable());
+        words.forEach((w, count) -> assertEquals(w, count, frozen.longFrequency(w)));
+        for (int i = 0; i < 10_000; i++) {
+            String miss = "-" + i;
+            assertEquals(miss, 0, frozen.frequency(miss));
+        }
+        assertTrue("Smaller than the mutable table",
+                frozen.estimatedBytes() < words.stats().estimatedBytes());
+    }
+
+    /**
+     * Test that several threads can read a frozen table at once.
+     * 
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void testConcurrentReads() throws InterruptedException {
+        FrozenHashWords frozen = table.freeze();
+        AtomicInteger wrong = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    if (frozen.frequency("the") != 4 || frozen.frequency("people") != 2
+                            || frozen.contains("nation")) {
+                        wrong.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals("Wrong answers", 0, wrong.get());
+    }
+
+    /**
+     * Test that a build whose pilot search runs out starts over with another
+     * seed, and that the result is still a perfect hash.
+     */
+    @Test
+    public void testReseed() {
+        String[] words = new String[12];
+        long[] counts = new long[words.length];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = "w" + i;
+            counts[i] = i + 1;
+        }
+        // Seed 0 needs more than 32 pilots for one of these buckets, the next seed fewer than 8
+        FrozenHashWords frozen = new FrozenHashWords(words, counts, 78, "w11", 8);
+        assertNotEquals("Build had to reseed", 0, frozen.seed());
+        for (int i = 0; i < words.length; i++) {
+            assertEquals(words[i], i + 1, frozen.longFrequency(words[i]));
+        }
+        assertFalse("Miss", frozen.contains("w12"));
+
+        assertEquals("Default build keeps seed 0", 0, table.freeze().seed());
+    }
+
+    /**
+     * Test that words no seed can separate fail the build instead of
+     * looping forever.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testDuplicateWords() {
+        new FrozenHashWords(new String[] {"same", "same"}, new long[] {1, 1}, 2, "same");
+    }
+}
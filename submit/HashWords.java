@@ -1,30 +1,243 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * HashWords class to be used for counting and analyzing words in a text.
  * 
+ * <p>The table is stored as parallel arrays rather than one
+ * {@link WordFrequency} object per slot: {@code keys[i]} holds the lower-cased
+ * word, {@code counts[i]} its count and {@code hashes[i]} its full hash. Probing
+ * compares the cached hashes first, so most mismatches are rejected without
+ * touching the String, and counting a word allocates nothing once it is known.
+ * 
+ * <p>Counts are 64-bit, but most words are rare, so a slot keeps its count
+ * in an int. A count that no longer fits is promoted to a shared array of
+ * overflow longs, and the slot holds {@code ~i} (a negative number) for the
+ * overflow count at {@code i} (see {@link OverflowCounts}, which
+ * {@link IntCounter} and {@link LongCounter} share). Only hot words pay for a
+ * long; the int methods such as {@link #frequency(String)} stop at
+ * {@code Integer.MAX_VALUE} and {@link #longFrequency(String)} returns the
+ * full count.
+ * 
+ * <p>Collisions are resolved by the chosen {@link ProbingStrategy}, linear
+ * probing by default.
+ * 
+ * <p>Each word also has an id ({@code ids[i]}) in a {@link TopKIndex} that is
+ * updated as counts change, so {@link #mostCommonWord()} and
+ * {@link #topK(int)} do not scan the table.
+ * 
+ * <p>{@link #stats()} reports the load, clustering and memory use of the
+ * table. Rehash and probe counters are only collected after
+ * {@link #setStatsEnabled(boolean) setStatsEnabled(true)}; when they are off
+ * the only cost is a null check.
+ * 
+ * <p>{@link #setBloomFilterEnabled(boolean) setBloomFilterEnabled(true)} puts a
+ * {@link BlockedBloomFilter} in front of lookups, so most lookups of missing
+ * words return without reading a slot.
+ * 
+ * <p>Words are taken out with {@link #decrement(String)} and
+ * {@link #remove(String)}. With linear and Robin Hood probing the words after
+ * a removed one are shifted back into the gap (backward-shift deletion), so
+ * no tombstones are left and probe lengths stay as if the word had never been
+ * added. Triangular probing cannot shift words back, so it leaves a tombstone
+ * and rebuilds the table in place once tombstones take an eighth of it. The
+ * table shrinks once it is less than a quarter as full as its load factor
+ * allows.
+ * 
+ * <p>The words can be walked in slot order with {@link #forEach(WordCountVisitor)}
+ * or a {@link Cursor}, which read the slots in place, or streamed as
+ * {@link WordFrequency} objects with {@link #stream()}.
+ * 
+ * <p>{@link #save(Path)} writes the table to a binary snapshot that
+ * {@link #load(Path)} or {@link MappedHashWords} read back without
+ * re-counting or rehashing.
+ * 
  * @author Zander Polk
  */
-public class HashWords {
-    private WordFrequency[] table;
+public class HashWords implements WordCounter {
+    /** Default fraction of slots that may be used before the table grows. */
+    public static final double DEFAULT_MAX_LOAD_FACTOR = 0.75;
+    /** Default factor the table size is multiplied by when it grows. */
+    public static final double DEFAULT_GROWTH_FACTOR = 2.0;
+    /** Number of old slots moved per call while an incremental rehash runs. */
+    static final int REHASH_STEP = 16;
+    /** Number of words hashed ahead of probing by the batch methods. */
+    static final int BATCH = 256;
+
+    // Key of a slot freed under triangular probing, which cannot shift words back
+    private static final String DELETED = new String("");
+
+    private String[] keys;
+    private int[] counts;            // The count, or ~i for an overflow count, see OverflowCounts
+    private int[] hashes;
+    private int[] ids;
+    private final TopKIndex index;
+    private final WordHasher hasher;
+    private final ProbingStrategy probing;
+    private final double maxLoadFactor;
+    private final double growthFactor;
+    private final boolean incrementalRehash;
     private int size;
+    private final int minSize;       // The table never shrinks below its initial size
+    private int tombstones;
+    private boolean growing;         // The rehash in flight is a growth, timed in the stats
     private int uniqueWordCount = 0;     // Increment locally for ease of access
-    private int totalWordsCount = 0;
+    private long totalWordsCount = 0;
+
+    // Counts past Integer.MAX_VALUE, shared by the current and old tables
+    private final OverflowCounts overflow = new OverflowCounts();
+
+    // Table being drained while an incremental rehash is in progress, null otherwise.
+    // Slots below rehashIndex have already been copied into the current arrays.
+    private String[] oldKeys;
+    private int[] oldCounts;
+    private int[] oldHashes;
+    private int[] oldIds;
+    private int oldSize;
+    private int rehashIndex;
+
+    // Rehash and probe counters, null unless stats are enabled. Like the rest
+    // of the table it is only touched by the thread using the table.
+    private HashWordsStats.Recorder recorder;
+
+    // Filter over the hashes of the words, null unless enabled; rebuilt on every resize
+    private BlockedBloomFilter bloom;
+
+    // Bumped whenever words are added or removed or the slots move, to fail iteration fast
+    private int modCount;
 
     /**
      * Constructor for the class, creates the initial
-     * array of WordFrequency objects
+     * table of words and counts
      * to be of size initialSize.
      * 
+     * Words are hashed with the default {@link Fnv1aHasher}.
+     * 
      * @param initialSize the starting size of our table
      */
     public HashWords(int initialSize) {
-        this.size = initialSize;
-        this.table = new WordFrequency[size];
+        this(initialSize, new Fnv1aHasher());
+    }
+
+    /**
+     * Constructor for the class that hashes words with the given strategy,
+     * e.g. {@link AsciiSumHasher} for the original ASCII-sum behaviour.
+     * 
+     * @param initialSize the starting size of our table
+     * @param hasher the hash function used for every word
+     */
+    public HashWords(int initialSize, WordHasher hasher) {
+        this(initialSize, hasher, DEFAULT_MAX_LOAD_FACTOR, DEFAULT_GROWTH_FACTOR, false);
+    }
+
+    /**
+     * Constructor for the class with full control over growth.
+     * The table grows once the number of unique words reaches
+     * {@code maxLoadFactor * size()}, and the new size is
+     * {@code growthFactor * size()}.
+     * 
+     * <p>With {@code incrementalRehash} the old and new tables live side by side
+     * after a resize and every {@link #addWord(String) addWord()} or lookup moves
+     * at most {@value #REHASH_STEP} old slots, so no single call pays for the whole
+     * rehash.
+     * 
+     * @param initialSize the starting size of our table
+     * @param hasher the hash function used for every word
+     * @param maxLoadFactor the fraction of slots in use that triggers growth, in (0, 1]
+     * @param growthFactor how much larger the table becomes, greater than 1
+     * @param incrementalRehash true to spread each rehash over later calls
+     * @throws IllegalArgumentException if any of the sizes or factors is out of range
+     */
+    public HashWords(int initialSize, WordHasher hasher, double maxLoadFactor,
+            double growthFactor, boolean incrementalRehash) {
+        this(initialSize, hasher, ProbingStrategy.LINEAR, maxLoadFactor, growthFactor,
+                incrementalRehash);
+    }
+
+    /**
+     * Constructor for the class that resolves collisions with the given
+     * strategy and default hashing and growth.
+     * 
+     * @param initialSize the starting size of our table, rounded up to a power
+     *        of two for strategies other than {@link ProbingStrategy#LINEAR}
+     * @param probing the collision resolution strategy
+     */
+    public HashWords(int initialSize, ProbingStrategy probing) {
+        this(initialSize, new Fnv1aHasher(), probing, DEFAULT_MAX_LOAD_FACTOR,
+                DEFAULT_GROWTH_FACTOR, false);
+    }
+
+    /**
+     * Constructor for the class with every option.
+     * See {@link #HashWords(int, WordHasher, double, double, boolean)} for growth.
+     * 
+     * @param initialSize the starting size of our table, rounded up to a power
+     *        of two for strategies other than {@link ProbingStrategy#LINEAR}
+     * @param hasher the hash function used for every word
+     * @param probing the collision resolution strategy
+     * @param maxLoadFactor the fraction of slots in use that triggers growth, in (0, 1]
+     * @param growthFactor how much larger the table becomes, greater than 1
+     * @param incrementalRehash true to spread each rehash over later calls
+     * @throws IllegalArgumentException if any of the sizes or factors is out of range
+     */
+    public HashWords(int initialSize, WordHasher hasher, ProbingStrategy probing,
+            double maxLoadFactor, double growthFactor, boolean incrementalRehash) {
+        this(initialSize, initialSize, hasher, probing, maxLoadFactor, growthFactor,
+                incrementalRehash);
+    }
+
+    /**
+     * Constructor for a table that may shrink below its starting size, used
+     * by {@link #load(Path)} to restore a saved table.
+     * 
+     * @param initialSize the starting size of our table
+     * @param minSize the size the table never shrinks below, at most initialSize
+     * @param hasher the hash function used for every word
+     * @param probing the collision resolution strategy
+     * @param maxLoadFactor the fraction of slots in use that triggers growth
+     * @param growthFactor how much larger the table becomes
+     * @param incrementalRehash true to spread each rehash over later calls
+     * @throws IllegalArgumentException if any of the sizes or factors is out of range
+     */
+    private HashWords(int initialSize, int minSize, WordHasher hasher, ProbingStrategy probing,
+            double maxLoadFactor, double growthFactor, boolean incrementalRehash) {
+        if (initialSize < 1 || minSize < 1) {
+            throw new IllegalArgumentException("initialSize must be positive: " + initialSize);
+        }
+        if (!(maxLoadFactor > 0 && maxLoadFactor <= 1)) {
+            throw new IllegalArgumentException("maxLoadFactor must be in (0, 1]: " + maxLoadFactor);
+        }
+        if (!(growthFactor > 1)) {
+            throw new IllegalArgumentException("growthFactor must be above 1: " + growthFactor);
+        }
+        this.probing = probing;
+        this.size = tableSizeFor(initialSize);
+        this.minSize = Math.min(size, tableSizeFor(minSize));
+        this.hasher = hasher;
+        this.maxLoadFactor = maxLoadFactor;
+        this.growthFactor = growthFactor;
+        this.incrementalRehash = incrementalRehash;
+        this.keys = new String[size];
+        this.counts = new int[size];
+        this.hashes = new int[size];
+        this.ids = new int[size];
+        this.index = new TopKIndex(size);
     }
 
     /**
      * Returns the size of the table used internally.
      * When first created, this value
-     * should be equal to initialSize.
+     * should be equal to initialSize (rounded up to a power of two
+     * for the power-of-two probing strategies).
      * 
      * @return the size of table
      */
@@ -42,126 +255,929 @@ public class HashWords {
      * @return the hashkey value
      */
     public int hashKey(String w) {
-        String word = w.toLowerCase();
-        int hash = 0;
-        for (char c : word.toCharArray()) {
-            hash += (int) c; // Sum ASCII values
-        }
-        return hash % size;
+        return indexFor(hasher.hash(w), size);
     }
 
     /**
-     * Returns the WordFrequency object associated with a specific String.
+     * Rounds a requested size to one the probing strategy can use.
      * 
-     * @param w the word
-     * @return the WordFrequency object
+     * @param requested the wanted number of slots
+     * @return requested for linear probing, otherwise the next power of two
      */
-    private WordFrequency getUsingWord(String w) {
-        String word = w.toLowerCase();
-        int key = hashKey(word);
-        
-        while (table[key] != null) {
-            if (table[key].getWord().equals(w)) {
-                return table[key];
+    private int tableSizeFor(int requested) {
+        return probing.tableSizeFor(requested);
+    }
+
+    /**
+     * Maps a full hash onto a table with the given number of slots.
+     * 
+     * @param hash the full hash of a word
+     * @param tableSize the number of slots
+     * @return the home slot for that hash
+     */
+    private int indexFor(int hash, int tableSize) {
+        return probing.home(hash, tableSize);
+    }
+
+    /**
+     * Returns the slot to try after a collision.
+     * 
+     * @param key the slot just tried
+     * @param step the number of slots tried so far, starting at 1
+     * @param tableSize the number of slots
+     * @return the next slot
+     */
+    private int nextSlot(int key, int step, int tableSize) {
+        return probing.next(key, step, tableSize);
+    }
+
+    /**
+     * How far a word sits from its home slot, for Robin Hood hashing.
+     * 
+     * @param hash the full hash of the word
+     * @param key the slot it sits in
+     * @param tableSize the number of slots
+     * @return the number of slots between home and key
+     */
+    private int displacement(int hash, int key, int tableSize) {
+        return probing.displacement(hash, key, tableSize);
+    }
+
+    /**
+     * Returns the slot holding a specific word, or -1. Searches the current
+     * table, or the old table being drained during an incremental rehash.
+     * 
+     * @param slotKeys the keys of the table to search
+     * @param slotHashes the hashes of the table to search
+     * @param tableSize the number of slots in that table
+     * @param word the word, in any case
+     * @param hash the full hash of word
+     * @return the index of the word, or -1 if it is not there
+     */
+    private int find(String[] slotKeys, int[] slotHashes, int tableSize,
+            CharSequence word, int hash) {
+        int key = indexFor(hash, tableSize);
+
+        // Bounded, since an old table being drained may have no empty slot left
+        int step = 0;
+        for (; step < tableSize && slotKeys[key] != null; ) {
+            if (slotHashes[key] == hash && slotKeys[key] != DELETED
+                    && matches(slotKeys[key], word)) {
+                HashWordsStats.Recorder r = recorder;
+                if (r != null) {
+                    r.hit(step + 1);
+                }
+                return key;
             }
-            key = (key + 1) % size;  // Linear probing
+            if (probing == ProbingStrategy.ROBIN_HOOD
+                    && displacement(slotHashes[key], key, tableSize) < step) {
+                break;  // The word would have taken this slot
+            }
+            key = nextSlot(key, ++step, tableSize);
+        }
+        HashWordsStats.Recorder r = recorder;
+        if (r != null) {
+            r.miss(Math.min(step + 1, tableSize));
         }
-        return null;
+        return -1;
     }
 
     /**
-     * Returns the count of {@link WordFrequency WordFrequency} if the word (w)
+     * Returns the count of the word (w) if it
      * exists in the table, returns 0 otherwise.
-     * Note that the count is the value stored inside the {@link WordFrequency
-     * WordFrequency} object.
-     * Just find the word (w) in the table and then {@link WordFrequency#getCount()
-     * WordFrequency.getCount()} from that object and return the value.
+     * Counts past Integer.MAX_VALUE are returned as Integer.MAX_VALUE, see
+     * {@link #longFrequency(String)}.
      * 
      * @param w the word
      * @return the count of (w) if it exists in the table; otherwise, 0
      */
+    @Override
     public int frequency(String w) {
-        String word = w.toLowerCase();
-        WordFrequency wf = getUsingWord(word);
+        return frequency((CharSequence) w);
+    }
 
-        if (wf != null) {
-            return wf.getCount();
-        } else {
+    /**
+     * Same as {@link #frequency(String)} for any character sequence, e.g. a
+     * slice of a reused buffer. Case is folded while hashing and comparing,
+     * so the lookup allocates nothing.
+     * 
+     * @param w the word
+     * @return the count of (w) if it exists in the table; otherwise, 0
+     */
+    public int frequency(CharSequence w) {
+        return (int) Math.min(Integer.MAX_VALUE, longFrequency(w));
+    }
+
+    /**
+     * Returns the full count of the word (w), which may exceed
+     * {@code Integer.MAX_VALUE}.
+     * 
+     * @param w the word
+     * @return the count of (w) if it exists in the table; otherwise, 0
+     */
+    @Override
+    public long longFrequency(String w) {
+        return longFrequency((CharSequence) w);
+    }
+
+    /**
+     * Same as {@link #longFrequency(String)} for any character sequence.
+     * 
+     * @param w the word
+     * @return the count of (w) if it exists in the table; otherwise, 0
+     */
+    public long longFrequency(CharSequence w) {
+        return countHashed(w, hasher.hash(w));
+    }
+
+    /**
+     * Looks up a word whose hash is already known.
+     * 
+     * @param w the word
+     * @param hash the full hash of w
+     * @return the count of (w) if it exists in the table; otherwise, 0
+     */
+    private long countHashed(CharSequence w, int hash) {
+        rehashStep();
+        if (rejectedByBloom(hash)) {
             return 0;
         }
+
+        int key = find(keys, hashes, size, w, hash);
+        if (key >= 0) {
+            return overflow.countOf(counts[key]);
+        }
+        if (oldKeys != null) {
+            key = find(oldKeys, oldHashes, oldSize, w, hash);
+            if (key >= 0) {
+                return overflow.countOf(oldCounts[key]);
+            }
+        }
+        if (bloom != null) {
+            countBloomFalsePositive();
+        }
+        return 0;
+    }
+
+    /**
+     * Asks the Bloom filter, if there is one, whether a word can be in the
+     * table.
+     * 
+     * @param hash the full hash of the word
+     * @return true if the word is certainly not in the table
+     */
+    private boolean rejectedByBloom(int hash) {
+        if (bloom == null || bloom.mightContain(hash)) {
+            return false;
+        }
+        HashWordsStats.Recorder r = recorder;
+        if (r != null) {
+            r.bloomRejections++;
+        }
+        return true;
+    }
+
+    /**
+     * Counts a lookup of a missing word that the Bloom filter let through.
+     */
+    private void countBloomFalsePositive() {
+        HashWordsStats.Recorder r = recorder;
+        if (r != null) {
+            r.bloomFalsePositives++;
+        }
+    }
+
+    /**
+     * Returns the id of a word in the top-k index. A word keeps its id for
+     * as long as it is in the table, so callers can keep per-word data in
+     * arrays indexed by ids. Once a word is removed, by {@link #remove} or by
+     * {@link #decrement} to 0, its id is freed and may be handed to a word
+     * added later; data kept under it then belongs to that word.
+     * 
+     * @param w the word
+     * @return the id of the word, or -1 if it is not in the table
+     */
+    int idOf(CharSequence w) {
+        int hash = hasher.hash(w);
+        int key = find(keys, hashes, size, w, hash);
+        if (key >= 0) {
+            return ids[key];
+        }
+        if (oldKeys != null) {
+            key = find(oldKeys, oldHashes, oldSize, w, hash);
+            if (key >= 0) {
+                return oldIds[key];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns every word in the table, in slot order.
+     * 
+     * @return the lower-cased words
+     */
+    String[] words() {
+        finishRehash();
+        String[] words = new String[uniqueWordCount];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (isWord(keys[i])) {
+                words[n++] = keys[i];
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Passes every word and its count to a visitor, in slot order. The slots
+     * are read in place, so a walk over the table allocates nothing.
+     * The visitor may change counts but must not add or remove words.
+     * 
+     * @param visitor receives each word with its count
+     * @throws ConcurrentModificationException if words were added or removed
+     *         during the walk
+     */
+    public void forEach(WordCountVisitor visitor) {
+        finishRehash();
+        int expectedModCount = modCount;
+        for (int i = 0; i < size; i++) {
+            if (isWord(keys[i])) {
+                visitor.visit(keys[i], overflow.countOf(counts[i]));
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a cursor over the words of the table, for walks that need to
+     * stop early or keep their place between calls.
+     * 
+     * @return a cursor placed before the first word
+     */
+    public Cursor cursor() {
+        finishRehash();
+        return new Cursor();
+    }
+
+    /**
+     * Returns a spliterator over the words of the table as
+     * {@link WordFrequency} objects, one created per word. It splits the slot
+     * range in halves, so a parallel stream can spread a large table over
+     * several cores. The table must not be changed while it is traversed.
+     * 
+     * @return a spliterator that is SIZED until it is split
+     */
+    public Spliterator<WordFrequency> spliterator() {
+        finishRehash();
+        return new SlotSpliterator(0, size, modCount, uniqueWordCount);
+    }
+
+    /**
+     * Returns a sequential stream over the words of the table; call
+     * {@code parallel()} on it to aggregate over several cores.
+     * 
+     * @return a stream of words with their counts
+     * @see #spliterator()
+     */
+    public Stream<WordFrequency> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Takes an immutable snapshot of the table for serving queries. The
+     * snapshot uses a minimal perfect hash function, so it has no empty
+     * slots and answers each lookup with one probe; it is smaller than this
+     * table and safe to share between threads. Later changes to this table
+     * do not show in the snapshot.
+     * 
+     * @return the frozen table
+     */
+    public FrozenHashWords freeze() {
+        String[] words = new String[uniqueWordCount];
+        long[] wordCounts = new long[uniqueWordCount];
+        int[] n = {0};
+        forEach((word, count) -> {
+            words[n[0]] = word;
+            wordCounts[n[0]++] = count;
+        });
+        return new FrozenHashWords(words, wordCounts, totalWordsCount, mostCommonWord());
     }
 
     /**
      * Adds a word to the table. If the word already exists, increase it's frequency
-     * using
-     * {@link WordFrequency#increment() WordFrequency.increment()}
+     * in place.
      * 
      * @param w the word
      */
+    @Override
     public void addWord(String w) {
-        String word = w.toLowerCase();
-        int key = hashKey(word);
+        addWord((CharSequence) w);
+    }
+
+    /**
+     * Same as {@link #addWord(String)} for any character sequence, e.g. a
+     * slice of a reused buffer. Case is folded while hashing and comparing;
+     * a lower-cased String is only created when the word is new to the table.
+     * 
+     * @param w the word
+     */
+    public void addWord(CharSequence w) {
+        addCount(w, 1);
+    }
+
+    /**
+     * Adds count occurrences of a word at once, e.g. counts read from another
+     * source.
+     * 
+     * @param w the word
+     * @param count the number of occurrences
+     * @throws IllegalArgumentException if count is less than 1
+     */
+    public void addWord(CharSequence w, long count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive: " + count);
+        }
+        addCount(w, count);
+    }
+
+    /**
+     * Adds a run of words, as if each one were passed to
+     * {@link #addWord(String) addWord()}. The words are hashed
+     * {@value #BATCH} at a time in a tight loop before any of them is
+     * probed, then each one is probed once with its hash; see
+     * BatchBenchmark for what that buys over one call per word.
+     * 
+     * @param words the words
+     * @param from the index of the first word to add
+     * @param to the index after the last word to add
+     * @throws IllegalArgumentException if the range is not within words
+     */
+    public void addWords(String[] words, int from, int to) {
+        if (from < 0 || from > to || to > words.length) {
+            throw new IllegalArgumentException("Range [" + from + ", " + to
+                    + ") is not within " + words.length + " words");
+        }
+        int[] batch = new int[Math.min(BATCH, to - from)];
+        for (int start = from; start < to; start += BATCH) {
+            int end = Math.min(to, start + BATCH);
+            hashBatch(words, start, end, batch);
+            for (int i = start; i < end; i++) {
+                addHashed(words[i], batch[i - start], 1);
+            }
+        }
+    }
+
+    /**
+     * Looks up many words, hashing them ahead of probing as
+     * {@link #addWords(String[], int, int)} does.
+     * 
+     * @param words the words
+     * @return the count of each word, as {@link #frequency(String)} returns it
+     */
+    public int[] frequencies(String[] words) {
+        int[] frequencies = new int[words.length];
+        int[] batch = new int[Math.min(BATCH, words.length)];
+        for (int start = 0; start < words.length; start += BATCH) {
+            int end = Math.min(words.length, start + BATCH);
+            hashBatch(words, start, end, batch);
+            for (int i = start; i < end; i++) {
+                frequencies[i] = (int) Math.min(Integer.MAX_VALUE,
+                        countHashed(words[i], batch[i - start]));
+            }
+        }
+        return frequencies;
+    }
+
+    /**
+     * Hashes a batch of words.
+     * 
+     * @param words the words
+     * @param start the index of the first word of the batch
+     * @param end the index after the last word of the batch
+     * @param batch receives the hash of words[start + i] at i
+     */
+    private void hashBatch(String[] words, int start, int end, int[] batch) {
+        for (int i = start; i < end; i++) {
+            batch[i - start] = hasher.hash(words[i]);
+        }
+    }
+
+    /**
+     * Adds count occurrences of a word at once.
+     * 
+     * @param w the word
+     * @param count the number of occurrences, at least 1
+     */
+    private void addCount(CharSequence w, long count) {
+        addHashed(w, hasher.hash(w), count);
+    }
+
+    /**
+     * Adds one occurrence of a word, as {@link #addWord(CharSequence)} does,
+     * and returns its id, saving a second lookup with {@link #idOf}.
+     * 
+     * @param w the word
+     * @return the id of the word in the top-k index
+     */
+    int addWordForId(CharSequence w) {
+        return addHashed(w, hasher.hash(w), 1);
+    }
+
+    /**
+     * Returns the count of the word with an id handed out by {@link #idOf},
+     * without looking the word up again.
+     * 
+     * @param id the id of a word in the table
+     * @return its count
+     */
+    long countOf(int id) {
+        return index.count(id);
+    }
+
+    /**
+     * Returns the word with an id handed out by {@link #idOf}.
+     * 
+     * @param id the id of a word in the table
+     * @return the lower-cased word
+     */
+    String wordOf(int id) {
+        return index.word(id);
+    }
+
+    /**
+     * Adds count occurrences of a word whose hash is already known.
+     * 
+     * @param w the word
+     * @param hash the full hash of w
+     * @param count the number of occurrences, at least 1
+     * @return the id of the word in the top-k index
+     */
+    private int addHashed(CharSequence w, int hash, long count) {
+        rehashStep();
         
-        totalWordsCount++;
+        totalWordsCount += count;
 
-        while (table[key] != null) {
-            if (table[key].getWord().equals(word)) {
-                table[key].increment();  // Word found, increment count
-                return;
+        // A new word the filter rules out goes straight to an empty slot
+        if (!rejectedByBloom(hash)) {
+            int key = find(keys, hashes, size, w, hash);
+            if (key >= 0) {
+                counts[key] = overflow.add(counts[key], count);  // Word found, increment count
+                index.increment(ids[key], count);
+                return ids[key];
+            }
+
+            if (oldKeys != null) {
+                int oldKey = find(oldKeys, oldHashes, oldSize, w, hash);
+                if (oldKey >= 0) {
+                    // Not moved yet, the copy happens later
+                    oldCounts[oldKey] = overflow.add(oldCounts[oldKey], count);
+                    index.increment(oldIds[oldKey], count);
+                    return oldIds[oldKey];
+                }
+            }
+            if (bloom != null) {
+                countBloomFalsePositive();
             }
-            key = (key + 1) % size;  // Linear probing
         }
 
-        table[key] = new WordFrequency(word);
+        String word = foldCase(w);
+        int id = index.add(word, count);
+        reinsertWord(word, overflow.add(0, count), hash, id);
+        if (bloom != null) {
+            bloom.add(hash);
+        }
         uniqueWordCount++;
+        modCount++;
 
         if (isFull()) {
             growAndRehash();
         }
+        return id;
+    }
+
+    /**
+     * Takes one occurrence of a word away. A word whose count drops to 0 is
+     * removed, as by {@link #remove(String)}.
+     * 
+     * @param w the word
+     * @return the count of (w) afterwards; 0 if it was removed or was not there
+     */
+    public long decrement(String w) {
+        int key = findForUpdate(w);
+        if (key < 0) {
+            return 0;
+        }
+        totalWordsCount--;
+        long count = overflow.countOf(counts[key]) - 1;
+        if (count > 0) {
+            counts[key] = overflow.subtract(counts[key], 1);
+            index.decrement(ids[key], 1);
+            return count;
+        }
+        deleteSlot(key);
+        return 0;
+    }
+
+    /**
+     * Removes a word with all of its occurrences.
+     * 
+     * @param w the word
+     * @return the count (w) had; 0 if it was not there
+     */
+    public long remove(String w) {
+        int key = findForUpdate(w);
+        if (key < 0) {
+            return 0;
+        }
+        long count = overflow.countOf(counts[key]);
+        totalWordsCount -= count;
+        deleteSlot(key);
+        return count;
+    }
+
+    /**
+     * Finds a word in the current table after finishing any rehash in flight,
+     * so that the slot can be changed without an old table to keep in sync.
+     * 
+     * @param w the word
+     * @return its slot, or -1 if it is not there
+     */
+    private int findForUpdate(CharSequence w) {
+        finishRehash();
+        return find(keys, hashes, size, w, hasher.hash(w));
+    }
+
+    /**
+     * Empties the slot of a word and shrinks or cleans the table if needed.
+     * 
+     * @param key the slot of the word being removed
+     */
+    private void deleteSlot(int key) {
+        modCount++;
+        index.remove(ids[key]);
+        overflow.release(counts[key]);
+        uniqueWordCount--;
+        if (probing == ProbingStrategy.TRIANGULAR) {
+            keys[key] = DELETED;
+            counts[key] = 0;
+            hashes[key] = 0;
+            tombstones++;
+        } else {
+            backwardShift(key);
+        }
+
+        if (OpenAddressing.shouldShrink(size, minSize, uniqueWordCount, maxLoadFactor)) {
+            resize(OpenAddressing.shrunkSize(minSize, uniqueWordCount, maxLoadFactor), false);
+            finishRehash();
+        } else if (tombstones > size / 8) {
+            resize(size, false);
+            finishRehash();
+        }
+    }
+
+    /**
+     * Closes the gap left by a removed word: each following word of the
+     * cluster that may sit in the gap is moved back into it, leaving a new
+     * gap where it was, until an empty slot ends the cluster.
+     * 
+     * @param hole the slot of the removed word
+     */
+    private void backwardShift(int hole) {
+        for (int key = nextSlot(hole, 1, size); keys[key] != null; key = nextSlot(key, 1, size)) {
+            boolean movable;
+            if (probing == ProbingStrategy.ROBIN_HOOD) {
+                // Robin Hood keeps clusters ordered, so the shift stops at the first word at home
+                if (displacement(hashes[key], key, size) == 0) {
+                    break;
+                }
+                movable = true;
+            } else {
+                movable = OpenAddressing.mayShiftBack(indexFor(hashes[key], size), key, hole, size);
+            }
+            if (movable) {
+                keys[hole] = keys[key];
+                counts[hole] = counts[key];
+                hashes[hole] = hashes[key];
+                ids[hole] = ids[key];
+                hole = key;
+            }
+        }
+        keys[hole] = null;
+        counts[hole] = 0;
+        hashes[hole] = 0;
+        ids[hole] = 0;
+    }
+
+    /**
+     * Adds every word of another table to this one, as if each of its words
+     * had been passed to {@link #addWord(String) addWord()} here. Used to
+     * combine tables counted in parallel over parts of the same text; the
+     * other table is not changed. If both tables record stats, the counters
+     * of the other table are added to the ones here.
+     * 
+     * @param other the table to add
+     */
+    public void merge(HashWords other) {
+        other.finishRehash();
+        for (int i = 0; i < other.size; i++) {
+            if (isWord(other.keys[i])) {
+                addCount(other.keys[i], other.overflow.countOf(other.counts[i]));
+            }
+        }
+        HashWordsStats.Recorder mine = recorder;
+        HashWordsStats.Recorder theirs = other.recorder;
+        if (mine != null && theirs != null) {
+            mine.add(theirs);
+        }
+    }
+
+    /**
+     * Writes the table to a binary snapshot in the format described in
+     * {@link MappedHashWords}. Slots are saved in table order with their
+     * cached hashes, so loading needs no rehashing.
+     * 
+     * @param file the file to write, replaced if it exists
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the table uses a hasher other than
+     *         {@link Fnv1aHasher} or {@link AsciiSumHasher}
+     */
+    public void save(Path file) throws IOException {
+        int hasherId = MappedHashWords.hasherId(hasher);
+        finishRehash();
+        if (tombstones > 0) {
+            resize(size, false);  // A tombstone saved as an empty slot would cut probe chains
+            finishRehash();
+        }
+
+        // Encode the words first, so each slot knows its offset in the string area
+        byte[][] encoded = new byte[size][];
+        int[] offsets = new int[size];
+        int offset = 0;
+        for (int i = 0; i < size; i++) {
+            offsets[i] = -1;
+            if (isWord(keys[i])) {
+                encoded[i] = keys[i].getBytes(StandardCharsets.UTF_8);
+                offsets[i] = offset;
+                offset += 4 + encoded[i].length;
+            }
+        }
+        String common = mostCommonWord();
+        int commonSlot = common == null ? -1 : find(keys, hashes, size, common, hasher.hash(common));
+
+        // Number the overflow counts in slot order, skipping freed entries
+        int[] slotCounts = counts.clone();
+        long[] overflowed = new long[overflow.live()];
+        int overflowCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (slotCounts[i] < 0) {
+                overflowed[overflowCount] = overflow.countOf(slotCounts[i]);
+                slotCounts[i] = ~overflowCount++;
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MappedHashWords.MAGIC);
+            out.writeInt(MappedHashWords.VERSION);
+            out.writeInt(hasherId);
+            out.writeInt(probing.ordinal());
+            out.writeDouble(maxLoadFactor);
+            out.writeDouble(growthFactor);
+            out.writeInt(incrementalRehash ? MappedHashWords.FLAG_INCREMENTAL_REHASH : 0);
+            out.writeInt(size);
+            out.writeInt(uniqueWordCount);
+            out.writeLong(totalWordsCount);
+            out.writeInt(commonSlot);
+            out.writeInt(overflowCount);
+            out.writeInt(minSize);
+            for (int i = 0; i < size; i++) {
+                out.writeInt(hashes[i]);
+                out.writeInt(slotCounts[i]);
+                out.writeInt(offsets[i]);
+            }
+            for (long count : overflowed) {
+                out.writeLong(count);
+            }
+            for (int i = 0; i < size; i++) {
+                if (encoded[i] != null) {
+                    out.writeInt(encoded[i].length);
+                    out.write(encoded[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot written by {@link #save(Path)} back into a table that
+     * can keep counting. The file is memory-mapped and the words are inserted
+     * in file order with their saved hashes, into a table of the saved size
+     * and minimum size, so this takes time proportional to the file size, not
+     * to the number of words originally counted.
+     * 
+     * @param file the snapshot
+     * @return a table with the saved words, counts and settings
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static HashWords load(Path file) throws IOException {
+        MappedHashWords snapshot = MappedHashWords.open(file);
+        HashWords table = new HashWords(snapshot.size(), snapshot.minSize(), snapshot.hasher(),
+                snapshot.probing(), snapshot.maxLoadFactor(), snapshot.growthFactor(),
+                snapshot.incrementalRehash());
+
+        int n = snapshot.numUniqueWordsInTable();
+        String[] words = new String[n];
+        long[] wordCounts = new long[n];
+        int[] wordHashes = new int[n];
+        int found = 0;
+        for (int i = 0; i < snapshot.size() && found < n; i++) {
+            long count = snapshot.countAt(i);
+            if (count > 0) {
+                words[found] = snapshot.keyAt(i);
+                wordCounts[found] = count;
+                wordHashes[found++] = snapshot.hashAt(i);
+            }
+        }
+        if (found != n) {
+            throw new IOException("Snapshot holds " + found + " words, not " + n);
+        }
+        int[] wordIds = table.index.addAll(words, wordCounts);
+        for (int j = 0; j < n; j++) {
+            table.reinsertWord(words[j], table.overflow.add(0, wordCounts[j]),
+                    wordHashes[j], wordIds[j]);
+        }
+        table.uniqueWordCount = n;
+        table.totalWordsCount = snapshot.longTotalNumOfWords();
+        return table;
     }
 
     /**
-     * Checks if the table's #elements equals it's max size.
+     * Checks if the table has reached its maximum load factor.
      * 
      * @return true if the table is full of unique words; otherwise, false
      */
     private boolean isFull() {
-        return uniqueWordCount >= size;
+        return uniqueWordCount + tombstones >= size * maxLoadFactor;
+    }
+
+    /**
+     * Does this slot key hold a word, rather than nothing or a tombstone?
+     * 
+     * @param key the key of a slot
+     * @return true for a word
+     */
+    private static boolean isWord(String key) {
+        return key != null && key != DELETED;
     }
 
     /**
      * Function for handling the resizing and rehashing of the table.
+     * In incremental mode this only allocates the new table; the entries
+     * are moved by {@link #rehashStep()} on later calls.
      */
     private void growAndRehash() {
-        WordFrequency[] oldTable = table;
+        resize(OpenAddressing.grownSize(size, growthFactor), true);
+        if (!incrementalRehash) {
+            finishRehash();
+        }
+    }
 
-        // Increase the size of the table
-        size *= 3;
-        table = new WordFrequency[size];
+    /**
+     * Replaces the table with an empty one of about newSize slots, and makes
+     * the current one the old table to be drained. Only growth is counted
+     * in the stats; shrinking and rebuilding in place are not.
+     * 
+     * @param newSize the wanted number of slots
+     * @param grow true if the table is growing because it is full
+     */
+    private void resize(int newSize, boolean grow) {
+        finishRehash();  // At most one rehash in flight
+        modCount++;
+        growing = grow;
+        HashWordsStats.Recorder r = grow ? recorder : null;
+        long start = r != null ? System.nanoTime() : 0;
+        oldKeys = keys;
+        oldCounts = counts;
+        oldHashes = hashes;
+        oldIds = ids;
+        oldSize = size;
+        rehashIndex = 0;
 
-        // Rehash all old entries into the new table
-        for (WordFrequency wf : oldTable) {
-            reinsertWord(wf);
+        size = tableSizeFor(newSize);
+        keys = new String[size];
+        counts = new int[size];
+        hashes = new int[size];
+        ids = new int[size];
+        tombstones = 0;  // Left behind in the old table
+        if (bloom != null) {
+            rebuildBloomFilter();  // Sized for the new table, without removed words
+        }
+        if (r != null) {
+            r.rehashCount++;
+            r.rehashNanos += System.nanoTime() - start;
         }
     }
 
     /**
-     * Function for reinserting a word into the table after we create a new one.
-     * 
-     * @param wf the WordFrequency object to be reinserted
+     * Moves up to {@value #REHASH_STEP} slots of the old table into the new one.
+     * Old slots are left in place so probe chains there stay intact for words
+     * that have not been moved yet.
      */
-    private void reinsertWord(WordFrequency wf) {
-        int key = hashKey(wf.getWord());
+    private void rehashStep() {
+        if (oldKeys != null) {
+            moveOldSlots(Math.min(oldSize, rehashIndex + REHASH_STEP));
+        }
+    }
+
+    /**
+     * Moves every remaining slot of the old table, if a rehash is in progress.
+     */
+    private void finishRehash() {
+        if (oldKeys != null) {
+            moveOldSlots(oldSize);
+        }
+    }
 
-        // Linear probing to resolve collisions
-        while (table[key] != null) {
-            key = (key + 1) % size;  // Keep probing to find an empty slot
+    /**
+     * Copies old slots up to (but excluding) end into the current table,
+     * and drops the old table once it has been fully copied.
+     * 
+     * @param end the old slot index to stop at
+     */
+    private void moveOldSlots(int end) {
+        HashWordsStats.Recorder r = growing ? recorder : null;
+        long start = r != null ? System.nanoTime() : 0;
+        for (; rehashIndex < end; rehashIndex++) {
+            if (isWord(oldKeys[rehashIndex])) {
+                reinsertWord(oldKeys[rehashIndex], oldCounts[rehashIndex],
+                        oldHashes[rehashIndex], oldIds[rehashIndex]);
+            }
+        }
+        if (rehashIndex == oldSize) {
+            oldKeys = null;
+            oldCounts = null;
+            oldHashes = null;
+            oldIds = null;
         }
+        if (r != null) {
+            r.rehashNanos += System.nanoTime() - start;
+        }
+    }
 
-        table[key] = wf;  // Insert the word at available position
+    /**
+     * Returns whether an incremental rehash is still moving words.
+     * 
+     * @return true if an old table is still being drained
+     */
+    boolean isRehashing() {
+        return oldKeys != null;
     }
 
+    /**
+     * Function for inserting a word that is not in the current table, either
+     * a new word or one being moved after we create a new table.
+     * The cached hash is reused, so the word itself is never rehashed.
+     * With Robin Hood hashing, the word takes the slot of the first word that
+     * sits closer to its home, and that word is carried on instead.
+     * 
+     * @param word the word to be inserted
+     * @param count its slot count, inline or ~i for an overflow count
+     * @param hash its full hash
+     * @param id its id in the top-k index
+     */
+    private void reinsertWord(String word, int count, int hash, int id) {
+        int key = indexFor(hash, size);
+
+        // Probe to resolve collisions
+        for (int step = 0; keys[key] != null; ) {
+            if (probing == ProbingStrategy.ROBIN_HOOD) {
+                int existing = displacement(hashes[key], key, size);
+                if (existing < step) {
+                    String k = keys[key];
+                    int c = counts[key];
+                    int h = hashes[key];
+                    int i = ids[key];
+                    keys[key] = word;
+                    counts[key] = count;
+                    hashes[key] = hash;
+                    ids[key] = id;
+                    word = k;
+                    count = c;
+                    hash = h;
+                    id = i;
+                    step = existing;
+                }
+            }
+            key = nextSlot(key, ++step, size);  // Keep probing to find an empty slot
+        }
 
+        keys[key] = word;  // Insert the word at available position
+        counts[key] = count;
+        hashes[key] = hash;
+        ids[key] = id;
+    }
 
     /**
      * Does this hash table contain this word (w)?
@@ -169,8 +1185,64 @@ public class HashWords {
      * @param w the word
      * @return true if word is in table; otherwise, false
      */
+    @Override
     public boolean contains(String w) {
-        return getUsingWord(w.toLowerCase()) != null;
+        return frequency(w) > 0;
+    }
+
+    /**
+     * Same as {@link #contains(String)} for any character sequence.
+     * 
+     * @param w the word
+     * @return true if word is in table; otherwise, false
+     */
+    public boolean contains(CharSequence w) {
+        return frequency(w) > 0;
+    }
+
+    /**
+     * Compares a stored (lower-cased) key with a word in any case, without
+     * allocating. Case is folded one char at a time with
+     * {@link Character#toLowerCase(char)}, which ignores the default locale.
+     * 
+     * @param key the stored key
+     * @param w the word
+     * @return true if w folds to key
+     */
+    static boolean matches(String key, CharSequence w) {
+        int length = key.length();
+        if (length != w.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(i) != Character.toLowerCase(w.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lower-cases a word the same way {@link #matches(String, CharSequence)}
+     * does. A String that is already lower case is returned as is.
+     * 
+     * @param w the word
+     * @return the lower-cased word
+     */
+    static String foldCase(CharSequence w) {
+        int length = w.length();
+        int i = 0;
+        while (i < length && Character.toLowerCase(w.charAt(i)) == w.charAt(i)) {
+            i++;
+        }
+        if (i == length && w instanceof String) {
+            return (String) w;
+        }
+        char[] folded = new char[length];
+        for (int j = 0; j < length; j++) {
+            folded[j] = Character.toLowerCase(w.charAt(j));
+        }
+        return new String(folded);
     }
 
     /**
@@ -179,6 +1251,7 @@ public class HashWords {
      * 
      * @return the sum of all of the UNIQUE words in the table
      */
+    @Override
     public int numUniqueWordsInTable() {
         return uniqueWordCount;
     }
@@ -187,27 +1260,277 @@ public class HashWords {
      * Total number of words is computed on-the-go inside the
      * {@link HashWords#addWord(String) addWord()} function.
      * 
-     * @return the sum of all of the word counts in the table
+     * @return the sum of all of the word counts in the table, at most
+     *         Integer.MAX_VALUE
      */
+    @Override
     public int totalNumOfWords() {
+        return (int) Math.min(Integer.MAX_VALUE, totalWordsCount);
+    }
+
+    /**
+     * Same as {@link #totalNumOfWords()} without the limit.
+     * 
+     * @return the sum of all of the word counts in the table
+     */
+    @Override
+    public long longTotalNumOfWords() {
         return totalWordsCount;
     }
 
+    /**
+     * Average number of slots inspected to find a word that is in the table.
+     * A word sitting in its home slot costs one probe; each step of
+     * probing past it adds one more. Computed by scanning the whole table.
+     * 
+     * @return the mean probe length over all words, or 0 for an empty table
+     */
+    public double averageProbeLength() {
+        finishRehash();
+        if (uniqueWordCount == 0) {
+            return 0.0;
+        }
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            if (isWord(keys[i])) {
+                total += probeLength(i);
+            }
+        }
+        return (double) total / uniqueWordCount;
+    }
+
+    /**
+     * Longest number of slots inspected to find any word in the table.
+     * 
+     * @return the maximum probe length, or 0 for an empty table
+     */
+    public int maxProbeLength() {
+        finishRehash();
+        int max = 0;
+        for (int i = 0; i < size; i++) {
+            if (isWord(keys[i])) {
+                max = Math.max(max, probeLength(i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Counts how many words need each number of probes to be found.
+     * 
+     * @return an array where element p is the number of words found on the
+     *         p-th slot tried; element 0 is always 0
+     */
+    public int[] probeLengthHistogram() {
+        int[] histogram = new int[maxProbeLength() + 1];
+        for (int i = 0; i < size; i++) {
+            if (isWord(keys[i])) {
+                histogram[probeLength(i)]++;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Number of probes needed to reach the word stored at slot.
+     * 
+     * @param slot an occupied slot
+     * @return the number of slots tried from the word's home slot to slot
+     */
+    private int probeLength(int slot) {
+        int key = indexFor(hashes[slot], size);
+        int probes = 1;
+        while (key != slot) {
+            key = nextSlot(key, probes++, size);
+        }
+        return probes;
+    }
+
+    /**
+     * Turns collection of rehash and probe counters on or off. Turning it on
+     * starts from zero; turning it off drops the counters.
+     * 
+     * @param enabled true to collect counters from now on
+     */
+    public void setStatsEnabled(boolean enabled) {
+        if (!enabled) {
+            recorder = null;
+        } else if (recorder == null) {
+            recorder = new HashWordsStats.Recorder();
+        }
+    }
+
+    /**
+     * Turns the Bloom filter in front of lookups on or off. While it is on,
+     * most lookups of words that are not in the table are answered without
+     * reading a slot, and adding a new word skips the search for it. The
+     * filter costs about {@value BlockedBloomFilter#BITS_PER_WORD} bits per
+     * word the table can hold, and one hash-and-test per lookup of a word
+     * that is in the table. It pays off when most lookups miss. With stats
+     * enabled, {@link HashWordsStats#bloomFalsePositiveRate()} reports how
+     * often it let a missing word through.
+     * 
+     * @param enabled true to filter lookups from now on
+     */
+    public void setBloomFilterEnabled(boolean enabled) {
+        if (!enabled) {
+            bloom = null;
+        } else if (bloom == null) {
+            rebuildBloomFilter();
+        }
+    }
+
+    /**
+     * Is the Bloom filter in front of lookups on?
+     * 
+     * @return true after setBloomFilterEnabled(true)
+     */
+    public boolean isBloomFilterEnabled() {
+        return bloom != null;
+    }
+
+    /**
+     * Builds a filter for every word in the current and old tables, sized
+     * for the most words the current table holds before it grows.
+     */
+    private void rebuildBloomFilter() {
+        BlockedBloomFilter filter = new BlockedBloomFilter((int) (size * maxLoadFactor) + 1);
+        for (int i = 0; i < size; i++) {
+            if (isWord(keys[i])) {
+                filter.add(hashes[i]);
+            }
+        }
+        if (oldKeys != null) {
+            for (int i = rehashIndex; i < oldSize; i++) {
+                if (isWord(oldKeys[i])) {
+                    filter.add(oldHashes[i]);
+                }
+            }
+        }
+        bloom = filter;
+    }
+
+    /**
+     * Are rehash and probe counters being collected?
+     * 
+     * @return true after setStatsEnabled(true)
+     */
+    public boolean isStatsEnabled() {
+        return recorder != null;
+    }
+
+    /**
+     * Takes a snapshot of the table's statistics. Does not change the table,
+     * so it may be called from a monitoring thread, though the numbers are
+     * only approximate while another thread is adding words.
+     * 
+     * @return the current statistics
+     */
+    public HashWordsStats stats() {
+        HashWordsStats.Recorder r = recorder;
+        String[] slotKeys = keys;
+        int unique = uniqueWordCount;
+        return new HashWordsStats((double) unique / slotKeys.length,
+                longestCluster(slotKeys), estimatedBytes(slotKeys),
+                r != null ? r.rehashCount : 0, r != null ? r.rehashNanos : 0,
+                r != null ? r.copyOfHits() : new long[HashWordsStats.HISTOGRAM_BUCKETS],
+                r != null ? r.copyOfMisses() : new long[HashWordsStats.HISTOGRAM_BUCKETS],
+                r != null ? r.bloomRejections : 0, r != null ? r.bloomFalsePositives : 0);
+    }
+
+    /**
+     * Finds the longest run of occupied slots, wrapping around the end.
+     * 
+     * @param slotKeys the keys of the table
+     * @return the length of the longest run
+     */
+    private static int longestCluster(String[] slotKeys) {
+        int n = slotKeys.length;
+        int start = 0;
+        while (start < n && slotKeys[start] != null) {
+            start++;
+        }
+        if (start == n) {
+            return n;  // Every slot is in use
+        }
+
+        // Walk once around the table from an empty slot, so runs that wrap are whole
+        int longest = 0;
+        int run = 0;
+        for (int i = 1; i <= n; i++) {
+            if (slotKeys[(start + i) % n] != null) {
+                longest = Math.max(longest, ++run);
+            } else {
+                run = 0;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Estimates the heap retained by the table, assuming 16-byte array
+     * headers, 4-byte references and Latin-1 compact strings.
+     * 
+     * @param slotKeys the keys of the table
+     * @return the estimated size in bytes
+     */
+    private long estimatedBytes(String[] slotKeys) {
+        long bytes = 4 * (16 + 4L * slotKeys.length);   // keys, counts, hashes, ids
+        bytes += overflow.estimatedBytes();
+        String[] old = oldKeys;
+        if (old != null) {
+            bytes += 4 * (16 + 4L * old.length);
+        }
+        for (String k : slotKeys) {
+            if (isWord(k)) {
+                bytes += 24 + align(16 + k.length());   // String plus its byte[]
+            }
+        }
+        BlockedBloomFilter filter = bloom;
+        if (filter != null) {
+            bytes += filter.estimatedBytes();
+        }
+        return bytes + index.estimatedBytes();
+    }
+
+    /**
+     * Rounds an object size up to the 8-byte allocation granularity.
+     * 
+     * @param bytes the unaligned size
+     * @return the aligned size
+     */
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
     /**
      * Finds the most common word in the table.
+     * Ties are broken alphabetically, so the answer does not depend on where
+     * the words happen to sit in the table (e.g. after a {@link #merge(HashWords)}).
+     * The answer is kept up to date by {@link #addWord(String) addWord()}, so this
+     * does not scan the table.
      * 
      * @return the word with the highest appearance in the table
      */
+    @Override
     public String mostCommonWord() {
-        String word = null;
-        int count = 0;
-        for (WordFrequency wf : table) {
-            if (wf != null && wf.getCount() > count) {
-                count = wf.getCount();
-                word = wf.getWord();
-            }
+        return index.mostCommon();
+    }
+
+    /**
+     * Returns the k most common words with their counts, highest count first
+     * and alphabetical among equal counts. Runs in O(k) rather than scanning
+     * the table, apart from ordering words that share a count.
+     * 
+     * @param k the number of words wanted
+     * @return the min(k, numUniqueWordsInTable()) most common words
+     * @throws IllegalArgumentException if k is negative
+     */
+    public WordFrequency[] topK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
         }
-        return word;
+        return index.top(k);
     }
 
     /**
@@ -220,8 +1543,9 @@ public class HashWords {
      * @return the result of frequency(w) / totalNumOfWords(). If the word w is not
      *         on the table, this method returns 0
      */
+    @Override
     public double termFrequency(String w) {
-        int wordFrequency = frequency(w.toLowerCase());
+        long wordFrequency = longFrequency(w);
 
         if (totalWordsCount > 0) {
             return (double) wordFrequency / totalWordsCount;
@@ -229,4 +1553,167 @@ public class HashWords {
             return 0.0;
         }
     }
+
+    /**
+     * Walks the words of a table in slot order without allocating:
+     * <pre>
+     * HashWords.Cursor cursor = table.cursor();
+     * while (cursor.next()) {
+     *     use(cursor.word(), cursor.count());
+     * }
+     * </pre>
+     * Counts may change during the walk, but adding or removing words ends it.
+     */
+    public final class Cursor {
+        private final int expectedModCount = modCount;
+        private int slot = -1;
+
+        /**
+         * Creates a cursor placed before the first slot.
+         */
+        private Cursor() {
+        }
+
+        /**
+         * Moves to the next word.
+         * 
+         * @return true if there is one, false once every word was visited
+         * @throws ConcurrentModificationException if words were added or
+         *         removed since the cursor was created
+         */
+        public boolean next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            while (++slot < size) {
+                if (isWord(keys[slot])) {
+                    return true;
+                }
+            }
+            slot = size;
+            return false;
+        }
+
+        /**
+         * Returns the word the cursor is on.
+         * 
+         * @return the lower-cased word
+         * @throws IllegalStateException if {@link #next()} has not returned true
+         */
+        public String word() {
+            return keys[current()];
+        }
+
+        /**
+         * Returns the count of the word the cursor is on.
+         * 
+         * @return its count
+         * @throws IllegalStateException if {@link #next()} has not returned true
+         */
+        public long count() {
+            return overflow.countOf(counts[current()]);
+        }
+
+        /**
+         * Checks that the cursor is on a word.
+         * 
+         * @return its slot
+         */
+        private int current() {
+            if (slot < 0 || slot >= size) {
+                throw new IllegalStateException("The cursor is not on a word");
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * Spliterator over a range of slots. Splitting halves the range; only the
+     * unsplit spliterator knows exactly how many words are left.
+     */
+    private final class SlotSpliterator implements Spliterator<WordFrequency> {
+        // Ranges smaller than this are not worth a task of their own
+        private static final int MIN_SPLIT_SLOTS = 1024;
+
+        private int slot;
+        private final int fence;
+        private final int expectedModCount;
+        private int remaining;  // Words left, or -1 once split
+
+        /**
+         * Creates a spliterator over slots [origin, fence).
+         * 
+         * @param origin the first slot
+         * @param fence the slot after the last one
+         * @param expectedModCount the modCount the table must keep
+         * @param remaining the number of words in the range, or -1 if unknown
+         */
+        SlotSpliterator(int origin, int fence, int expectedModCount, int remaining) {
+            this.slot = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super WordFrequency> action) {
+            while (slot < fence) {
+                int i = slot++;
+                if (isWord(keys[i])) {
+                    action.accept(new WordFrequency(keys[i], overflow.countOf(counts[i])));
+                    if (remaining > 0) {
+                        remaining--;
+                    }
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super WordFrequency> action) {
+            while (slot < fence) {
+                int i = slot++;
+                if (isWord(keys[i])) {
+                    action.accept(new WordFrequency(keys[i], overflow.countOf(counts[i])));
+                    // Stop at once: after a resize the slots left may not exist
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                }
+            }
+            remaining = 0;
+        }
+
+        @Override
+        public Spliterator<WordFrequency> trySplit() {
+            int mid = (slot + fence) >>> 1;
+            if (mid - slot < MIN_SPLIT_SLOTS) {
+                return null;
+            }
+            SlotSpliterator prefix = new SlotSpliterator(slot, mid, expectedModCount, -1);
+            slot = mid;
+            remaining = -1;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            if (remaining >= 0) {
+                return remaining;
+            }
+            return (long) uniqueWordCount * (fence - slot) / Math.max(1, size);
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL | (remaining >= 0 ? SIZED : 0);
+        }
+    }
 }
@@ -0,0 +1,75 @@
+/**
+ * JMX view of a {@link HashWords} table, registered with
+ * {@link HashWordsMonitor#register(HashWords, String)}. The attributes
+ * other than the size and word counts are read from a
+ * {@link HashWords#stats()} snapshot that the monitor reuses for a short
+ * while. All attributes are read-only.
+ * 
+ * @author Zander Polk
+ */
+public interface HashWordsMXBean {
+    /**
+     * @return the number of slots in the table
+     */
+    int getSize();
+
+    /**
+     * @return the number of distinct words
+     */
+    int getUniqueWords();
+
+    /**
+     * @return the number of words counted
+     */
+    int getTotalWords();
+
+    /**
+     * @return unique words divided by slots
+     */
+    double getLoadFactor();
+
+    /**
+     * @return the longest run of occupied slots
+     */
+    int getLongestCluster();
+
+    /**
+     * @return the estimated heap retained by the table, in bytes
+     */
+    long getEstimatedBytes();
+
+    /**
+     * @return true if rehash and probe counters are being collected
+     */
+    boolean isStatsEnabled();
+
+    /**
+     * @return the number of times the table grew while stats were enabled
+     */
+    long getRehashCount();
+
+    /**
+     * @return the time spent growing the table while stats were enabled, in milliseconds
+     */
+    double getRehashMillis();
+
+    /**
+     * @return the mean probe length of lookups that found their word
+     */
+    double getAverageHitProbes();
+
+    /**
+     * @return the mean probe length of lookups that did not
+     */
+    double getAverageMissProbes();
+
+    /**
+     * @return searches that found their word, by probe length
+     */
+    long[] getHitProbeHistogram();
+
+    /**
+     * @return searches that did not, by probe length
+     */
+    long[] getMissProbeHistogram();
+}
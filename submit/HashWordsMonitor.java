@@ -0,0 +1,150 @@
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Publishes the statistics of a live {@link HashWords} table as JMX
+ * attributes, so they can be watched with JConsole or VisualVM while the
+ * table is in use. Reading an attribute never changes the table, and the
+ * view is read-only: whether stats are collected is chosen by the owner of
+ * the table, on the thread that uses it.
+ * 
+ * <p>{@link HashWords#stats()} scans the whole table, so the attributes
+ * other than the size and word counts come from one snapshot that is reused
+ * until it is {@link #DEFAULT_MAX_AGE_MILLIS} old. A JConsole refresh of every
+ * attribute scans the table at most once. The table is not thread-safe, so
+ * values read while it is being written are approximate.
+ * 
+ * @author Zander Polk
+ */
+public class HashWordsMonitor implements HashWordsMXBean {
+    /** How long a stats snapshot is reused by default, in milliseconds. */
+    public static final long DEFAULT_MAX_AGE_MILLIS = 1000;
+
+    private final HashWords table;
+    private final long maxAgeNanos;
+    private HashWordsStats snapshot;
+    private long takenAt;
+
+    /**
+     * Creates a monitor for a table that reuses each snapshot for
+     * {@link #DEFAULT_MAX_AGE_MILLIS}.
+     * 
+     * @param table the table to report on
+     */
+    public HashWordsMonitor(HashWords table) {
+        this(table, DEFAULT_MAX_AGE_MILLIS);
+    }
+
+    /**
+     * Creates a monitor for a table.
+     * 
+     * @param table the table to report on
+     * @param maxAgeMillis how long a stats snapshot is reused; 0 for a new one
+     *        on every read
+     * @throws IllegalArgumentException if maxAgeMillis is negative
+     */
+    public HashWordsMonitor(HashWords table, long maxAgeMillis) {
+        if (maxAgeMillis < 0) {
+            throw new IllegalArgumentException("maxAgeMillis must not be negative: "
+                    + maxAgeMillis);
+        }
+        this.table = table;
+        this.maxAgeNanos = maxAgeMillis * 1_000_000;
+    }
+
+    /**
+     * Returns the current snapshot, taking a new one if it is too old.
+     * 
+     * @return the stats of the table
+     */
+    private synchronized HashWordsStats stats() {
+        long now = System.nanoTime();
+        if (snapshot == null || now - takenAt >= maxAgeNanos) {
+            snapshot = table.stats();
+            takenAt = now;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Registers a monitor for the table with the platform MBean server under
+     * {@code HashWords:name=<name>}.
+     * 
+     * @param table the table to report on
+     * @param name the name of the table in JMX
+     * @return the name the monitor was registered under
+     * @throws JMException if the name is taken or invalid
+     */
+    public static ObjectName register(HashWords table, String name) throws JMException {
+        ObjectName objectName = new ObjectName("HashWords", "name", name);
+        ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(new HashWordsMonitor(table), objectName);
+        return objectName;
+    }
+
+    @Override
+    public int getSize() {
+        return table.size();
+    }
+
+    @Override
+    public int getUniqueWords() {
+        return table.numUniqueWordsInTable();
+    }
+
+    @Override
+    public int getTotalWords() {
+        return table.totalNumOfWords();
+    }
+
+    @Override
+    public double getLoadFactor() {
+        return stats().loadFactor();
+    }
+
+    @Override
+    public int getLongestCluster() {
+        return stats().longestCluster();
+    }
+
+    @Override
+    public long getEstimatedBytes() {
+        return stats().estimatedBytes();
+    }
+
+    @Override
+    public boolean isStatsEnabled() {
+        return table.isStatsEnabled();
+    }
+
+    @Override
+    public long getRehashCount() {
+        return stats().rehashCount();
+    }
+
+    @Override
+    public double getRehashMillis() {
+        return stats().rehashNanos() / 1e6;
+    }
+
+    @Override
+    public double getAverageHitProbes() {
+        return stats().averageHitProbes();
+    }
+
+    @Override
+    public double getAverageMissProbes() {
+        return stats().averageMissProbes();
+    }
+
+    @Override
+    public long[] getHitProbeHistogram() {
+        return stats().hitProbeHistogram();
+    }
+
+    @Override
+    public long[] getMissProbeHistogram() {
+        return stats().missProbeHistogram();
+    }
+}
@@ -0,0 +1,66 @@
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the HashWordsMonitor class.
+ */
+public class HashWordsMonitorTest {
+    private HashWords table;
+
+    /**
+     * Setup method, creates a table with a few words.
+     */
+    @Before
+    public void setup() {
+        table = new HashWords(16);
+        table.addWord("one");
+        table.addWord("two");
+    }
+
+    /**
+     * Test that one snapshot serves every attribute until it is too old.
+     */
+    @Test
+    public void testSnapshotReused() {
+        HashWordsMonitor cached = new HashWordsMonitor(table, 60_000);
+        HashWordsMonitor fresh = new HashWordsMonitor(table, 0);
+        double before = cached.getLoadFactor();
+        assertEquals("Same at first", before, fresh.getLoadFactor(), 0.0);
+        table.addWord("three");
+        assertEquals("Snapshot reused", before, cached.getLoadFactor(), 0.0);
+        assertTrue("New snapshot", fresh.getLoadFactor() > before);
+        assertEquals("Word counts read directly", 3, cached.getUniqueWords());
+    }
+
+    /**
+     * Test that the registered bean has no writable attribute.
+     * 
+     * @throws JMException if the bean cannot be registered
+     */
+    @Test
+    public void testReadOnly() throws JMException {
+        ObjectName name = HashWordsMonitor.register(table, "monitor-test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (MBeanAttributeInfo attribute : server.getMBeanInfo(name).getAttributes()) {
+                assertFalse(attribute.getName() + " is writable", attribute.isWritable());
+            }
+            assertEquals("Attribute read", 2, server.getAttribute(name, "UniqueWords"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    /**
+     * Test that a negative snapshot age is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeAge() {
+        new HashWordsMonitor(table, -1);
+    }
+}
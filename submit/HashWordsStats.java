@@ -0,0 +1,246 @@
+import java.util.Arrays;
+
+/**
+ * Snapshot of how a {@link HashWords} table is behaving, returned by
+ * {@link HashWords#stats()}.
+ * 
+ * <p>The load factor, longest cluster and memory estimate are always filled
+ * in. The rehash and probe counters are only collected while
+ * {@link HashWords#setStatsEnabled(boolean) stats are enabled}, and are 0
+ * otherwise. So are the Bloom filter counters, which also need
+ * {@link HashWords#setBloomFilterEnabled(boolean) the filter}.
+ * 
+ * @author Zander Polk
+ */
+public final class HashWordsStats {
+    /** Number of probe-length buckets; the last one holds every longer probe. */
+    public static final int HISTOGRAM_BUCKETS = 64;
+
+    private final double loadFactor;
+    private final int longestCluster;
+    private final long estimatedBytes;
+    private final long rehashCount;
+    private final long rehashNanos;
+    private final long[] hitProbes;
+    private final long[] missProbes;
+    private final long bloomRejections;
+    private final long bloomFalsePositives;
+
+    /**
+     * Creates a snapshot.
+     * 
+     * @param loadFactor unique words divided by slots
+     * @param longestCluster the longest run of occupied slots
+     * @param estimatedBytes the estimated heap retained by the table
+     * @param rehashCount the number of times the table grew
+     * @param rehashNanos the time spent growing and moving words into the grown table
+     * @param hitProbes lookups that found their word, by probe length
+     * @param missProbes lookups that did not, by probe length
+     * @param bloomRejections lookups the Bloom filter answered alone
+     * @param bloomFalsePositives lookups it let through for missing words
+     */
+    HashWordsStats(double loadFactor, int longestCluster, long estimatedBytes,
+            long rehashCount, long rehashNanos, long[] hitProbes, long[] missProbes,
+            long bloomRejections, long bloomFalsePositives) {
+        this.loadFactor = loadFactor;
+        this.longestCluster = longestCluster;
+        this.estimatedBytes = estimatedBytes;
+        this.rehashCount = rehashCount;
+        this.rehashNanos = rehashNanos;
+        this.hitProbes = hitProbes;
+        this.missProbes = missProbes;
+        this.bloomRejections = bloomRejections;
+        this.bloomFalsePositives = bloomFalsePositives;
+    }
+
+    /**
+     * Returns the fraction of slots holding a word.
+     * 
+     * @return unique words divided by the table size
+     */
+    public double loadFactor() {
+        return loadFactor;
+    }
+
+    /**
+     * Returns the longest run of consecutive occupied slots, wrapping around
+     * the end of the table.
+     * 
+     * @return the longest cluster, in slots
+     */
+    public int longestCluster() {
+        return longestCluster;
+    }
+
+    /**
+     * Returns an estimate of the heap kept alive by the table: its slot
+     * arrays, its words and its top-k index. Assumes compressed references
+     * and compact (Latin-1) strings.
+     * 
+     * @return the estimated size in bytes
+     */
+    public long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Returns how many times the table has grown. Shrinking after removals
+     * and rebuilding in place, to clear tombstones or before a save, are not
+     * counted.
+     * 
+     * @return the number of times the table grew
+     */
+    public long rehashCount() {
+        return rehashCount;
+    }
+
+    /**
+     * Returns the time spent growing the table and moving words into the
+     * grown table, including the steps of an incremental rehash. Like
+     * {@link #rehashCount()}, other rebuilds are left out.
+     * 
+     * @return the cumulative rehash time in nanoseconds
+     */
+    public long rehashNanos() {
+        return rehashNanos;
+    }
+
+    /**
+     * Returns how many searches found their word after each number of probes.
+     * During an incremental rehash one lookup may search both tables, and
+     * each search is counted.
+     * 
+     * @return element p counts searches that took p probes; element 0 is
+     *         always 0 and the last element also counts longer searches
+     */
+    public long[] hitProbeHistogram() {
+        return hitProbes.clone();
+    }
+
+    /**
+     * Returns how many searches gave up after each number of probes.
+     * 
+     * @return element p counts searches that took p probes, as for
+     *         {@link #hitProbeHistogram()}
+     */
+    public long[] missProbeHistogram() {
+        return missProbes.clone();
+    }
+
+    /**
+     * Returns the mean probe length of searches that found their word.
+     * 
+     * @return the average, or 0 if none were recorded
+     */
+    public double averageHitProbes() {
+        return average(hitProbes);
+    }
+
+    /**
+     * Returns the mean probe length of searches that did not find their word.
+     * 
+     * @return the average, or 0 if none were recorded
+     */
+    public double averageMissProbes() {
+        return average(missProbes);
+    }
+
+    /**
+     * Returns how many lookups of missing words the Bloom filter answered
+     * without reading the table. These are not in the miss histogram.
+     * 
+     * @return the number of lookups turned away
+     */
+    public long bloomRejections() {
+        return bloomRejections;
+    }
+
+    /**
+     * Returns how many lookups of missing words passed the Bloom filter and
+     * had to search the table anyway.
+     * 
+     * @return the number of false positives
+     */
+    public long bloomFalsePositives() {
+        return bloomFalsePositives;
+    }
+
+    /**
+     * Returns the measured false-positive rate of the Bloom filter: the
+     * fraction of lookups of missing words that it let through.
+     * 
+     * @return the rate, or 0 if no missing word was looked up
+     */
+    public double bloomFalsePositiveRate() {
+        long misses = bloomRejections + bloomFalsePositives;
+        return misses > 0 ? (double) bloomFalsePositives / misses : 0.0;
+    }
+
+    /**
+     * Averages a probe-length histogram.
+     * 
+     * @param histogram searches by probe length
+     * @return the mean probe length, or 0 for an empty histogram
+     */
+    private static double average(long[] histogram) {
+        long searches = 0;
+        long probes = 0;
+        for (int p = 0; p < histogram.length; p++) {
+            searches += histogram[p];
+            probes += p * histogram[p];
+        }
+        return searches > 0 ? (double) probes / searches : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        String stats = String.format("load %.2f, longest cluster %d, ~%d bytes,"
+                + " %d rehashes in %.3f ms, avg hit probes %.2f, avg miss probes %.2f",
+                loadFactor, longestCluster, estimatedBytes, rehashCount, rehashNanos / 1e6,
+                averageHitProbes(), averageMissProbes());
+        if (bloomRejections + bloomFalsePositives > 0) {
+            stats += String.format(", bloom rejected %d misses, false positive rate %.4f",
+                    bloomRejections, bloomFalsePositiveRate());
+        }
+        return stats;
+    }
+
+    /**
+     * Counters filled in by a table while stats are enabled.
+     */
+    static final class Recorder {
+        long rehashCount;
+        long rehashNanos;
+        long bloomRejections;
+        long bloomFalsePositives;
+        final long[] hitProbes = new long[HISTOGRAM_BUCKETS];
+        final long[] missProbes = new long[HISTOGRAM_BUCKETS];
+
+        void hit(int probes) {
+            hitProbes[Math.min(probes, HISTOGRAM_BUCKETS - 1)]++;
+        }
+
+        void miss(int probes) {
+            missProbes[Math.min(probes, HISTOGRAM_BUCKETS - 1)]++;
+        }
+
+        long[] copyOfHits() {
+            return Arrays.copyOf(hitProbes, HISTOGRAM_BUCKETS);
+        }
+
+        long[] copyOfMisses() {
+            return Arrays.copyOf(missProbes, HISTOGRAM_BUCKETS);
+        }
+
+        void add(Recorder other) {
+            rehashCount += other.rehashCount;
+            rehashNanos += other.rehashNanos;
+            bloomRejections += other.bloomRejections;
+            bloomFalsePositives += other.bloomFalsePositives;
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                hitProbes[i] += other.hitProbes[i];
+                missProbes[i] += other.missProbes[i];
+            }
+        }
+    }
+}
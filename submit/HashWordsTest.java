@@ -1,3 +1,13 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 import org.junit.*;
 import static org.junit.Assert.*;
 
@@ -9,13 +19,48 @@ import static org.junit.Assert.*;
 public class HashWordsTest {
     private HashWords hashWords;
 
+    /**
+     * The collision resolution strategy under test. Subclasses run the whole
+     * suite again with another strategy.
+     * 
+     * @return the strategy every table in this suite uses
+     */
+    protected ProbingStrategy probing() {
+        return ProbingStrategy.LINEAR;
+    }
+
+    /**
+     * Creates a table with the strategy under test.
+     * 
+     * @param initialSize the starting size of the table
+     * @return an empty table
+     */
+    protected HashWords newTable(int initialSize) {
+        return new HashWords(initialSize, probing());
+    }
+
+    /**
+     * Creates a table with the strategy under test and the given growth.
+     * 
+     * @param initialSize the starting size of the table
+     * @param maxLoadFactor the fraction of slots in use that triggers growth
+     * @param growthFactor how much larger the table becomes
+     * @param incremental true to spread each rehash over later calls
+     * @return an empty table
+     */
+    protected HashWords newTable(int initialSize, double maxLoadFactor, double growthFactor,
+            boolean incremental) {
+        return new HashWords(initialSize, new Fnv1aHasher(), probing(), maxLoadFactor,
+                growthFactor, incremental);
+    }
+
     /**
      * Setup method, runs before each test method.
      * Initializes a new HashWords instance with an initial size of 10.
      */
     @Before
     public void setup() {
-        hashWords = new HashWords(10);
+        hashWords = newTable(10);
     }
 
     /**
@@ -131,7 +176,7 @@ public class HashWordsTest {
      */
     @Test
     public void testTermFrequencyForMissingWord() {
-        HashWords hashWords = new HashWords(10);
+        HashWords hashWords = newTable(10);
         hashWords.addWord("hello");
         hashWords.addWord("world");
 
@@ -145,7 +190,7 @@ public class HashWordsTest {
      */
     @Test
     public void testTotalWordsCountAfterRehash() {
-        HashWords hashWords = new HashWords(3);
+        HashWords hashWords = newTable(3);
 
         hashWords.addWord("12");
         hashWords.addWord("32");
@@ -162,7 +207,7 @@ public class HashWordsTest {
      */
     @Test
     public void testTermFrequencyWhenNoWordsAdded() {
-        HashWords hashWords = new HashWords(10);
+        HashWords hashWords = newTable(10);
         double termFrequency = hashWords.termFrequency("");
 
         assertEquals(
@@ -244,7 +289,7 @@ public class HashWordsTest {
      */
     @Test
     public void testGrowAndRehashWithNullEntries() {
-        HashWords hashWords = new HashWords(5);
+        HashWords hashWords = newTable(5);
 
         // Add some words but not enough to fill the table
         hashWords.addWord("cat");
@@ -270,9 +315,876 @@ public class HashWordsTest {
      */
     @Test
     public void testEmptyHashWords() {
-        HashWords emptyHashWords = new HashWords(10);
+        HashWords emptyHashWords = newTable(10);
         assertEquals("Table has size 0", 0, emptyHashWords.numUniqueWordsInTable());
         assertFalse("Table will not contain words", emptyHashWords.contains("test!"));
     }
     
+    /**
+     * Test that the ASCII-sum hasher still puts anagrams on the same key.
+     */
+    @Test
+    public void testAsciiSumHasherKeepsLegacyKeys() {
+        HashWords legacy = new HashWords(10, new AsciiSumHasher());
+        assertEquals("Anagrams share a key with the ASCII-sum hash",
+                legacy.hashKey("abc"), legacy.hashKey("cab"));
+        assertEquals("Key is the ASCII sum modulo the size", 294 % 10, legacy.hashKey("abc"));
+    }
+
+    /**
+     * Test that a custom hasher is used for every word.
+     */
+    @Test
+    public void testCustomHasher() {
+        HashWords constant = new HashWords(10, word -> 7);
+        constant.addWord("one");
+        constant.addWord("two");
+        constant.addWord("three");
+
+        assertEquals("Every word hashes to slot 7", 7, constant.hashKey("anything"));
+        assertEquals("Frequency of 'two' should be 1", 1, constant.frequency("two"));
+        assertEquals("Third word needs three probes", 3, constant.maxProbeLength());
+        assertEquals("Average probe length is 2", 2.0, constant.averageProbeLength(), 0.0001);
+    }
+
+    /**
+     * Test probe lengths on an empty table and with a single word.
+     */
+    @Test
+    public void testProbeLengths() {
+        assertEquals("Empty table has no probes", 0, hashWords.maxProbeLength());
+        assertEquals("Empty table has no probes", 0.0, hashWords.averageProbeLength(), 0.0001);
+
+        hashWords.addWord("solo");
+        assertEquals("Single word sits in its home slot", 1, hashWords.maxProbeLength());
+        assertEquals("Single word sits in its home slot",
+                1.0, hashWords.averageProbeLength(), 0.0001);
+    }
+
+    /**
+     * Test that the default hash clusters less than the ASCII sum on anagrams.
+     */
+    @Test
+    public void testDefaultHasherSpreadsAnagrams() {
+        HashWords legacy = new HashWords(1000, new AsciiSumHasher());
+        HashWords mixed = new HashWords(1000);
+        String[] anagrams = {"abcd", "abdc", "acbd", "acdb", "adbc", "adcb",
+            "bacd", "badc", "bcad", "bcda", "bdac", "bdca"};
+        for (String w : anagrams) {
+            legacy.addWord(w);
+            mixed.addWord(w);
+        }
+        assertEquals("Legacy hash chains all anagrams", anagrams.length, legacy.maxProbeLength());
+        assertTrue("Default hash spreads the anagrams", mixed.maxProbeLength() < 4);
+    }
+
+    /**
+     * Test that the table grows once the maximum load factor is reached.
+     */
+    @Test
+    public void testMaxLoadFactorAndGrowthFactor() {
+        HashWords half = new HashWords(10, new Fnv1aHasher(), 0.5, 3.0, false);
+        for (int i = 0; i < 4; i++) {
+            half.addWord("w" + i);
+        }
+        assertEquals("Four words stay below half of 10 slots", 10, half.size());
+
+        half.addWord("w4");
+        assertEquals("Fifth word reaches half and triples the table", 30, half.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("Words survive the rehash", 1, half.frequency("w" + i));
+        }
+    }
+
+    /**
+     * Test that invalid growth settings are rejected.
+     */
+    @Test
+    public void testInvalidGrowthSettings() {
+        try {
+            new HashWords(10, new Fnv1aHasher(), 1.5, 2.0, false);
+            fail("Load factor above 1 should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new HashWords(10, new Fnv1aHasher(), 0.75, 1.0, false);
+            fail("Growth factor of 1 should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new HashWords(0);
+            fail("Empty table should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Test that counts stay correct while an incremental rehash is in progress.
+     */
+    @Test
+    public void testIncrementalRehash() {
+        HashWords incremental = newTable(64, 1.0, 2.0, true);
+        for (int i = 0; i < 64; i++) {
+            incremental.addWord("word" + i);
+        }
+        assertTrue("Filling the table starts a rehash", incremental.isRehashing());
+        assertEquals("Table has doubled", 128, incremental.size());
+
+        // Repeat words that have not been moved yet, and look up missing ones
+        for (int i = 0; i < 64; i++) {
+            incremental.addWord("WORD" + i);
+            assertFalse("Missing word is not found", incremental.contains("none" + i));
+        }
+        assertFalse("Rehash finishes after enough calls", incremental.isRehashing());
+        for (int i = 0; i < 64; i++) {
+            assertEquals("Every word was counted twice", 2, incremental.frequency("word" + i));
+        }
+        assertEquals("Number of unique words should be 64", 64, incremental.numUniqueWordsInTable());
+        assertEquals("Total number of words should be 128", 128, incremental.totalNumOfWords());
+    }
+
+    /**
+     * Test that incremental and one-shot rehashing give the same counts.
+     */
+    @Test
+    public void testIncrementalMatchesOneShotRehash() {
+        HashWords incremental = newTable(3, 0.75, 1.5, true);
+        HashWords oneShot = newTable(3, 0.75, 1.5, false);
+        for (int i = 0; i < 5000; i++) {
+            String w = "w" + (i * 7919 % 1237);
+            incremental.addWord(w);
+            oneShot.addWord(w);
+        }
+        assertEquals("Same number of unique words",
+                oneShot.numUniqueWordsInTable(), incremental.numUniqueWordsInTable());
+        assertEquals("Same most common word",
+                oneShot.mostCommonWord(), incremental.mostCommonWord());
+        for (int i = 0; i < 1237; i++) {
+            assertEquals("Same frequency", oneShot.frequency("w" + i), incremental.frequency("w" + i));
+        }
+    }
+
+    /**
+     * Test adding and looking up words held in a reused buffer.
+     */
+    @Test
+    public void testCharSequenceLookups() {
+        StringBuilder buffer = new StringBuilder();
+        for (String w : new String[] {"Apple", "APPLE", "pear"}) {
+            buffer.setLength(0);
+            buffer.append(w);
+            hashWords.addWord(buffer);
+        }
+        buffer.setLength(0);
+        buffer.append("aPpLe");
+
+        assertEquals("Frequency of 'apple' should be 2", 2, hashWords.frequency(buffer));
+        assertTrue("Contains 'aPpLe' should be true", hashWords.contains(buffer));
+        assertEquals("Frequency of 'pear' should be 1", 1, hashWords.frequency("PEAR"));
+        assertEquals("Number of unique words should be 2", 2, hashWords.numUniqueWordsInTable());
+    }
+
+    /**
+     * Test that a word that is already lower case is stored without a copy.
+     */
+    @Test
+    public void testLowerCaseWordIsStoredAsIs() {
+        String word = new String("unique");
+        hashWords.addWord(word);
+        assertSame("Lower-case word is not copied", word, hashWords.mostCommonWord());
+
+        HashWords mixed = newTable(10);
+        mixed.addWord("Mixed");
+        assertEquals("Mixed-case word is stored lower-cased", "mixed", mixed.mostCommonWord());
+    }
+
+    /**
+     * Test that case folding does not depend on the default locale.
+     */
+    @Test
+    public void testCaseFoldingIgnoresLocale() {
+        Locale saved = Locale.getDefault();
+        try {
+            // In Turkish, "I".toLowerCase() is a dotless i
+            Locale.setDefault(new Locale("tr", "TR"));
+            hashWords.addWord("TITLE");
+            hashWords.addWord("title");
+            assertEquals("Frequency of 'title' should be 2", 2, hashWords.frequency("Title"));
+            assertEquals("Number of unique words should be 1", 1, hashWords.numUniqueWordsInTable());
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+
+    /**
+     * Test merging two tables counted over different parts of a text.
+     */
+    @Test
+    public void testMerge() {
+        HashWords first = newTable(3);
+        HashWords second = newTable(50);
+        for (String w : "the cat and the hat".split(" ")) {
+            first.addWord(w);
+            hashWords.addWord(w);
+        }
+        for (String w : "THE bat and a cat".split(" ")) {
+            second.addWord(w);
+            hashWords.addWord(w);
+        }
+        first.merge(second);
+
+        assertEquals("Total number of words should be 10", 10, first.totalNumOfWords());
+        assertEquals("Number of unique words should be 6", 6, first.numUniqueWordsInTable());
+        assertEquals("Frequency of 'the' should be 3", 3, first.frequency("the"));
+        assertEquals("Frequency of 'bat' should be 1", 1, first.frequency("bat"));
+        assertEquals("Merged table matches one table fed everything",
+                hashWords.termFrequency("cat"), first.termFrequency("cat"), 0.0);
+        assertEquals("Other table is unchanged", 5, second.totalNumOfWords());
+    }
+
+    /**
+     * Test that ties for the most common word are broken alphabetically.
+     */
+    @Test
+    public void testMostCommonWordTieBreak() {
+        hashWords.addWord("pear");
+        hashWords.addWord("apple");
+        hashWords.addWord("zebra");
+        hashWords.addWord("Pear");
+        hashWords.addWord("apple");
+        assertEquals("Tie between 'apple' and 'pear'", "apple", hashWords.mostCommonWord());
+    }
+
+    /**
+     * Test the k most common words.
+     */
+    @Test
+    public void testTopK() {
+        assertEquals("Empty table has no top words", 0, hashWords.topK(3).length);
+        for (String w : "b a c a b a d".split(" ")) {
+            hashWords.addWord(w);
+        }
+        WordFrequency[] top = hashWords.topK(3);
+        assertEquals("Three words asked for", 3, top.length);
+        assertEquals("First is 'a'", "a", top[0].getWord());
+        assertEquals("'a' was seen 3 times", 3, top[0].getCount());
+        assertEquals("Second is 'b'", "b", top[1].getWord());
+        assertEquals("Tie between 'c' and 'd' goes to 'c'", "c", top[2].getWord());
+        assertEquals("Only four words exist", 4, hashWords.topK(10).length);
+    }
+
+    /**
+     * Test that the top words stay correct through rehashing and merging.
+     */
+    @Test
+    public void testTopKAfterRehashAndMerge() {
+        HashWords incremental = newTable(2, 1.0, 2.0, true);
+        HashWords other = newTable(2);
+        for (int i = 0; i < 300; i++) {
+            incremental.addWord("w" + (i % 40));
+            other.addWord("w" + (i % 7));
+        }
+        incremental.merge(other);
+
+        WordFrequency[] top = incremental.topK(8);
+        for (int i = 0; i < 7; i++) {
+            assertEquals("Merged words lead", "w" + i, top[i].getWord());
+            assertEquals("Merged counts", incremental.frequency("w" + i), top[i].getCount());
+        }
+        assertEquals("Most common word", top[0].getWord(), incremental.mostCommonWord());
+    }
+
+    /**
+     * Test the probe-length histogram.
+     */
+    @Test
+    public void testProbeLengthHistogram() {
+        assertArrayEquals("Empty table", new int[] {0}, hashWords.probeLengthHistogram());
+
+        HashWords constant = new HashWords(16, word -> 5, probing(), 0.75, 2.0, false);
+        constant.addWord("one");
+        constant.addWord("two");
+        constant.addWord("three");
+        assertArrayEquals("One word per probe length",
+                new int[] {0, 1, 1, 1}, constant.probeLengthHistogram());
+        assertEquals("All three words found", 3, constant.frequency("one")
+                + constant.frequency("two") + constant.frequency("three"));
+    }
+
+    /**
+     * Test the statistics snapshot with counters off and on.
+     */
+    @Test
+    public void testStats() {
+        HashWords table = newTable(4, 0.75, 2.0, false);
+        assertFalse("Counters start off", table.isStatsEnabled());
+        table.addWord("alpha");
+        table.addWord("beta");
+        HashWordsStats off = table.stats();
+        assertEquals("Load factor", 2.0 / table.size(), off.loadFactor(), 1e-9);
+        assertEquals("No rehash counted while off", 0, off.rehashCount());
+        assertEquals("No probes counted while off", 0.0, off.averageHitProbes(), 0.0);
+        assertTrue("Memory estimate", off.estimatedBytes() > 0);
+
+        table.setStatsEnabled(true);
+        for (int i = 0; i < 100; i++) {
+            table.addWord("w" + i);
+        }
+        assertTrue("Found", table.contains("w7"));
+        assertFalse("Not found", table.contains("missing"));
+        HashWordsStats on = table.stats();
+        assertTrue("Rehashes counted", on.rehashCount() > 0);
+        assertTrue("Rehash time counted", on.rehashNanos() > 0);
+        assertTrue("Hits counted", sum(on.hitProbeHistogram()) >= 1);
+        assertTrue("Misses counted", sum(on.missProbeHistogram()) >= 101);
+        assertTrue("Hits take a probe", on.averageHitProbes() >= 1.0);
+        assertTrue("Longest cluster", on.longestCluster() >= 1
+                && on.longestCluster() <= table.numUniqueWordsInTable());
+        assertTrue("Memory grows with the table", on.estimatedBytes() > off.estimatedBytes());
+
+        table.setStatsEnabled(false);
+        assertEquals("Counters dropped", 0, table.stats().rehashCount());
+    }
+
+    /**
+     * Test that only growth is counted as a rehash, not shrinking after
+     * removals or rebuilding in place.
+     */
+    @Test
+    public void testOnlyGrowthCounted() {
+        HashWords table = newTable(4, 0.75, 2.0, false);
+        table.setStatsEnabled(true);
+        int grown = 0;
+        for (int i = 0; i < 1000; i++) {
+            int size = table.size();
+            table.addWord("w" + i);
+            if (table.size() > size) {
+                grown++;
+            }
+        }
+        assertEquals("Each growth counted", grown, table.stats().rehashCount());
+        for (int i = 0; i < 990; i++) {
+            table.remove("w" + i);
+        }
+        assertTrue("Shrunk", table.size() < 64);
+        assertEquals("Shrinking not counted", grown, table.stats().rehashCount());
+    }
+
+    /**
+     * Test that the Bloom filter does not change any answer, while words are
+     * added, moved by an incremental rehash and removed.
+     */
+    @Test
+    public void testBloomFilter() {
+        HashWords filtered = newTable(8, 0.75, 2.0, true);
+        HashWords plain = newTable(8, 0.75, 2.0, true);
+        filtered.addWord("before");
+        plain.addWord("before");
+        filtered.setBloomFilterEnabled(true);
+        assertTrue("Filter on", filtered.isBloomFilterEnabled());
+        for (int i = 0; i < 2000; i++) {
+            String w = "w" + (i * 7 % 500);
+            filtered.addWord(w);
+            plain.addWord(w);
+            assertEquals("Word just added", plain.frequency(w), filtered.frequency(w));
+            assertEquals("Word not added", 0, filtered.frequency("x" + i));
+        }
+        assertEquals("Word added before the filter", 1, filtered.frequency("before"));
+        for (int i = 0; i < 500; i += 3) {
+            filtered.remove("w" + i);
+            plain.remove("w" + i);
+            filtered.decrement("w" + (i + 1));
+            plain.decrement("w" + (i + 1));
+        }
+        filtered.addWord("w0");
+        plain.addWord("w0");
+        for (int i = 0; i < 600; i++) {
+            assertEquals("w" + i, plain.frequency("w" + i), filtered.frequency("w" + i));
+        }
+        assertEquals("Unique words", plain.numUniqueWordsInTable(),
+                filtered.numUniqueWordsInTable());
+        assertEquals("Total", plain.totalNumOfWords(), filtered.totalNumOfWords());
+
+        filtered.setBloomFilterEnabled(false);
+        assertFalse("Filter off", filtered.isBloomFilterEnabled());
+        assertEquals("Still found", plain.frequency("w7"), filtered.frequency("w7"));
+    }
+
+    /**
+     * Test the Bloom filter counters in the statistics.
+     */
+    @Test
+    public void testBloomFilterStats() {
+        HashWords table = newTable(16);
+        table.setStatsEnabled(true);
+        table.setBloomFilterEnabled(true);
+        for (int i = 0; i < 1000; i++) {
+            table.addWord("w" + i);
+        }
+        long bytesWithFilter = table.stats().estimatedBytes();
+        for (int i = 0; i < 10_000; i++) {
+            assertFalse("Missing word", table.contains("x" + i));
+        }
+        assertTrue("Present word", table.contains("w5"));
+        HashWordsStats stats = table.stats();
+        assertEquals("Every miss counted once, new words included", 11_000,
+                stats.bloomRejections() + stats.bloomFalsePositives());
+        assertTrue("Most misses rejected: " + stats, stats.bloomFalsePositiveRate() < 0.05);
+        assertTrue("Present words are not false positives", stats.bloomRejections() > 10_000);
+
+        table.setBloomFilterEnabled(false);
+        assertTrue("Filter counted in the memory estimate",
+                table.stats().estimatedBytes() < bytesWithFilter);
+    }
+
+    /**
+     * Test the longest cluster when every word collides.
+     */
+    @Test
+    public void testLongestCluster() {
+        HashWords constant = new HashWords(16, word -> 5, probing(), 0.75, 2.0, false);
+        assertEquals("Empty table", 0, constant.stats().longestCluster());
+        constant.addWord("one");
+        constant.addWord("two");
+        constant.addWord("three");
+        int expected = probing() == ProbingStrategy.TRIANGULAR ? 2 : 3;
+        assertEquals("Colliding words", expected, constant.stats().longestCluster());
+    }
+
+    /**
+     * Adds up a histogram.
+     * 
+     * @param histogram counts per bucket
+     * @return their sum
+     */
+    private static long sum(long[] histogram) {
+        long total = 0;
+        for (long n : histogram) {
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * Test decrement().
+     */
+    @Test
+    public void testDecrement() {
+        hashWords.addWord("apple");
+        hashWords.addWord("Apple");
+        hashWords.addWord("pear");
+        assertEquals("One left", 1, hashWords.decrement("APPLE"));
+        assertEquals("Frequency", 1, hashWords.frequency("apple"));
+        assertEquals("Total", 2, hashWords.totalNumOfWords());
+        assertEquals("Tie goes to 'apple'", "apple", hashWords.mostCommonWord());
+
+        assertEquals("Removed at 0", 0, hashWords.decrement("apple"));
+        assertFalse("Gone", hashWords.contains("apple"));
+        assertEquals("Unique", 1, hashWords.numUniqueWordsInTable());
+        assertEquals("Total", 1, hashWords.totalNumOfWords());
+        assertEquals("'pear' is left", "pear", hashWords.mostCommonWord());
+        assertEquals("Missing word", 0, hashWords.decrement("plum"));
+        assertEquals("Total unchanged", 1, hashWords.totalNumOfWords());
+    }
+
+    /**
+     * Test remove().
+     */
+    @Test
+    public void testRemove() {
+        for (int i = 0; i < 5; i++) {
+            hashWords.addWord("the");
+        }
+        hashWords.addWord("a");
+        assertEquals("Removed count", 5, hashWords.remove("The"));
+        assertEquals("Gone", 0, hashWords.frequency("the"));
+        assertEquals("Unique", 1, hashWords.numUniqueWordsInTable());
+        assertEquals("Total", 1, hashWords.totalNumOfWords());
+        assertEquals("Most common", "a", hashWords.mostCommonWord());
+        assertEquals("Top words", 1, hashWords.topK(5).length);
+        assertEquals("Already removed", 0, hashWords.remove("the"));
+
+        hashWords.addWord("the");
+        assertEquals("Added again", 1, hashWords.frequency("the"));
+        assertEquals("Empty table", 2, hashWords.remove("a") + hashWords.remove("the"));
+        assertNull("No most common word", hashWords.mostCommonWord());
+    }
+
+    /**
+     * Test removing from a cluster of colliding words: the words after a
+     * removed one must stay reachable.
+     */
+    @Test
+    public void testRemoveFromCluster() {
+        HashWords constant = new HashWords(16, word -> 5, probing(), 0.75, 2.0, false);
+        String[] words = {"one", "two", "three", "four", "five"};
+        for (String w : words) {
+            constant.addWord(w);
+        }
+        for (int removed = 0; removed < words.length; removed++) {
+            assertEquals("Removed " + words[removed], 1, constant.remove(words[removed]));
+            for (int i = removed + 1; i < words.length; i++) {
+                assertTrue(words[i] + " still found", constant.contains(words[i]));
+            }
+            if (probing() != ProbingStrategy.TRIANGULAR) {
+                // Triangular probing leaves a tombstone instead of shifting words back
+                assertEquals("Probe lengths close up", words.length - removed - 1,
+                        constant.probeLengthHistogram().length - 1);
+            }
+        }
+    }
+
+    /**
+     * Test a long random mix of adds and removals against a HashMap, with
+     * growing and shrinking along the way.
+     */
+    @Test
+    public void testChurnAgainstReference() {
+        HashWords table = newTable(16);
+        Map<String, Integer> reference = new HashMap<>();
+        Random random = new Random(11);
+        int total = 0;
+        for (int step = 0; step < 60000; step++) {
+            // Vocabulary swings between small and large so the table grows and shrinks
+            int vocabulary = (step / 10000) % 2 == 0 ? 3000 : 100;
+            String w = "w" + random.nextInt(vocabulary);
+            int op = random.nextInt(4);
+            if (op < 2) {
+                table.addWord(w);
+                reference.merge(w, 1, Integer::sum);
+                total++;
+            } else if (op == 2) {
+                int count = reference.getOrDefault(w, 0);
+                assertEquals("decrement " + w, Math.max(0, count - 1), table.decrement(w));
+                if (count > 1) {
+                    reference.put(w, count - 1);
+                } else {
+                    reference.remove(w);
+                }
+                total -= Math.min(count, 1);
+            } else {
+                Integer count = reference.remove(w);
+                assertEquals("remove " + w, count == null ? 0 : count, table.remove(w));
+                total -= count == null ? 0 : count;
+            }
+        }
+        for (int i = 0; i < 3000; i++) {
+            String w = "w" + i;
+            assertEquals(w, reference.getOrDefault(w, 0).intValue(), table.frequency(w));
+        }
+        assertEquals("Unique", reference.size(), table.numUniqueWordsInTable());
+        assertEquals("Total", total, table.totalNumOfWords());
+
+        for (String w : reference.keySet()) {
+            table.remove(w);
+        }
+        assertEquals("Emptied", 0, table.totalNumOfWords());
+        assertEquals("Shrunk back", 16, table.size());
+    }
+
+    /**
+     * Test that removing words does not leave longer probes behind.
+     */
+    @Test
+    public void testProbeLengthsAfterChurn() {
+        HashWords churned = newTable(4096);
+        for (int i = 0; i < 2000; i++) {
+            churned.addWord("keep" + i);
+        }
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 1000; i++) {
+                churned.addWord("temp" + round + "_" + i);
+            }
+            for (int i = 0; i < 1000; i++) {
+                churned.remove("temp" + round + "_" + i);
+            }
+        }
+        HashWords fresh = newTable(churned.size());
+        for (int i = 0; i < 2000; i++) {
+            fresh.addWord("keep" + i);
+        }
+        assertEquals("Same words", fresh.numUniqueWordsInTable(), churned.numUniqueWordsInTable());
+        assertEquals("Same probe lengths", fresh.averageProbeLength(),
+                churned.averageProbeLength(), 0.05);
+    }
+
+    /**
+     * Test that an emptied table shrinks to its initial size and still works.
+     */
+    @Test
+    public void testShrink() {
+        HashWords table = newTable(16);
+        for (int i = 0; i < 1000; i++) {
+            table.addWord("w" + i);
+        }
+        assertTrue("Grown", table.size() >= 1024);
+        for (int i = 0; i < 1000; i++) {
+            table.remove("w" + i);
+        }
+        assertEquals("Back to the initial size", 16, table.size());
+        assertEquals("Empty", 0, table.numUniqueWordsInTable());
+        table.addWord("again");
+        assertEquals("Usable", 1, table.frequency("again"));
+    }
+
+    /**
+     * Test counts past Integer.MAX_VALUE, through rehashing, decrements and
+     * removal.
+     */
+    @Test
+    public void testCountsPastIntMax() {
+        long max = Integer.MAX_VALUE;
+        HashWords table = newTable(4);
+        table.addWord("hot", max);
+        table.addWord("HOT");
+        table.addWord("Hot");
+        table.addWord("cold");
+        assertEquals("Full count", max + 2, table.longFrequency("hot"));
+        assertEquals("Int count stops at the limit", Integer.MAX_VALUE, table.frequency("hot"));
+        assertEquals("Full total", max + 3, table.longTotalNumOfWords());
+        assertEquals("Int total stops at the limit", Integer.MAX_VALUE, table.totalNumOfWords());
+        assertEquals("Term frequency", (max + 2) / (double) (max + 3),
+                table.termFrequency("hot"), 1e-12);
+        assertEquals("Most common", "hot", table.mostCommonWord());
+        assertEquals("Top count", max + 2, table.topK(1)[0].getLongCount());
+
+        for (int i = 0; i < 100; i++) {
+            table.addWord("w" + i);
+        }
+        assertEquals("Kept through rehashing", max + 2, table.longFrequency("hot"));
+        assertEquals("Small counts unchanged", 1, table.longFrequency("cold"));
+
+        assertEquals("Decrement", max + 1, table.decrement("hot"));
+        assertEquals("Back within an int", max, table.decrement("hot"));
+        assertEquals("Int count again", Integer.MAX_VALUE, table.frequency("hot"));
+        assertEquals("Remove", max, table.remove("hot"));
+        assertEquals("Total after remove", 101, table.longTotalNumOfWords());
+
+        table.addWord("warm", 3 * max);
+        table.addWord("warmer", max + 5);
+        assertEquals("Promoted again", 3 * max, table.longFrequency("warm"));
+        assertEquals("Second overflow count", max + 5, table.longFrequency("warmer"));
+        assertEquals("Top words", "warm", table.topK(2)[0].getWord());
+        assertEquals("Second top count", max + 5, table.topK(2)[1].getLongCount());
+    }
+
+    /**
+     * Test that merging adds counts past Integer.MAX_VALUE.
+     */
+    @Test
+    public void testMergeCountsPastIntMax() {
+        HashWords a = newTable(8);
+        HashWords b = newTable(8);
+        a.addWord("the", Integer.MAX_VALUE);
+        b.addWord("the", Integer.MAX_VALUE);
+        b.addWord("end");
+        a.merge(b);
+        assertEquals("Merged count", 2L * Integer.MAX_VALUE, a.longFrequency("the"));
+        assertEquals("Merged total", 2L * Integer.MAX_VALUE + 1, a.longTotalNumOfWords());
+    }
+
+    /**
+     * Test that batches count and look up words like single calls, across
+     * growth and incremental rehashing, and probe each word only once.
+     */
+    @Test
+    public void testBatches() {
+        // Enough distinct words to grow several times part way through
+        Random random = new Random(17);
+        String[] words = new String[80_000];
+        for (int i = 0; i < words.length; i++) {
+            int w = (int) Math.min(49_999, Math.abs(random.nextGaussian()) * 20_000);
+            words[i] = (i % 3 == 0 ? "W" : "w") + w;
+        }
+        for (boolean incremental : new boolean[] {false, true}) {
+            HashWords single = newTable(4, 0.75, 2.0, incremental);
+            HashWords batched = newTable(4, 0.75, 2.0, incremental);
+            single.setStatsEnabled(true);
+            batched.setStatsEnabled(true);
+            for (int i = 1000; i < 79_000; i++) {
+                single.addWord(words[i]);
+            }
+            batched.addWords(words, 1000, 79_000);
+            assertArrayEquals("Same hit probes", single.stats().hitProbeHistogram(),
+                    batched.stats().hitProbeHistogram());
+            assertArrayEquals("Same miss probes", single.stats().missProbeHistogram(),
+                    batched.stats().missProbeHistogram());
+            assertEquals("Unique", single.numUniqueWordsInTable(), batched.numUniqueWordsInTable());
+            assertEquals("Total", 78_000, batched.totalNumOfWords());
+            assertEquals("Most common", single.mostCommonWord(), batched.mostCommonWord());
+            assertArrayEquals("Top words", single.topK(20), batched.topK(20));
+
+            int[] frequencies = batched.frequencies(words);
+            for (int i = 0; i < words.length; i++) {
+                assertEquals("Frequency of " + words[i], single.frequency(words[i]), frequencies[i]);
+            }
+        }
+        assertEquals("Empty batch", 0, hashWords.frequencies(new String[0]).length);
+        hashWords.addWords(words, 7, 7);
+        assertEquals("Nothing added", 0, hashWords.totalNumOfWords());
+    }
+
+    /**
+     * Test that a batch range outside the array is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchOutOfRange() {
+        hashWords.addWords(new String[] {"a", "b"}, 1, 3);
+    }
+
+    /**
+     * Fills a table with words of known counts, some of them removed again.
+     * 
+     * @return a map of the words left to their counts, matching the table
+     */
+    private Map<String, Long> fillForIteration() {
+        Map<String, Long> expected = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            String w = "w" + i;
+            hashWords.addWord(w.toUpperCase(Locale.ROOT), 1 + i % 7);
+            expected.put(w, 1L + i % 7);
+        }
+        for (int i = 0; i < 3000; i += 5) {
+            hashWords.remove("w" + i);
+            expected.remove("w" + i);
+        }
+        hashWords.addWord("big", Integer.MAX_VALUE + 10L);
+        expected.put("big", Integer.MAX_VALUE + 10L);
+        return expected;
+    }
+
+    /**
+     * Test that forEach and a cursor visit every word once with its count.
+     */
+    @Test
+    public void testForEachAndCursor() {
+        Map<String, Long> expected = fillForIteration();
+        Map<String, Long> visited = new HashMap<>();
+        hashWords.forEach((word, count) -> assertNull("Visited once", visited.put(word, count)));
+        assertEquals("forEach", expected, visited);
+
+        visited.clear();
+        HashWords.Cursor cursor = hashWords.cursor();
+        while (cursor.next()) {
+            assertNull("Cursor visits once", visited.put(cursor.word(), cursor.count()));
+        }
+        assertFalse("Stays at the end", cursor.next());
+        assertEquals("Cursor", expected, visited);
+
+        HashWords empty = newTable(4);
+        empty.forEach((word, count) -> fail("Empty table has no words"));
+        assertFalse("Empty cursor", empty.cursor().next());
+    }
+
+    /**
+     * Test that a cursor cannot be read before it is on a word.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testCursorBeforeNext() {
+        hashWords.addWord("word");
+        hashWords.cursor().word();
+    }
+
+    /**
+     * Test that adding words during a walk is detected, while changing
+     * counts is allowed.
+     */
+    @Test
+    public void testModificationDuringWalk() {
+        fillForIteration();
+        hashWords.forEach((word, count) -> hashWords.addWord(word));
+        assertEquals("Counts changed in place", 3, hashWords.frequency("w1"));
+
+        HashWords.Cursor cursor = hashWords.cursor();
+        cursor.next();
+        hashWords.addWord("brand-new");
+        try {
+            cursor.next();
+            fail("A new word ends the walk");
+        } catch (ConcurrentModificationException e) {
+            // Expected
+        }
+        try {
+            hashWords.forEach((word, count) -> hashWords.remove(word));
+            fail("Removing a word ends the walk");
+        } catch (ConcurrentModificationException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Test that a bulk walk over a spliterator stops at the first word after
+     * the table changes, instead of walking slots a resize has moved.
+     */
+    @Test
+    public void testSpliteratorFailsFast() {
+        fillForIteration();
+        int[] visited = new int[1];
+        try {
+            hashWords.spliterator().forEachRemaining(wf -> {
+                visited[0]++;
+                for (int i = 0; i < 20_000; i++) {
+                    hashWords.addWord("grow" + i);  // Grows the table under the walk
+                }
+            });
+            fail("Growing the table ends the walk");
+        } catch (ConcurrentModificationException e) {
+            // Expected
+        }
+        assertEquals("Stopped after the first word", 1, visited[0]);
+    }
+
+    /**
+     * Test sequential and parallel streams, and that split spliterators
+     * cover every word exactly once.
+     */
+    @Test
+    public void testStreams() {
+        Map<String, Long> expected = fillForIteration();
+        assertEquals("Count", expected.size(), hashWords.stream().count());
+        assertEquals("Sequential", expected, hashWords.stream()
+                .collect(Collectors.toMap(WordFrequency::getWord, WordFrequency::getLongCount)));
+        assertEquals("Parallel", expected, hashWords.stream().parallel()
+                .collect(Collectors.toMap(WordFrequency::getWord, WordFrequency::getLongCount)));
+        assertEquals("Parallel sum", hashWords.longTotalNumOfWords(),
+                hashWords.stream().parallel().mapToLong(WordFrequency::getLongCount).sum());
+
+        WordFrequency[] sorted = hashWords.stream().parallel()
+                .sorted((a, b) -> a.getLongCount() != b.getLongCount()
+                        ? Long.compare(b.getLongCount(), a.getLongCount())
+                        : a.getWord().compareTo(b.getWord()))
+                .limit(50).toArray(WordFrequency[]::new);
+        assertArrayEquals("Sorted export matches topK", hashWords.topK(50), sorted);
+
+        Spliterator<WordFrequency> whole = hashWords.spliterator();
+        assertTrue("Sized before splitting", whole.hasCharacteristics(Spliterator.SIZED));
+        assertEquals("Exact size", expected.size(), whole.estimateSize());
+        List<Spliterator<WordFrequency>> parts = new ArrayList<>(Arrays.asList(whole));
+        for (int round = 0; round < 3; round++) {
+            for (Spliterator<WordFrequency> part : new ArrayList<>(parts)) {
+                Spliterator<WordFrequency> prefix = part.trySplit();
+                if (prefix != null) {
+                    parts.add(prefix);
+                }
+            }
+        }
+        assertTrue("Split", parts.size() > 1);
+        Map<String, Long> seen = new HashMap<>();
+        for (Spliterator<WordFrequency> part : parts) {
+            part.forEachRemaining(wf -> assertNull("Covered once",
+                    seen.put(wf.getWord(), wf.getLongCount())));
+        }
+        assertEquals("Parts cover the table", expected, seen);
+    }
+
+    /**
+     * Test that a count of zero cannot be added.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddZeroCount() {
+        newTable(8).addWord("none", 0);
+    }
 }
@@ -0,0 +1,300 @@
+/**
+ * Counts occurrences of int keys, such as token ids, without boxing: the
+ * keys sit in an int[] next to the counts, so counting a key allocates
+ * nothing and a table of n keys costs about 8 bytes per slot against some
+ * 50 bytes per entry for a {@code HashMap<Integer, Long>}. Every int is a
+ * valid key, including 0 and negative numbers.
+ * 
+ * <p>Works like {@link HashWords} for words: {@link #add(int)} counts a key,
+ * {@link #frequency(int)} reads its count (0 if it was never added),
+ * {@link #total()} is the sum of all counts and {@link #mostCommon()} is the
+ * key with the highest count, the smallest one among equal counts. Counts
+ * are 64-bit; {@link #frequency(int)} stops at Integer.MAX_VALUE and
+ * {@link #longFrequency(int)} returns the full count. The table is described
+ * in {@link OpenAddressingCounter}.
+ * 
+ * @author Zander Polk
+ */
+public class IntCounter extends OpenAddressingCounter {
+    private int[] keys;
+
+    // The key with the highest count, kept up to date by add; rescanned
+    // after its count goes down
+    private int bestKey;
+    private long bestCount;
+    private boolean bestKnown = true;
+
+    /**
+     * Creates an empty counter.
+     */
+    public IntCounter() {
+        this(DEFAULT_INITIAL_SIZE);
+    }
+
+    /**
+     * Creates an empty counter with room for about initialSize * 0.75 keys
+     * before it grows.
+     * 
+     * @param initialSize the number of slots, rounded up to a power of two
+     * @throws IllegalArgumentException if initialSize is not positive
+     */
+    public IntCounter(int initialSize) {
+        this(initialSize, HashWords.DEFAULT_MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates an empty counter.
+     * 
+     * @param initialSize the number of slots, rounded up to a power of two
+     * @param maxLoadFactor the fraction of slots in use that makes it grow
+     * @throws IllegalArgumentException if either is out of range
+     */
+    public IntCounter(int initialSize, double maxLoadFactor) {
+        super(initialSize, maxLoadFactor);
+        this.keys = new int[counts.length];
+    }
+
+    /**
+     * Spreads a key over the bits of the hash, so that runs of consecutive
+     * keys do not fill runs of consecutive slots.
+     * 
+     * @param key the key
+     * @return its hash
+     */
+    private static int mix(int key) {
+        return Fnv1aHasher.mix(key);
+    }
+
+    /**
+     * Returns the slot holding a key.
+     * 
+     * @param key the key
+     * @return its slot, or -1 if it is not there
+     */
+    private int find(int key) {
+        int[] slotKeys = keys;
+        int[] slotCounts = counts;
+        int slot = mix(key) & mask;
+        while (slotCounts[slot] != 0) {
+            if (slotKeys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Counts one occurrence of a key.
+     * 
+     * @param key the key
+     */
+    public void add(int key) {
+        add(key, 1);
+    }
+
+    /**
+     * Counts several occurrences of a key at once.
+     * 
+     * @param key the key
+     * @param count the number of occurrences, at least 1
+     * @throws IllegalArgumentException if count is less than 1
+     */
+    public void add(int key, long count) {
+        checkCount(count);
+        int[] slotKeys = keys;
+        int[] slotCounts = counts;
+        int slot = mix(key) & mask;
+        long newCount;
+        while (true) {
+            if (slotCounts[slot] == 0) {
+                slotKeys[slot] = key;
+                insertAt(slot, count);
+                newCount = count;
+                break;
+            }
+            if (slotKeys[slot] == key) {
+                newCount = addAt(slot, count);
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (bestKnown && (newCount > bestCount || newCount == bestCount && key < bestKey)) {
+            bestKey = key;
+            bestCount = newCount;
+        }
+    }
+
+    /**
+     * Counts one occurrence of each key in a range of an array.
+     * 
+     * @param keys the keys
+     * @param from the first index to count
+     * @param to the index after the last one
+     * @throws IllegalArgumentException if the range is not within keys
+     */
+    public void addAll(int[] keys, int from, int to) {
+        if (from < 0 || to > keys.length || from > to) {
+            throw new IllegalArgumentException("Range [" + from + ", " + to
+                    + ") is not within " + keys.length + " keys");
+        }
+        for (int i = from; i < to; i++) {
+            add(keys[i], 1);
+        }
+    }
+
+    /**
+     * Returns the count of a key. Counts past Integer.MAX_VALUE are returned
+     * as Integer.MAX_VALUE, see {@link #longFrequency(int)}.
+     * 
+     * @param key the key
+     * @return its count; 0 if it is not there
+     */
+    public int frequency(int key) {
+        return (int) Math.min(Integer.MAX_VALUE, longFrequency(key));
+    }
+
+    /**
+     * Returns the full count of a key.
+     * 
+     * @param key the key
+     * @return its count; 0 if it is not there
+     */
+    public long longFrequency(int key) {
+        int slot = find(key);
+        return slot >= 0 ? countAt(slot) : 0;
+    }
+
+    /**
+     * Is this key counted?
+     * 
+     * @param key the key
+     * @return true if its count is above 0
+     */
+    public boolean contains(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Takes one occurrence of a key away. A key whose count drops to 0 is
+     * removed.
+     * 
+     * @param key the key
+     * @return its count afterwards; 0 if it was removed or was not there
+     */
+    public long decrement(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return 0;
+        }
+        if (key == bestKey) {
+            bestKnown = false;
+        }
+        return decrementAt(slot);
+    }
+
+    /**
+     * Removes a key with all of its occurrences.
+     * 
+     * @param key the key
+     * @return the count it had; 0 if it was not there
+     */
+    public long remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return 0;
+        }
+        if (key == bestKey) {
+            bestKnown = false;
+        }
+        return removeAt(slot);
+    }
+
+    /**
+     * Returns the key with the highest count, the smallest one among equal
+     * counts. Kept up to date by {@link #add(int)}, so this only scans the
+     * table after the count of that key went down.
+     * 
+     * @return the most common key
+     * @throws IllegalStateException if the counter is empty
+     */
+    public int mostCommon() {
+        if (numUniqueKeys() == 0) {
+            throw new IllegalStateException("The counter is empty");
+        }
+        if (!bestKnown) {
+            int slot = mostCommonSlot();
+            bestKey = keys[slot];
+            bestCount = countAt(slot);
+            bestKnown = true;
+        }
+        return bestKey;
+    }
+
+    /**
+     * Passes every key with its count to a visitor, in slot order. The
+     * counter must not be changed during the walk.
+     * 
+     * @param visitor receives each key and its count
+     */
+    public void forEach(Visitor visitor) {
+        for (int slot = 0; slot < counts.length; slot++) {
+            if (counts[slot] != 0) {
+                visitor.visit(keys[slot], countAt(slot));
+            }
+        }
+    }
+
+    /**
+     * Estimates the heap retained by the counter.
+     * 
+     * @return the estimated size in bytes
+     */
+    public long estimatedBytes() {
+        return estimatedBytes(4);
+    }
+
+    @Override
+    int hashAt(int slot) {
+        return mix(keys[slot]);
+    }
+
+    @Override
+    void moveKey(int from, int to) {
+        keys[to] = keys[from];
+    }
+
+    @Override
+    void rehash(int[] oldCounts) {
+        int[] oldKeys = keys;
+        keys = new int[counts.length];
+        for (int i = 0; i < oldCounts.length; i++) {
+            if (oldCounts[i] != 0) {
+                int slot = emptySlotFor(mix(oldKeys[i]));
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    @Override
+    boolean keyBefore(int a, int b) {
+        return keys[a] < keys[b];
+    }
+
+    /**
+     * Receives the keys of an {@link IntCounter} with their counts, one call
+     * per key, from {@link IntCounter#forEach(Visitor)}.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+
+        /**
+         * Visits one key of the counter.
+         * 
+         * @param key the key
+         * @param count its count, at least 1
+         */
+        void visit(int key, long count);
+    }
+}
@@ -0,0 +1,169 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the IntCounter class.
+ */
+public class IntCounterTest {
+    private IntCounter counter;
+
+    /**
+     * Setup method, creates a small counter so that tests make it grow.
+     */
+    @Before
+    public void setup() {
+        counter = new IntCounter(4);
+    }
+
+    /**
+     * Test add, frequency and total.
+     */
+    @Test
+    public void testAddAndFrequency() {
+        counter.add(7);
+        counter.add(7);
+        counter.add(-3, 5);
+        counter.add(0);
+        assertEquals("Counted twice", 2, counter.frequency(7));
+        assertEquals("Negative key", 5, counter.frequency(-3));
+        assertEquals("Zero is a key", 1, counter.frequency(0));
+        assertEquals("Missing key", 0, counter.frequency(8));
+        assertTrue("Contains", counter.contains(0));
+        assertFalse("Does not contain", counter.contains(1));
+        assertEquals("Unique keys", 3, counter.numUniqueKeys());
+        assertEquals("Total", 8, counter.total());
+    }
+
+    /**
+     * Test the most common key, with ties and after counts go down.
+     */
+    @Test
+    public void testMostCommon() {
+        counter.add(5, 3);
+        counter.add(2, 3);
+        counter.add(9, 1);
+        assertEquals("Smallest of the tied keys", 2, counter.mostCommon());
+        counter.decrement(2);
+        assertEquals("After decrement", 5, counter.mostCommon());
+        counter.remove(5);
+        assertEquals("After remove", 2, counter.mostCommon());
+        counter.add(9, 4);
+        assertEquals("Overtaken", 9, counter.mostCommon());
+    }
+
+    /**
+     * Test that an empty counter has no most common key.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testMostCommonEmpty() {
+        counter.add(1);
+        counter.remove(1);
+        counter.mostCommon();
+    }
+
+    /**
+     * Test decrement and remove.
+     */
+    @Test
+    public void testDecrementAndRemove() {
+        counter.add(1, 2);
+        counter.add(2);
+        assertEquals("Decremented", 1, counter.decrement(1));
+        assertEquals("Decremented to 0", 0, counter.decrement(1));
+        assertFalse("Removed at 0", counter.contains(1));
+        assertEquals("Missing key", 0, counter.decrement(1));
+        assertEquals("Removed count", 1, counter.remove(2));
+        assertEquals("Empty", 0, counter.numUniqueKeys());
+        assertEquals("Total", 0, counter.total());
+    }
+
+    /**
+     * Test counts past Integer.MAX_VALUE.
+     */
+    @Test
+    public void testLongCounts() {
+        counter.add(1, Integer.MAX_VALUE);
+        counter.add(1, 10);
+        assertEquals("Clamped", Integer.MAX_VALUE, counter.frequency(1));
+        assertEquals("Full count", Integer.MAX_VALUE + 10L, counter.longFrequency(1));
+        assertEquals("Decrement", Integer.MAX_VALUE + 9L, counter.decrement(1));
+        for (int i = 0; i < 100; i++) {
+            counter.add(1000 + i);
+        }
+        assertEquals("Kept through growth", Integer.MAX_VALUE + 9L, counter.longFrequency(1));
+        assertEquals("Most common", 1, counter.mostCommon());
+    }
+
+    /**
+     * Test that a count of zero cannot be added.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddZeroCount() {
+        counter.add(1, 0);
+    }
+
+    /**
+     * Test forEach and addAll.
+     */
+    @Test
+    public void testForEach() {
+        counter.addAll(new int[] {4, 4, 6, 8, 8, 8}, 1, 6);
+        Map<Integer, Long> seen = new HashMap<>();
+        counter.forEach((key, count) -> seen.put(key, count));
+        Map<Integer, Long> expected = new HashMap<>();
+        expected.put(4, 1L);
+        expected.put(6, 1L);
+        expected.put(8, 3L);
+        assertEquals("Every key once", expected, seen);
+    }
+
+    /**
+     * Test random adds and removals against a HashMap, through growing and
+     * shrinking.
+     */
+    @Test
+    public void testAgainstHashMap() {
+        Random random = new Random(42);
+        Map<Integer, Long> expected = new HashMap<>();
+        long total = 0;
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 20_000; i++) {
+                int key = random.nextInt(5000) * 4096;   // Same low bits
+                counter.add(key);
+                expected.merge(key, 1L, Long::sum);
+                total++;
+            }
+            assertTrue("Grown", counter.size() >= 4096);
+            for (int i = 0; i < 30_000; i++) {
+                int key = random.nextInt(5000) * 4096;
+                if (random.nextBoolean()) {
+                    Long count = expected.remove(key);
+                    assertEquals("remove " + key, count == null ? 0 : count, counter.remove(key));
+                    total -= count == null ? 0 : count;
+                } else {
+                    Long count = expected.get(key);
+                    long after = count == null ? 0 : count - 1;
+                    assertEquals("decrement " + key, after, counter.decrement(key));
+                    if (count != null) {
+                        total--;
+                        if (after == 0) {
+                            expected.remove(key);
+                        } else {
+                            expected.put(key, after);
+                        }
+                    }
+                }
+            }
+            for (int key = 0; key < 5000 * 4096; key += 4096) {
+                assertEquals("Key " + key, expected.getOrDefault(key, 0L).longValue(),
+                        counter.longFrequency(key));
+            }
+            assertEquals("Unique keys", expected.size(), counter.numUniqueKeys());
+            assertEquals("Total", total, counter.total());
+        }
+        assertTrue("Shrunk", counter.size() < 4096);
+    }
+}
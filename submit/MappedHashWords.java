@@ -0,0 +1,364 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of a {@link HashWords} snapshot written by
+ * {@link HashWords#save(Path)}. The file is memory-mapped and
+ * {@link #frequency(CharSequence)} probes the mapped slots directly, so
+ * opening a snapshot costs the same however many words were counted into it,
+ * and pages are only read from disk as they are touched. It only answers
+ * queries; load the snapshot with {@link HashWords#load(Path)} to keep
+ * counting.
+ * 
+ * <p>The file is big-endian:
+ * <ul>
+ * <li>a {@value #HEADER_BYTES}-byte header: magic "HWS1", version, hasher id,
+ * probing strategy, max load factor and growth factor (doubles), flags,
+ * {@code size}, {@code uniqueWordCount}, {@code totalWordsCount} (long), the
+ * slot of the most common word (-1 if empty), the number of overflow counts
+ * and the size the table never shrinks below;</li>
+ * <li>{@code size} slots of {@value #SLOT_BYTES} bytes in table order: full
+ * hash, count and the offset of the word in the string area, or -1 for an
+ * empty slot;</li>
+ * <li>the overflow counts (longs). A negative slot count {@code c} stands for
+ * the overflow count at {@code ~c}, as in {@link HashWords};</li>
+ * <li>the string area: each word as its UTF-8 length (int) and bytes.</li>
+ * </ul>
+ * Files of any other version are rejected.
+ * 
+ * @author Zander Polk
+ */
+public class MappedHashWords implements WordCounts {
+    static final int MAGIC = 0x48575331;  // "HWS1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int SLOT_BYTES = 12;
+    static final int FLAG_INCREMENTAL_REHASH = 1;
+
+    private static final int FNV1A = 1;
+    private static final int ASCII_SUM = 2;
+
+    private final ByteBuffer buffer;
+    private final WordHasher hasher;
+    private final ProbingStrategy probing;
+    private final double maxLoadFactor;
+    private final double growthFactor;
+    private final boolean incrementalRehash;
+    private final int size;
+    private final int minSize;
+    private final int uniqueWordCount;
+    private final long totalWordsCount;
+    private final int mostCommonSlot;
+    private final int slots;      // Position of the slots
+    private final int overflow;   // Position of the overflow counts
+    private final int strings;    // Position of the string area
+
+    /**
+     * Reads the header of a mapped snapshot.
+     * 
+     * @param buffer the mapped file
+     * @throws IOException if the file is not a snapshot of this version
+     */
+    private MappedHashWords(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < 8 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a HashWords snapshot");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        if (buffer.capacity() < HEADER_BYTES) {
+            throw new IOException("Truncated HashWords snapshot");
+        }
+        this.buffer = buffer;
+        this.hasher = hasherFor(buffer.getInt(8));
+        this.probing = ProbingStrategy.values()[buffer.getInt(12)];
+        this.maxLoadFactor = buffer.getDouble(16);
+        this.growthFactor = buffer.getDouble(24);
+        this.incrementalRehash = (buffer.getInt(32) & FLAG_INCREMENTAL_REHASH) != 0;
+        this.size = buffer.getInt(36);
+        this.uniqueWordCount = buffer.getInt(40);
+        this.totalWordsCount = buffer.getLong(44);
+        this.mostCommonSlot = buffer.getInt(52);
+        int overflowCounts = buffer.getInt(56);
+        this.minSize = buffer.getInt(60);
+        this.slots = HEADER_BYTES;
+        this.overflow = slots + size * SLOT_BYTES;
+        this.strings = overflow + overflowCounts * 8;
+        if (size < 1 || minSize < 1 || minSize > size || overflowCounts < 0
+                || strings > buffer.capacity()) {
+            throw new IOException("Truncated HashWords snapshot");
+        }
+    }
+
+    /**
+     * Maps a snapshot file.
+     * 
+     * @param file a file written by {@link HashWords#save(Path)}
+     * @return a read-only view of the saved table
+     * @throws IOException if the file cannot be read, is too large to map or
+     *         is not a snapshot
+     */
+    public static MappedHashWords open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + channel.size() + " bytes");
+            }
+            return new MappedHashWords(
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Returns the id a hasher is saved under.
+     * 
+     * @param hasher the hasher of a table
+     * @return its id in the header
+     * @throws IllegalArgumentException if the hasher is not one of the bundled ones
+     */
+    static int hasherId(WordHasher hasher) {
+        if (hasher.getClass() == Fnv1aHasher.class) {
+            return FNV1A;
+        }
+        if (hasher.getClass() == AsciiSumHasher.class) {
+            return ASCII_SUM;
+        }
+        throw new IllegalArgumentException("Cannot save a table hashed with "
+                + hasher.getClass().getName());
+    }
+
+    /**
+     * Recreates the hasher saved under an id.
+     * 
+     * @param id the id in the header
+     * @return the hasher
+     * @throws IOException if the id is unknown
+     */
+    private static WordHasher hasherFor(int id) throws IOException {
+        switch (id) {
+            case FNV1A:
+                return new Fnv1aHasher();
+            case ASCII_SUM:
+                return new AsciiSumHasher();
+            default:
+                throw new IOException("Unknown hasher id " + id);
+        }
+    }
+
+    /**
+     * Returns the size of the saved table.
+     * 
+     * @return the number of slots
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the size the saved table never shrinks below
+     */
+    int minSize() {
+        return minSize;
+    }
+
+    /**
+     * @return the hasher the table was built with
+     */
+    WordHasher hasher() {
+        return hasher;
+    }
+
+    /**
+     * @return the probing strategy of the table
+     */
+    ProbingStrategy probing() {
+        return probing;
+    }
+
+    /**
+     * @return the max load factor of the table
+     */
+    double maxLoadFactor() {
+        return maxLoadFactor;
+    }
+
+    /**
+     * @return the growth factor of the table
+     */
+    double growthFactor() {
+        return growthFactor;
+    }
+
+    /**
+     * @return true if the table rehashed incrementally
+     */
+    boolean incrementalRehash() {
+        return incrementalRehash;
+    }
+
+    /**
+     * Returns the full hash stored in a slot.
+     * 
+     * @param slot a slot index
+     * @return its hash
+     */
+    int hashAt(int slot) {
+        return buffer.getInt(slots + slot * SLOT_BYTES);
+    }
+
+    /**
+     * Returns the count stored in a slot.
+     * 
+     * @param slot a slot index
+     * @return its count, 0 for an empty slot
+     */
+    long countAt(int slot) {
+        int count = buffer.getInt(slots + slot * SLOT_BYTES + 4);
+        return count >= 0 ? count : buffer.getLong(overflow + ~count * 8);
+    }
+
+    /**
+     * Decodes the word stored in a slot.
+     * 
+     * @param slot a slot index
+     * @return the word, or null for an empty slot
+     */
+    String keyAt(int slot) {
+        int offset = buffer.getInt(slots + slot * SLOT_BYTES + 8);
+        if (offset < 0) {
+            return null;
+        }
+        int position = strings + offset;
+        byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int frequency(String w) {
+        return frequency((CharSequence) w);
+    }
+
+    /**
+     * Same as {@link #longFrequency(CharSequence)}, up to
+     * {@code Integer.MAX_VALUE}.
+     * 
+     * @param w the word, in any case
+     * @return the saved count of (w), at most Integer.MAX_VALUE; otherwise, 0
+     */
+    public int frequency(CharSequence w) {
+        return (int) Math.min(Integer.MAX_VALUE, longFrequency(w));
+    }
+
+    @Override
+    public long longFrequency(String w) {
+        return longFrequency((CharSequence) w);
+    }
+
+    /**
+     * Looks a word up in the mapped slots, comparing it with the stored UTF-8
+     * bytes without decoding them.
+     * 
+     * @param w the word, in any case
+     * @return the saved count of (w); otherwise, 0
+     */
+    public long longFrequency(CharSequence w) {
+        int hash = hasher.hash(w);
+        int key = probing.home(hash, size);
+        for (int step = 0; step < size; ) {
+            int slot = slots + key * SLOT_BYTES;
+            int offset = buffer.getInt(slot + 8);
+            if (offset < 0) {
+                return 0;
+            }
+            int h = buffer.getInt(slot);
+            if (h == hash && keyMatches(strings + offset, w)) {
+                return countAt(key);
+            }
+            if (probing == ProbingStrategy.ROBIN_HOOD
+                    && probing.displacement(h, key, size) < step) {
+                return 0;  // The word would have taken this slot
+            }
+            key = probing.next(key, ++step, size);
+        }
+        return 0;
+    }
+
+    /**
+     * Compares a stored UTF-8 word with a word in any case, encoding the
+     * lower-cased characters of w on the fly.
+     * 
+     * @param position the position of the stored length and bytes
+     * @param w the word
+     * @return true if w folds to the stored word
+     */
+    private boolean keyMatches(int position, CharSequence w) {
+        int p = position + 4;
+        int end = p + buffer.getInt(position);
+        for (int i = 0; i < w.length(); i++) {
+            char c = Character.toLowerCase(w.charAt(i));
+            if (c < 0x80) {
+                if (p == end || buffer.get(p++) != c) {
+                    return false;
+                }
+            } else if (c < 0x800) {
+                if (end - p < 2 || buffer.get(p++) != (byte) (0xC0 | c >> 6)
+                        || buffer.get(p++) != (byte) (0x80 | c & 0x3F)) {
+                    return false;
+                }
+            } else if (Character.isSurrogate(c)) {
+                // Rare enough to decode; pairs and lone surrogates encode differently
+                byte[] bytes = new byte[end - position - 4];
+                buffer.get(position + 4, bytes);
+                return HashWords.matches(new String(bytes, StandardCharsets.UTF_8), w);
+            } else {
+                if (end - p < 3 || buffer.get(p++) != (byte) (0xE0 | c >> 12)
+                        || buffer.get(p++) != (byte) (0x80 | c >> 6 & 0x3F)
+                        || buffer.get(p++) != (byte) (0x80 | c & 0x3F)) {
+                    return false;
+                }
+            }
+        }
+        return p == end;
+    }
+
+    @Override
+    public boolean contains(String w) {
+        return frequency(w) > 0;
+    }
+
+    @Override
+    public int numUniqueWordsInTable() {
+        return uniqueWordCount;
+    }
+
+    @Override
+    public int totalNumOfWords() {
+        return (int) Math.min(Integer.MAX_VALUE, totalWordsCount);
+    }
+
+    @Override
+    public long longTotalNumOfWords() {
+        return totalWordsCount;
+    }
+
+    /**
+     * Returns the most common word of the saved table, as found by
+     * {@link HashWords#mostCommonWord()} when it was saved.
+     * 
+     * @return the most common word, or null for an empty table
+     */
+    @Override
+    public String mostCommonWord() {
+        return mostCommonSlot < 0 ? null : keyAt(mostCommonSlot);
+    }
+
+    @Override
+    public double termFrequency(String w) {
+        return totalWordsCount > 0 ? (double) longFrequency(w) / totalWordsCount : 0.0;
+    }
+}
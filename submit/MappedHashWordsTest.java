@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for HashWords snapshots: {@link HashWords#save(Path)},
+ * {@link HashWords#load(Path)} and the {@link MappedHashWords} view.
+ */
+public class MappedHashWordsTest {
+    private static final String[] TEXT = {
+        "We", "the", "People", "of", "the", "United", "States", "in", "Order", "to",
+        "form", "a", "more", "perfect", "Union", "THE", "people", "caf\u00e9", "Caf\u00c9",
+        "\u65e5\u672c", "na\u00efve", "\ud83d\ude00", "the"
+    };
+
+    private Path file;
+
+    /**
+     * Setup method, creates a temporary file name for each test.
+     * 
+     * @throws IOException if the file cannot be created
+     */
+    @Before
+    public void setup() throws IOException {
+        file = Files.createTempFile("snapshot", ".hws");
+    }
+
+    /**
+     * Deletes the temporary file.
+     * 
+     * @throws IOException if the file cannot be deleted
+     */
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Counts the test text into a table.
+     * 
+     * @param probing the collision resolution strategy
+     * @return the filled table
+     */
+    private static HashWords filled(ProbingStrategy probing) {
+        HashWords table = new HashWords(4, probing);
+        for (String w : TEXT) {
+            table.addWord(w);
+        }
+        return table;
+    }
+
+    /**
+     * Test that a loaded table matches the saved one for every strategy.
+     * 
+     * @throws IOException if the snapshot cannot be written or read
+     */
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        for (ProbingStrategy probing : ProbingStrategy.values()) {
+            HashWords saved = filled(probing);
+            saved.save(file);
+            HashWords loaded = HashWords.load(file);
+
+            assertEquals(probing + " size", saved.size(), loaded.size());
+            assertEquals(probing + " unique", saved.numUniqueWordsInTable(),
+                    loaded.numUniqueWordsInTable());
+            assertEquals(probing + " total", saved.totalNumOfWords(), loaded.totalNumOfWords());
+            assertEquals(probing + " most common", saved.mostCommonWord(), loaded.mostCommonWord());
+            assertArrayEquals(probing + " top words", saved.topK(10), loaded.topK(10));
+            for (String w : TEXT) {
+                assertEquals(probing + " " + w, saved.frequency(w), loaded.frequency(w));
+            }
+            assertEquals(probing + " probe lengths", saved.averageProbeLength(),
+                    loaded.averageProbeLength(), 0.0);
+        }
+    }
+
+    /**
+     * Test that a loaded table keeps counting and growing.
+     * 
+     * @throws IOException if the snapshot cannot be written or read
+     */
+    @Test
+    public void testLoadedTableKeepsCounting() throws IOException {
+        filled(ProbingStrategy.LINEAR).save(file);
+        HashWords loaded = HashWords.load(file);
+        for (int i = 0; i < 100; i++) {
+            loaded.addWord("new" + i);
+            loaded.addWord("people");
+        }
+        assertEquals("Old word counted on", 102, loaded.frequency("People"));
+        assertEquals("New words", 1, loaded.frequency("new99"));
+        assertEquals("Most common", "people", loaded.mostCommonWord());
+        assertEquals("Total", TEXT.length + 200, loaded.totalNumOfWords());
+    }
+
+    /**
+     * Test lookups straight from the mapped file, for every strategy.
+     * 
+     * @throws IOException if the snapshot cannot be written or read
+     */
+    @Test
+    public void testMappedLookups() throws IOException {
+        for (ProbingStrategy probing : ProbingStrategy.values()) {
+            HashWords saved = filled(probing);
+            saved.save(file);
+            MappedHashWords mapped = MappedHashWords.open(file);
+
+            for (String w : TEXT) {
+                assertEquals(probing + " " + w, saved.frequency(w), mapped.frequency(w));
+            }
+            assertEquals(probing + " accents fold", 2, mapped.frequency("CAF\u00c9"));
+            assertEquals(probing + " miss", 0, mapped.frequency("missing"));
+            assertEquals(probing + " prefix miss", 0, mapped.frequency("caf"));
+            assertEquals(probing + " longer miss", 0, mapped.frequency("theo"));
+            assertTrue(probing + " contains", mapped.contains("UNION"));
+            assertEquals(probing + " most common", "the", mapped.mostCommonWord());
+            assertEquals(probing + " unique", saved.numUniqueWordsInTable(),
+                    mapped.numUniqueWordsInTable());
+            assertEquals(probing + " total", saved.totalNumOfWords(), mapped.totalNumOfWords());
+            assertEquals(probing + " term frequency", saved.termFrequency("the"),
+                    mapped.termFrequency("the"), 1e-12);
+        }
+    }
+
+    /**
+     * Test that counts past Integer.MAX_VALUE are saved, mapped and loaded,
+     * including after an overflow count was freed.
+     * 
+     * @throws IOException if the snapshot cannot be written or read
+     */
+    @Test
+    public void testCountsPastIntMax() throws IOException {
+        long max = Integer.MAX_VALUE;
+        for (ProbingStrategy probing : ProbingStrategy.values()) {
+            HashWords saved = filled(probing);
+            saved.addWord("gone", max + 1);
+            saved.addWord("hot", 5_000_000_000L);
+            saved.addWord("warm", max + 1);
+            saved.remove("gone");
+            saved.save(file);
+
+            MappedHashWords mapped = MappedHashWords.open(file);
+            assertEquals(probing + " mapped hot", 5_000_000_000L, mapped.longFrequency("HOT"));
+            assertEquals(probing + " mapped warm", max + 1, mapped.longFrequency("warm"));
+            assertEquals(probing + " mapped int count", Integer.MAX_VALUE, mapped.frequency("hot"));
+            assertEquals(probing + " mapped small", 4, mapped.longFrequency("the"));
+            assertEquals(probing + " mapped gone", 0, mapped.longFrequency("gone"));
+            assertEquals(probing + " mapped total", saved.longTotalNumOfWords(),
+                    mapped.longTotalNumOfWords());
+            assertEquals(probing + " mapped most common", "hot", mapped.mostCommonWord());
+
+            HashWords loaded = HashWords.load(file);
+            assertArrayEquals(probing + " top words", saved.topK(5), loaded.topK(5));
+            assertEquals(probing + " loaded top count", 5_000_000_000L,
+                    loaded.topK(1)[0].getLongCount());
+            loaded.addWord("warm");
+            assertEquals(probing + " loaded keeps counting", max + 2, loaded.longFrequency("warm"));
+            assertEquals(probing + " loaded total", saved.longTotalNumOfWords() + 1,
+                    loaded.longTotalNumOfWords());
+        }
+    }
+
+    /**
+     * Test that a loaded table keeps the minimum size of the saved one, so it
+     * shrinks like the original when words are removed.
+     * 
+     * @throws IOException if the snapshot cannot be written or read
+     */
+    @Test
+    public void testLoadKeepsMinimumSize() throws IOException {
+        for (ProbingStrategy probing : ProbingStrategy.values()) {
+            HashWords saved = new HashWords(8, probing);
+            for (int i = 0; i < 1000; i++) {
+                saved.addWord("w" + i);
+                saved.addWord("w" + (i % 10));
+            }
+            saved.save(file);
+            HashWords loaded = HashWords.load(file);
+            assertEquals(probing + " saved size", saved.size(), loaded.size());
+            assertEquals(probing + " most common", saved.mostCommonWord(), loaded.mostCommonWord());
+            assertArrayEquals(probing + " top words", saved.topK(20), loaded.topK(20));
+            for (int i = 1; i < 1000; i++) {
+                saved.remove("w" + i);
+                loaded.remove("w" + i);
+            }
+            assertEquals(probing + " shrinks like the original", saved.size(), loaded.size());
+            assertTrue(probing + " below the loaded size", loaded.size() < 1000);
+            assertEquals(probing + " word kept", 101, loaded.frequency("w0"));
+        }
+    }
+
+    /**
+     * Test that a snapshot of another version is rejected.
+     * 
+     * @throws IOException if the snapshot cannot be written
+     */
+    @Test(expected = IOException.class)
+    public void testRejectsOtherVersion() throws IOException {
+        filled(ProbingStrategy.LINEAR).save(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, MappedHashWords.VERSION + 1), 4);
+        }
+        MappedHashWords.open(file);
+    }
+
+    /**
+     * Test an empty table and the ASCII-sum hasher.
+     * 
+     * @throws IOException if the snapshot cannot be written or read
+     */
+    @Test
+    public void testEmptyAndAsciiSum() throws IOException {
+        new HashWords(5, new AsciiSumHasher()).save(file);
+        MappedHashWords mapped = MappedHashWords.open(file);
+        assertNull("No most common word", mapped.mostCommonWord());
+        assertEquals("Nothing there", 0, mapped.frequency("the"));
+        assertEquals("Size", 5, HashWords.load(file).size());
+    }
+
+    /**
+     * Test that a file that is not a snapshot is rejected.
+     * 
+     * @throws IOException if the file cannot be written
+     */
+    @Test(expected = IOException.class)
+    public void testNotASnapshot() throws IOException {
+        Files.write(file, "We the People of the United States".getBytes("US-ASCII"));
+        HashWords.load(file);
+    }
+
+    /**
+     * Test that a table with a custom hasher cannot be saved.
+     * 
+     * @throws IOException if the snapshot cannot be written
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testCustomHasherRejected() throws IOException {
+        new HashWords(8, word -> word.length()).save(file);
+    }
+}
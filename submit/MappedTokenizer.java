@@ -0,0 +1,205 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Splits a UTF-8 (or ASCII) text file into words and counts them straight into
+ * a {@link HashWords} table. The file is memory-mapped one window at a time
+ * and scanned byte by byte; no String is built for a word that is already in
+ * the table.
+ * 
+ * <p>Words are separated by the same characters as the Scanner delimiter
+ * {@code [\s\p{Punct}]+} used by the Project2 driver: ASCII whitespace and
+ * ASCII punctuation. Bytes above 0x7F are always part of a word. Pure ASCII
+ * words are read in place through a reused {@link CharSequence} view; words
+ * containing other characters are decoded from UTF-8.
+ * 
+ * @author Zander Polk
+ */
+public class MappedTokenizer {
+    /** Default number of bytes mapped at a time. */
+    public static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+
+    private static final boolean[] DELIMITER = new boolean[128];
+
+    static {
+        for (char c : " \t\n\u000B\f\r".toCharArray()) {
+            DELIMITER[c] = true;
+        }
+        for (char c : "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~".toCharArray()) {
+            DELIMITER[c] = true;
+        }
+    }
+
+    private final int windowSize;
+    private final AsciiSlice slice = new AsciiSlice();
+    private long tokens;     // Words found by the range being tokenized
+
+    /**
+     * Creates a tokenizer that maps {@value #DEFAULT_WINDOW_SIZE} bytes at a time.
+     */
+    public MappedTokenizer() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Creates a tokenizer that maps the given number of bytes at a time.
+     * 
+     * @param windowSize the mapping size in bytes
+     * @throws IllegalArgumentException if windowSize is not positive
+     */
+    public MappedTokenizer(int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be positive: " + windowSize);
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Counts every word of a file into the table.
+     * 
+     * @param file the text file
+     * @param table the table to add the words to
+     * @return the number of words added
+     * @throws IOException if the file cannot be read
+     */
+    public long tokenize(Path file, HashWords table) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return tokenize(channel, 0, channel.size(), table);
+        }
+    }
+
+    /**
+     * Counts the words in a byte range of a file into the table. A word that
+     * runs past {@code end} is cut there, so callers splitting a file should
+     * pick ends that fall on delimiters.
+     * 
+     * @param channel an open channel on the file
+     * @param start the first byte to read
+     * @param end the byte after the last one to read
+     * @param table the table to add the words to
+     * @return the number of words added
+     * @throws IOException if the file cannot be read
+     */
+    public long tokenize(FileChannel channel, long start, long end, HashWords table)
+            throws IOException {
+        tokens = 0;
+        long position = start;
+        while (position < end) {
+            int length = (int) Math.min(windowSize, end - position);
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            boolean last = position + length == end;
+
+            // Everything up to the start of an unfinished word is consumed; the
+            // next window starts at that word unless it fills the whole window
+            int consumed = scan(window, length, last, table);
+            position += consumed > 0 ? consumed : length;
+        }
+        return tokens;
+    }
+
+    /**
+     * Scans one mapped window and adds every complete word in it.
+     * 
+     * @param window the mapped bytes
+     * @param length the number of bytes in the window
+     * @param last true if the window ends at the end of the range
+     * @param table the table to add the words to
+     * @return the number of bytes consumed; a word touching the end of a window
+     *         that is not the last one is left for the next window
+     */
+    private int scan(ByteBuffer window, int length, boolean last, HashWords table) {
+        int i = 0;
+        while (true) {
+            while (i < length && isDelimiter(window.get(i))) {
+                i++;
+            }
+            if (i == length) {
+                return length;
+            }
+            int wordStart = i;
+            boolean ascii = true;
+            byte b;
+            while (i < length && !isDelimiter(b = window.get(i))) {
+                ascii &= b >= 0;
+                i++;
+            }
+            if (i == length && !last && wordStart > 0) {
+                return wordStart;
+            }
+            addWord(window, wordStart, i, ascii, table);
+            tokens++;
+        }
+    }
+
+    /**
+     * Adds the word held in bytes [from, to) of the window.
+     * 
+     * @param window the mapped bytes
+     * @param from the first byte of the word
+     * @param to the byte after the word
+     * @param ascii true if every byte of the word is below 0x80
+     * @param table the table to add the word to
+     */
+    private void addWord(ByteBuffer window, int from, int to, boolean ascii,
+            HashWords table) {
+        if (ascii) {
+            slice.set(window, from, to - from);
+            table.addWord(slice);
+        } else {
+            byte[] bytes = new byte[to - from];
+            window.get(from, bytes);
+            table.addWord(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Is this byte a word separator?
+     * 
+     * @param b a byte of the file
+     * @return true for ASCII whitespace and punctuation
+     */
+    static boolean isDelimiter(byte b) {
+        return b >= 0 && DELIMITER[b];
+    }
+
+    /**
+     * Reusable view of a run of ASCII bytes as characters.
+     */
+    static final class AsciiSlice implements CharSequence {
+        private ByteBuffer bytes;
+        private int offset;
+        private int length;
+
+        void set(ByteBuffer bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) bytes.get(offset + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            byte[] copy = new byte[length];
+            bytes.get(offset, copy);
+            return new String(copy, StandardCharsets.US_ASCII);
+        }
+    }
+}
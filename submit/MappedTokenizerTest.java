@@ -0,0 +1,143 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Scanner;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the MappedTokenizer class.
+ * The tokenizer must split text exactly like the Scanner used by Project2.
+ */
+public class MappedTokenizerTest {
+    private Path file;
+
+    /**
+     * Setup method, creates an empty temporary file for each test.
+     * 
+     * @throws IOException if the file cannot be created
+     */
+    @Before
+    public void setup() throws IOException {
+        file = Files.createTempFile("tokenizer", ".txt");
+    }
+
+    /**
+     * Deletes the temporary file.
+     * 
+     * @throws IOException if the file cannot be deleted
+     */
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Counts a file with the Scanner delimiter used by Project2.
+     * 
+     * @param f the file
+     * @return the table of words
+     * @throws IOException if the file cannot be read
+     */
+    private static HashWords scannerCounts(File f) throws IOException {
+        HashWords table = new HashWords(17);
+        try (Scanner scanner = new Scanner(f, "UTF-8").useDelimiter("[\\s\\p{Punct}]+")) {
+            while (scanner.hasNext()) {
+                table.addWord(scanner.next());
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Asserts that two tables hold the same words with the same counts.
+     * 
+     * @param expected the reference table
+     * @param actual the table under test
+     * @param words the words to compare
+     */
+    private static void assertSameCounts(HashWords expected, HashWords actual, String... words) {
+        assertEquals("Same number of unique words",
+                expected.numUniqueWordsInTable(), actual.numUniqueWordsInTable());
+        assertEquals("Same total number of words",
+                expected.totalNumOfWords(), actual.totalNumOfWords());
+        assertEquals("Same most common word", expected.mostCommonWord(), actual.mostCommonWord());
+        for (String w : words) {
+            assertEquals("Same frequency of '" + w + "'", expected.frequency(w), actual.frequency(w));
+        }
+    }
+
+    /**
+     * Test that the bundled texts are split like the Scanner splits them.
+     * 
+     * @throws IOException if a text cannot be read
+     */
+    @Test
+    public void testMatchesScannerOnBundledTexts() throws IOException {
+        for (String name : new String[] {"preamble.txt", "gettysburg.txt", "mlk-have-dream.txt"}) {
+            File text = new File(name);
+            Assume.assumeTrue("Run from the project folder", text.exists());
+
+            HashWords mapped = new HashWords(17);
+            long tokens = new MappedTokenizer().tokenize(text.toPath(), mapped);
+
+            assertEquals("Token count equals the total", mapped.totalNumOfWords(), tokens);
+            assertSameCounts(scannerCounts(text), mapped, "the", "freedom", "people", "we");
+        }
+    }
+
+    /**
+     * Test that words crossing a window boundary are not split.
+     * 
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    public void testWordsAcrossWindows() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            text.append("alpha, Beta-gamma ").append(i).append(".\n");
+        }
+        Files.write(file, text.toString().getBytes(StandardCharsets.US_ASCII));
+
+        HashWords mapped = new HashWords(17);
+        new MappedTokenizer(7).tokenize(file, mapped);
+
+        assertSameCounts(scannerCounts(file.toFile()), mapped, "alpha", "beta", "gamma", "499");
+    }
+
+    /**
+     * Test punctuation, whitespace and non-ASCII words.
+     * 
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    public void testDelimitersAndUnicode() throws IOException {
+        String text = "  Caf\u00e9\tcaf\u00e9!!(na\u00efve) \"NA\u00cfVE\"\r\n_under_score_ x\u000By ~end";
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+
+        HashWords mapped = new HashWords(17);
+        long tokens = new MappedTokenizer().tokenize(file, mapped);
+
+        assertEquals("Nine words", 9, tokens);
+        assertEquals("Frequency of 'caf\u00e9' should be 2", 2, mapped.frequency("CAF\u00c9"));
+        assertEquals("Frequency of 'na\u00efve' should be 2", 2, mapped.frequency("na\u00efve"));
+        assertSameCounts(scannerCounts(file.toFile()), mapped, "under", "score", "x", "y", "end");
+    }
+
+    /**
+     * Test an empty file and a file of delimiters only.
+     * 
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    public void testNoWords() throws IOException {
+        HashWords mapped = new HashWords(17);
+        assertEquals("Empty file has no words", 0, new MappedTokenizer().tokenize(file, mapped));
+
+        Files.write(file, " ,.;\n\t".getBytes(StandardCharsets.US_ASCII));
+        assertEquals("Delimiters only", 0, new MappedTokenizer(2).tokenize(file, mapped));
+        assertEquals("Nothing was added", 0, mapped.totalNumOfWords());
+    }
+}
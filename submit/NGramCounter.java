@@ -0,0 +1,379 @@
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Counts n-grams (runs of 2 to {@code maxN} consecutive words) alongside the
+ * single words of a text. Every word is counted into a dictionary
+ * {@link HashWords} table and the ids it hands out are used as the keys of
+ * the n-grams, so an n-gram is stored as n ints rather than as a
+ * concatenated String and counting one allocates nothing.
+ * 
+ * <p>The ids of the last {@code maxN} words are kept in a sliding window.
+ * The hashes of the n-grams ending at the newest word are combined from the
+ * newest id backwards, so each order costs one more step than the order
+ * below it. The n-grams are kept in an open-addressing table of parallel
+ * arrays with linear probing: the ids of slot i at
+ * {@code grams[i * maxN ...]}, its order, full hash and count.
+ * 
+ * <p>{@link #endSequence()} empties the window, so n-grams do not span the
+ * end of one document and the start of the next.
+ * 
+ * @author Zander Polk
+ */
+public class NGramCounter {
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private final int maxN;
+    private final HashWords dictionary;
+    private final int[] window;   // Ids of the last words, newest at maxN - 1
+    private int windowFill;       // Words in the window
+
+    private int[] grams;
+    private byte[] orders;        // Order of the n-gram in a slot, 0 if empty
+    private int[] hashes;
+    private long[] counts;
+    private int size;
+    private int used;
+    private final int[] uniqueByOrder;
+    private final long[] totalByOrder;
+
+    /**
+     * Creates a counter with its own dictionary.
+     * 
+     * @param maxN the longest n-gram to count, at least 2
+     * @throws IllegalArgumentException if maxN is out of range
+     */
+    public NGramCounter(int maxN) {
+        this(maxN, new HashWords(1024));
+    }
+
+    /**
+     * Creates a counter that counts its words into the given table, e.g. one
+     * that is queried for single-word counts elsewhere. Words must not be
+     * removed from the dictionary, since the ids of its words are the keys
+     * of the n-grams.
+     * 
+     * @param maxN the longest n-gram to count, from 2 to 127
+     * @param dictionary the table the words are counted into
+     * @throws IllegalArgumentException if maxN is out of range
+     */
+    public NGramCounter(int maxN, HashWords dictionary) {
+        if (maxN < 2 || maxN > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("maxN must be in [2, 127]: " + maxN);
+        }
+        this.maxN = maxN;
+        this.dictionary = dictionary;
+        this.window = new int[maxN];
+        this.size = 1024;
+        this.grams = new int[size * maxN];
+        this.orders = new byte[size];
+        this.hashes = new int[size];
+        this.counts = new long[size];
+        this.uniqueByOrder = new int[maxN + 1];
+        this.totalByOrder = new long[maxN + 1];
+    }
+
+    /**
+     * Returns the longest n-gram counted.
+     * 
+     * @return maxN
+     */
+    public int maxN() {
+        return maxN;
+    }
+
+    /**
+     * Returns the table the single words are counted into.
+     * 
+     * @return the dictionary
+     */
+    public HashWords dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Counts the next word of the text, and every n-gram it ends.
+     * 
+     * @param w the word
+     */
+    public void addWord(CharSequence w) {
+        int id = dictionary.addWordForId(w);
+        System.arraycopy(window, 1, window, 0, maxN - 1);
+        window[maxN - 1] = id;
+        if (windowFill < maxN) {
+            windowFill++;
+        }
+
+        int hash = seed(id);
+        for (int n = 2; n <= windowFill; n++) {
+            hash = combine(hash, window[maxN - n]);
+            add(window, maxN - n, n, hash);
+        }
+    }
+
+    /**
+     * Ends the current sequence of words: the next word starts new n-grams
+     * instead of continuing the ones before it.
+     */
+    public void endSequence() {
+        windowFill = 0;
+    }
+
+    /**
+     * Starts the hash of an n-gram with its last word.
+     * 
+     * @param id the id of the last word
+     * @return the hash of that word alone
+     */
+    private static int seed(int id) {
+        return id * 0x9E3779B9;
+    }
+
+    /**
+     * Extends the hash of an n-gram with the word before it.
+     * 
+     * @param hash the hash of the n-gram
+     * @param id the id of the word before it
+     * @return the hash of the longer n-gram
+     */
+    private static int combine(int hash, int id) {
+        return (Integer.rotateLeft(hash, 5) ^ id) * 0x9E3779B9;
+    }
+
+    /**
+     * Maps a full hash onto the table. The hash is mixed first, since
+     * {@link #combine} leaves the low bits weak.
+     * 
+     * @param hash the full hash of an n-gram
+     * @param tableSize the number of slots, a power of two
+     * @return the home slot
+     */
+    private static int home(int hash, int tableSize) {
+        int h = hash ^ hash >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h & (tableSize - 1);
+    }
+
+    /**
+     * Counts one occurrence of an n-gram.
+     * 
+     * @param ids holds the ids of the n-gram
+     * @param from the index of its first id
+     * @param n its order
+     * @param hash its full hash
+     */
+    private void add(int[] ids, int from, int n, int hash) {
+        totalByOrder[n]++;
+        int key = find(ids, from, n, hash);
+        if (orders[key] != 0) {
+            counts[key]++;
+            return;
+        }
+        System.arraycopy(ids, from, grams, key * maxN, n);
+        orders[key] = (byte) n;
+        hashes[key] = hash;
+        counts[key] = 1;
+        uniqueByOrder[n]++;
+        if (++used >= size * MAX_LOAD_FACTOR) {
+            grow();
+        }
+    }
+
+    /**
+     * Returns the slot holding an n-gram, or the empty slot where it would
+     * go.
+     * 
+     * @param ids holds the ids of the n-gram
+     * @param from the index of its first id
+     * @param n its order
+     * @param hash its full hash
+     * @return a slot of the table
+     */
+    private int find(int[] ids, int from, int n, int hash) {
+        int key = home(hash, size);
+        while (orders[key] != 0) {
+            if (hashes[key] == hash && orders[key] == n
+                    && Arrays.equals(grams, key * maxN, key * maxN + n, ids, from, from + n)) {
+                return key;
+            }
+            key = (key + 1) & (size - 1);
+        }
+        return key;
+    }
+
+    /**
+     * Doubles the table, reusing the cached hashes.
+     */
+    private void grow() {
+        int[] oldGrams = grams;
+        byte[] oldOrders = orders;
+        int[] oldHashes = hashes;
+        long[] oldCounts = counts;
+        int oldSize = size;
+
+        size *= 2;
+        grams = new int[size * maxN];
+        orders = new byte[size];
+        hashes = new int[size];
+        counts = new long[size];
+        for (int i = 0; i < oldSize; i++) {
+            if (oldOrders[i] != 0) {
+                int key = home(oldHashes[i], size);
+                while (orders[key] != 0) {
+                    key = (key + 1) & (size - 1);
+                }
+                System.arraycopy(oldGrams, i * maxN, grams, key * maxN, oldOrders[i]);
+                orders[key] = oldOrders[i];
+                hashes[key] = oldHashes[i];
+                counts[key] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Returns how many times a sequence of words was counted, e.g.
+     * {@code frequency("of", "the")}. Case is ignored.
+     * 
+     * @param words 2 to maxN words
+     * @return the count of the n-gram; 0 if it was never seen
+     * @throws IllegalArgumentException if the number of words is out of range
+     */
+    public long frequency(String... words) {
+        int n = checkOrder(words.length);
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = dictionary.idOf(words[i]);
+            if (ids[i] < 0) {
+                return 0;  // A word never seen is in no n-gram
+            }
+        }
+        int hash = seed(ids[n - 1]);
+        for (int i = n - 2; i >= 0; i--) {
+            hash = combine(hash, ids[i]);
+        }
+        int key = find(ids, 0, n, hash);
+        return orders[key] != 0 ? counts[key] : 0;
+    }
+
+    /**
+     * Returns the number of different n-grams of one order.
+     * 
+     * @param n the order, from 2 to maxN
+     * @return the number of distinct n-grams seen
+     * @throws IllegalArgumentException if n is out of range
+     */
+    public int numUniqueNGrams(int n) {
+        return uniqueByOrder[checkOrder(n)];
+    }
+
+    /**
+     * Returns the number of n-grams of one order counted so far.
+     * 
+     * @param n the order, from 2 to maxN
+     * @return the sum of the counts of those n-grams
+     * @throws IllegalArgumentException if n is out of range
+     */
+    public long totalNGrams(int n) {
+        return totalByOrder[checkOrder(n)];
+    }
+
+    /**
+     * Returns the k most common n-grams of one order, highest count first,
+     * ties ordered alphabetically word by word. The words of each n-gram are
+     * joined with single spaces. Scans the table once, keeping the best k in
+     * a heap.
+     * 
+     * @param n the order, from 2 to maxN
+     * @param k the number of n-grams wanted
+     * @return at most k n-grams with their counts
+     * @throws IllegalArgumentException if n is out of range or k is negative
+     */
+    public WordFrequency[] topK(int n, int k) {
+        checkOrder(n);
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        // Worst of the best k on top, so it is the one replaced
+        PriorityQueue<Integer> best = new PriorityQueue<>((a, b) -> compare(b, a));
+        for (int i = 0; i < size && k > 0; i++) {
+            if (orders[i] == n) {
+                if (best.size() < k) {
+                    best.add(i);
+                } else if (compare(i, best.peek()) < 0) {
+                    best.poll();
+                    best.add(i);
+                }
+            }
+        }
+        WordFrequency[] top = new WordFrequency[best.size()];
+        for (int j = top.length - 1; j >= 0; j--) {
+            int slot = best.poll();
+            top[j] = new WordFrequency(text(slot), counts[slot]);
+        }
+        return top;
+    }
+
+    /**
+     * Orders two slots of the same order for {@link #topK}.
+     * 
+     * @param a a slot
+     * @param b another slot
+     * @return negative if a ranks before b
+     */
+    private int compare(int a, int b) {
+        if (counts[a] != counts[b]) {
+            return Long.compare(counts[b], counts[a]);
+        }
+        for (int j = 0; j < orders[a]; j++) {
+            int c = dictionary.wordOf(grams[a * maxN + j])
+                    .compareTo(dictionary.wordOf(grams[b * maxN + j]));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Joins the words of the n-gram in a slot.
+     * 
+     * @param slot an occupied slot
+     * @return the words separated by spaces
+     */
+    private String text(int slot) {
+        StringBuilder text = new StringBuilder();
+        for (int j = 0; j < orders[slot]; j++) {
+            if (j > 0) {
+                text.append(' ');
+            }
+            text.append(dictionary.wordOf(grams[slot * maxN + j]));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Checks that an order is counted.
+     * 
+     * @param n the order
+     * @return n
+     * @throws IllegalArgumentException if n is not in [2, maxN]
+     */
+    private int checkOrder(int n) {
+        if (n < 2 || n > maxN) {
+            throw new IllegalArgumentException("n must be in [2, " + maxN + "]: " + n);
+        }
+        return n;
+    }
+
+    /**
+     * Estimates the heap used by the n-gram table, not counting the
+     * dictionary.
+     * 
+     * @return the estimated size in bytes
+     */
+    public long estimatedBytes() {
+        return 16 + 4L * grams.length + 16 + orders.length + 16 + 4L * hashes.length
+                + 16 + 8L * counts.length;
+    }
+}
@@ -0,0 +1,157 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the NGramCounter class.
+ */
+public class NGramCounterTest {
+    private NGramCounter counter;
+
+    /**
+     * Setup method, creates a bigram and trigram counter for each test.
+     */
+    @Before
+    public void setup() {
+        counter = new NGramCounter(3);
+    }
+
+    /**
+     * Counts the words of a text, split on spaces.
+     * 
+     * @param text the text
+     */
+    private void add(String text) {
+        for (String w : text.split(" ")) {
+            counter.addWord(w);
+        }
+    }
+
+    /**
+     * Test bigram and trigram counts, and the single words in the dictionary.
+     */
+    @Test
+    public void testFrequencies() {
+        add("The cat sat on the mat the cat ran");
+        assertEquals("'the cat'", 2, counter.frequency("the", "cat"));
+        assertEquals("Case is ignored", 2, counter.frequency("THE", "Cat"));
+        assertEquals("'cat sat'", 1, counter.frequency("cat", "sat"));
+        assertEquals("Order matters", 0, counter.frequency("cat", "the"));
+        assertEquals("'the cat sat'", 1, counter.frequency("the", "cat", "sat"));
+        assertEquals("'mat the cat'", 1, counter.frequency("mat", "the", "cat"));
+        assertEquals("Unknown word", 0, counter.frequency("the", "dog"));
+        assertEquals("Word 'the'", 3, counter.dictionary().frequency("the"));
+
+        assertEquals("Bigrams counted", 8, counter.totalNGrams(2));
+        assertEquals("Trigrams counted", 7, counter.totalNGrams(3));
+        assertEquals("Distinct bigrams", 7, counter.numUniqueNGrams(2));
+        assertEquals("Distinct trigrams", 7, counter.numUniqueNGrams(3));
+    }
+
+    /**
+     * Test that n-grams do not span the end of a sequence.
+     */
+    @Test
+    public void testEndSequence() {
+        add("we the people");
+        counter.endSequence();
+        add("people of the");
+        assertEquals("No bigram across the break", 0, counter.frequency("people", "people"));
+        assertEquals("No trigram across the break", 0, counter.frequency("the", "people", "people"));
+        assertEquals("Bigrams", 4, counter.totalNGrams(2));
+        assertEquals("Trigrams", 2, counter.totalNGrams(3));
+        assertEquals("Words still counted", 2, counter.dictionary().frequency("people"));
+    }
+
+    /**
+     * Test top-k order: by count, then alphabetically word by word.
+     */
+    @Test
+    public void testTopK() {
+        add("a b a b a b c d c d x y");
+        WordFrequency[] top = counter.topK(2, 4);
+        assertEquals("Four bigrams", 4, top.length);
+        assertEquals("Most common", "a b", top[0].getWord());
+        assertEquals("Its count", 3, top[0].getLongCount());
+        assertEquals("Then 'b a'", "b a", top[1].getWord());
+        assertEquals("Then 'c d'", "c d", top[2].getWord());
+        assertEquals("Tie broken alphabetically", "b c", top[3].getWord());
+        assertEquals("All trigrams", counter.numUniqueNGrams(3), counter.topK(3, 100).length);
+        assertEquals("None asked for", 0, counter.topK(2, 0).length);
+    }
+
+    /**
+     * Test many distinct n-grams against concatenated keys in a HashMap.
+     */
+    @Test
+    public void testAgainstReference() {
+        Random random = new Random(23);
+        String[] tokens = new String[50_000];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = "w" + (int) Math.min(2000, Math.abs(random.nextGaussian()) * 300);
+        }
+        Map<String, Long> bigrams = new HashMap<>();
+        Map<String, Long> trigrams = new HashMap<>();
+        for (int i = 0; i < tokens.length; i++) {
+            counter.addWord(tokens[i]);
+            if (i >= 1) {
+                bigrams.merge(tokens[i - 1] + " " + tokens[i], 1L, Long::sum);
+            }
+            if (i >= 2) {
+                trigrams.merge(tokens[i - 2] + " " + tokens[i - 1] + " " + tokens[i], 1L, Long::sum);
+            }
+        }
+        assertEquals("Distinct bigrams", bigrams.size(), counter.numUniqueNGrams(2));
+        assertEquals("Distinct trigrams", trigrams.size(), counter.numUniqueNGrams(3));
+        for (Map.Entry<String, Long> e : bigrams.entrySet()) {
+            assertEquals(e.getKey(), (long) e.getValue(), counter.frequency(e.getKey().split(" ")));
+        }
+        for (Map.Entry<String, Long> e : trigrams.entrySet()) {
+            assertEquals(e.getKey(), (long) e.getValue(), counter.frequency(e.getKey().split(" ")));
+        }
+        WordFrequency top = counter.topK(2, 1)[0];
+        assertEquals("Top bigram count", bigrams.values().stream().mapToLong(Long::longValue).max()
+                .getAsLong(), top.getLongCount());
+    }
+
+    /**
+     * Test that the dictionary can be a table counted elsewhere.
+     */
+    @Test
+    public void testSharedDictionary() {
+        HashWords words = new HashWords(8);
+        words.addWord("hello");
+        NGramCounter bigrams = new NGramCounter(2, words);
+        bigrams.addWord("hello");
+        bigrams.addWord("world");
+        assertSame("Shared", words, bigrams.dictionary());
+        assertEquals("Counted into the shared table", 2, words.frequency("hello"));
+        assertEquals("Bigram", 1, bigrams.frequency("hello", "world"));
+    }
+
+    /**
+     * Test that a single word is not an n-gram.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testFrequencyOfOneWord() {
+        counter.frequency("the");
+    }
+
+    /**
+     * Test that orders above maxN are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testOrderAboveMax() {
+        counter.topK(4, 10);
+    }
+
+    /**
+     * Test that unigram counters are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxNTooSmall() {
+        new NGramCounter(1);
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * The sizing and deletion rules shared by the open-addressing tables,
+ * {@link HashWords} and {@link OpenAddressingCounter}, so both grow, shrink
+ * and close removal gaps the same way. Each table keeps its own slot arrays
+ * and loops; only the decisions live here.
+ * 
+ * @author Zander Polk
+ */
+final class OpenAddressing {
+    /**
+     * Not instantiable.
+     */
+    private OpenAddressing() {
+    }
+
+    /**
+     * Returns the size to grow a full table to.
+     * 
+     * @param size the current number of slots
+     * @param growthFactor the factor the size is multiplied by, above 1
+     * @return the wanted number of slots, before rounding to a valid size
+     */
+    static int grownSize(int size, double growthFactor) {
+        return Math.max(size + 1, (int) Math.ceil(size * growthFactor));
+    }
+
+    /**
+     * Should a table shrink after a removal? It does once it is less than a
+     * quarter as full as its load factor allows, so a table hovering around
+     * one size does not shrink and grow back on every few updates.
+     * 
+     * @param size the current number of slots
+     * @param minSize the size the table never shrinks below
+     * @param live the number of keys left
+     * @param maxLoadFactor the fraction of slots in use that makes it grow
+     * @return true if the table should shrink
+     */
+    static boolean shouldShrink(int size, int minSize, int live, double maxLoadFactor) {
+        return size > minSize && live < size * maxLoadFactor / 4;
+    }
+
+    /**
+     * Returns the size to shrink a table to: about half the maximum load.
+     * 
+     * @param minSize the size the table never shrinks below
+     * @param live the number of keys left
+     * @param maxLoadFactor the fraction of slots in use that makes it grow
+     * @return the wanted number of slots, before rounding to a valid size
+     */
+    static int shrunkSize(int minSize, int live, double maxLoadFactor) {
+        return Math.max(minSize, (int) Math.ceil(live * 2 / maxLoadFactor));
+    }
+
+    /**
+     * Can the key in a slot move back into the gap left by a removal? Under
+     * linear probing it can if the gap lies between its home slot and its
+     * slot, wrapping around the end of the table; otherwise a lookup
+     * starting at its home would stop at the gap or never reach it.
+     * 
+     * @param home the home slot of the key
+     * @param slot the slot the key is in
+     * @param hole the empty slot before it in the same cluster
+     * @param size the number of slots
+     * @return true if the key may be moved into the hole
+     */
+    static boolean mayShiftBack(int home, int slot, int hole, int size) {
+        return (slot - home + size) % size >= (slot - hole + size) % size;
+    }
+}
@@ -0,0 +1,305 @@
+/**
+ * The key-independent part of an open-addressing counting table, shared by
+ * {@link IntCounter} and {@link LongCounter}: the per-slot counts, growing
+ * and shrinking, removal and the totals. Subclasses keep the keys in a
+ * primitive array parallel to {@link #counts} and do their own probing, so
+ * the hot path compares primitives and never boxes.
+ * 
+ * <p>The table is a power of two and probed linearly. A slot is empty when
+ * its count is 0, which a live key never has, so keys need no sentinel value
+ * and every int or long can be counted. Counts are stored as in
+ * {@link HashWords}: inline in an int, or {@code ~i} for an
+ * {@link OverflowCounts} entry once they pass Integer.MAX_VALUE. Removal uses
+ * backward-shift deletion, so there are no tombstones. When to grow and
+ * shrink and which keys may shift back follow {@link OpenAddressing}, as in
+ * {@link HashWords}.
+ * 
+ * @author Zander Polk
+ */
+abstract class OpenAddressingCounter {
+    /** Slots of a counter created without a size. */
+    static final int DEFAULT_INITIAL_SIZE = 16;
+
+    private static final int MAX_SIZE = 1 << 30;
+
+    /** The count of each slot, inline or ~i for an overflow count; 0 if empty. */
+    int[] counts;
+    /** counts.length - 1, to turn a hash into a slot. */
+    int mask;
+
+    private final OverflowCounts overflow = new OverflowCounts();
+    private final int minSize;          // The table never shrinks below its initial size
+    private final double maxLoadFactor;
+    private int growAt;
+    private int uniqueKeys;
+    private long total;
+
+    /**
+     * Creates an empty table.
+     * 
+     * @param initialSize the number of slots, rounded up to a power of two
+     * @param maxLoadFactor the fraction of slots in use that triggers a resize
+     * @throws IllegalArgumentException if either is out of range
+     */
+    OpenAddressingCounter(int initialSize, double maxLoadFactor) {
+        if (initialSize < 1 || initialSize > MAX_SIZE) {
+            throw new IllegalArgumentException("initialSize must be in [1, 2^30]: " + initialSize);
+        }
+        if (!(maxLoadFactor > 0 && maxLoadFactor <= 1)) {
+            throw new IllegalArgumentException("maxLoadFactor must be in (0, 1]: " + maxLoadFactor);
+        }
+        this.maxLoadFactor = maxLoadFactor;
+        this.minSize = tableSizeFor(initialSize);
+        allocate(minSize);
+    }
+
+    /**
+     * Rounds a size up to a power of two.
+     * 
+     * @param requested the wanted number of slots, at least 1
+     * @return the table size
+     */
+    private static int tableSizeFor(int requested) {
+        return requested <= 1 ? 1 : Integer.highestOneBit(requested - 1) << 1;
+    }
+
+    /**
+     * Makes counts an empty array of the given size.
+     * 
+     * @param size a power of two
+     */
+    private void allocate(int size) {
+        counts = new int[size];
+        mask = size - 1;
+        // Keep one slot empty at any load factor, so every probe ends
+        growAt = Math.min(size - 1, (int) (size * maxLoadFactor));
+    }
+
+    /**
+     * Returns the hash the key in a slot was placed by.
+     * 
+     * @param slot an occupied slot
+     * @return the mixed hash of its key
+     */
+    abstract int hashAt(int slot);
+
+    /**
+     * Moves a key to another slot; the count is moved by the caller.
+     * 
+     * @param from the slot of the key
+     * @param to an empty slot
+     */
+    abstract void moveKey(int from, int to);
+
+    /**
+     * Puts the keys of the old table into the current one, which has just
+     * been allocated empty, using {@link #emptySlotFor(int)}.
+     * 
+     * @param oldCounts the counts of the old table, parallel to its keys
+     */
+    abstract void rehash(int[] oldCounts);
+
+    /**
+     * Orders the keys of two slots, for breaking ties between equal counts.
+     * 
+     * @param a an occupied slot
+     * @param b another occupied slot
+     * @return true if the key in a comes before the key in b
+     */
+    abstract boolean keyBefore(int a, int b);
+
+    /**
+     * Checks the count passed to an add.
+     * 
+     * @param count the number of occurrences to add
+     * @throws IllegalArgumentException if count is less than 1
+     */
+    static void checkCount(long count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive: " + count);
+        }
+    }
+
+    /**
+     * Returns the count of a slot.
+     * 
+     * @param slot an occupied slot
+     * @return its count
+     */
+    final long countAt(int slot) {
+        return overflow.countOf(counts[slot]);
+    }
+
+    /**
+     * Adds occurrences to the key in a slot.
+     * 
+     * @param slot an occupied slot
+     * @param count the number of occurrences to add, at least 1
+     * @return the new count
+     */
+    final long addAt(int slot, long count) {
+        total += count;
+        int c = overflow.add(counts[slot], count);
+        counts[slot] = c;
+        return c >= 0 ? c : overflow.countOf(c);
+    }
+
+    /**
+     * Stores the count of a key just written to an empty slot, growing the
+     * table if it is now full. The slot is not valid afterwards.
+     * 
+     * @param slot the slot the key was written to
+     * @param count its count, at least 1
+     */
+    final void insertAt(int slot, long count) {
+        total += count;
+        counts[slot] = overflow.add(0, count);
+        if (++uniqueKeys > growAt) {
+            if (counts.length == MAX_SIZE) {
+                throw new IllegalStateException("Counter is full: " + uniqueKeys + " keys");
+            }
+            resize(tableSizeFor(OpenAddressing.grownSize(counts.length, 2.0)));
+        }
+    }
+
+    /**
+     * Takes one occurrence away from the key in a slot, removing the key if
+     * its count drops to 0.
+     * 
+     * @param slot an occupied slot
+     * @return the count afterwards
+     */
+    final long decrementAt(int slot) {
+        long count = countAt(slot) - 1;
+        if (count == 0) {
+            removeAt(slot);
+            return 0;
+        }
+        total--;
+        counts[slot] = overflow.subtract(counts[slot], 1);
+        return count;
+    }
+
+    /**
+     * Removes the key in a slot with all of its occurrences, and shrinks the
+     * table if it is mostly empty.
+     * 
+     * @param slot an occupied slot
+     * @return the count the key had
+     */
+    final long removeAt(int slot) {
+        long count = countAt(slot);
+        total -= count;
+        overflow.release(counts[slot]);
+        uniqueKeys--;
+        backwardShift(slot);
+        if (OpenAddressing.shouldShrink(counts.length, minSize, uniqueKeys, maxLoadFactor)) {
+            resize(tableSizeFor(OpenAddressing.shrunkSize(minSize, uniqueKeys, maxLoadFactor)));
+        }
+        return count;
+    }
+
+    /**
+     * Closes the gap left by a removed key: each following key of the
+     * cluster that may sit in the gap is moved back into it, leaving a new
+     * gap where it was, until an empty slot ends the cluster.
+     * 
+     * @param hole the slot of the removed key
+     */
+    private void backwardShift(int hole) {
+        for (int slot = (hole + 1) & mask; counts[slot] != 0; slot = (slot + 1) & mask) {
+            if (OpenAddressing.mayShiftBack(hashAt(slot) & mask, slot, hole, counts.length)) {
+                counts[hole] = counts[slot];
+                moveKey(slot, hole);
+                hole = slot;
+            }
+        }
+        counts[hole] = 0;
+    }
+
+    /**
+     * Replaces the table with an empty one of the given size and moves every
+     * key into it.
+     * 
+     * @param newSize a power of two above the number of keys
+     */
+    private void resize(int newSize) {
+        int[] oldCounts = counts;
+        allocate(newSize);
+        rehash(oldCounts);
+    }
+
+    /**
+     * Finds the first empty slot of a probe sequence, for placing a key that
+     * is known not to be in the table.
+     * 
+     * @param hash the mixed hash of the key
+     * @return an empty slot
+     */
+    final int emptySlotFor(int hash) {
+        int slot = hash & mask;
+        while (counts[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Finds the slot with the highest count, the smallest key among equal
+     * counts. Scans the whole table.
+     * 
+     * @return that slot, or -1 if the table is empty
+     */
+    final int mostCommonSlot() {
+        int best = -1;
+        long bestCount = 0;
+        for (int slot = 0; slot < counts.length; slot++) {
+            if (counts[slot] != 0) {
+                long count = countAt(slot);
+                if (count > bestCount || count == bestCount && keyBefore(slot, best)) {
+                    best = slot;
+                    bestCount = count;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the number of slots.
+     * 
+     * @return the size of the table, a power of two
+     */
+    public int size() {
+        return counts.length;
+    }
+
+    /**
+     * Returns the number of distinct keys.
+     * 
+     * @return the number of keys with a count above 0
+     */
+    public int numUniqueKeys() {
+        return uniqueKeys;
+    }
+
+    /**
+     * Returns the sum of all counts.
+     * 
+     * @return the number of occurrences added and not taken away
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Estimates the heap retained by the table, assuming 16-byte array
+     * headers.
+     * 
+     * @param keyBytes the bytes of one key
+     * @return the estimated size in bytes
+     */
+    final long estimatedBytes(int keyBytes) {
+        return 2 * 16 + (4L + keyBytes) * counts.length + overflow.estimatedBytes();
+    }
+}
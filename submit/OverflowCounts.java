@@ -0,0 +1,114 @@
+import java.util.Arrays;
+
+/**
+ * The count storage of the open-addressing tables: one int per slot that is
+ * either the count itself or, once the count no longer fits in an int,
+ * {@code ~i} for entry i of a shared long[] of overflow counts. Nearly every
+ * count stays inline, so the slots cost 4 bytes each while counts can still
+ * reach Long.MAX_VALUE. Freed overflow entries are chained through their
+ * own values and reused.
+ * 
+ * <p>Used by {@link HashWords} and by {@link OpenAddressingCounter}, the
+ * core of {@link IntCounter} and {@link LongCounter}.
+ * 
+ * @author Zander Polk
+ */
+final class OverflowCounts {
+    private long[] counts = new long[0];
+    private int used;
+    private int live;
+    private int free = -1;
+
+    /**
+     * Returns the count a slot value stands for.
+     * 
+     * @param slotCount the int stored in a slot
+     * @return the count, inline or from the overflow counts
+     */
+    long countOf(int slotCount) {
+        return slotCount >= 0 ? slotCount : counts[~slotCount];
+    }
+
+    /**
+     * Adds to the count a slot value stands for, promoting it to an overflow
+     * count once it no longer fits in an int.
+     * 
+     * @param slotCount the int stored in a slot
+     * @param delta the number of occurrences to add, at least 0
+     * @return the new slot value
+     */
+    int add(int slotCount, long delta) {
+        if (slotCount < 0) {
+            counts[~slotCount] += delta;
+            return slotCount;
+        }
+        long count = slotCount + delta;
+        if (count <= Integer.MAX_VALUE) {
+            return (int) count;
+        }
+        int i = free;
+        if (i >= 0) {
+            free = (int) counts[i];
+        } else {
+            if (used == counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(4, used * 2));
+            }
+            i = used++;
+        }
+        counts[i] = count;
+        live++;
+        return ~i;
+    }
+
+    /**
+     * Takes occurrences away from the count a slot value stands for, moving
+     * it back inline once it fits in an int again.
+     * 
+     * @param slotCount the int stored in a slot
+     * @param delta the number of occurrences to take away, less than the count
+     * @return the new slot value
+     */
+    int subtract(int slotCount, long delta) {
+        if (slotCount >= 0) {
+            return slotCount - (int) delta;
+        }
+        long count = counts[~slotCount] - delta;
+        if (count > Integer.MAX_VALUE) {
+            counts[~slotCount] = count;
+            return slotCount;
+        }
+        release(slotCount);
+        return (int) count;
+    }
+
+    /**
+     * Frees the overflow count of a slot value, if it has one.
+     * 
+     * @param slotCount the int stored in a slot that is being dropped
+     */
+    void release(int slotCount) {
+        if (slotCount < 0) {
+            counts[~slotCount] = free;
+            free = ~slotCount;
+            live--;
+        }
+    }
+
+    /**
+     * Returns the number of overflow counts in use.
+     * 
+     * @return the number of slot values below 0
+     */
+    int live() {
+        return live;
+    }
+
+    /**
+     * Returns the heap used by the overflow counts.
+     * 
+     * @return the estimated size in bytes
+     */
+    long estimatedBytes() {
+        return 16 + 8L * counts.length;
+    }
+}
@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the words of one large file on several cores. The file is split into
+ * byte ranges that end on a delimiter, each range is counted into its own
+ * {@link HashWords} by a {@link MappedTokenizer}, and the partial tables are
+ * combined with {@link HashWords#merge(HashWords)} as the fork/join tasks
+ * complete. The result has the same counts as a sequential run.
+ * 
+ * @author Zander Polk
+ */
+public class ParallelTokenizer {
+    /** Default smallest range, in bytes, that is still split in two. */
+    public static final long DEFAULT_MIN_CHUNK = 4 << 20;
+
+    private final ForkJoinPool pool;
+    private final long minChunk;
+
+    /**
+     * Creates a tokenizer that runs on the common fork/join pool.
+     */
+    public ParallelTokenizer() {
+        this(ForkJoinPool.commonPool(), DEFAULT_MIN_CHUNK);
+    }
+
+    /**
+     * Creates a tokenizer that runs on the given pool.
+     * 
+     * @param pool the pool running the counting tasks
+     * @param minChunk ranges of at most this many bytes are counted by one task
+     * @throws IllegalArgumentException if minChunk is not positive
+     */
+    public ParallelTokenizer(ForkJoinPool pool, long minChunk) {
+        if (minChunk < 1) {
+            throw new IllegalArgumentException("minChunk must be positive: " + minChunk);
+        }
+        this.pool = pool;
+        this.minChunk = minChunk;
+    }
+
+    /**
+     * Counts every word of a file.
+     * 
+     * @param file the text file
+     * @return a table holding the counts of the whole file
+     * @throws IOException if the file cannot be read
+     */
+    public HashWords tokenize(Path file) throws IOException {
+        return tokenize(file, false);
+    }
+
+    /**
+     * Counts every word of a file, optionally recording rehash and probe
+     * counters. Each partial table records its own, and
+     * {@link HashWords#merge(HashWords)} adds them up, so the stats of the
+     * result cover the whole run.
+     * 
+     * @param file the text file
+     * @param stats true to enable stats on every table
+     * @return a table holding the counts of the whole file
+     * @throws IOException if the file cannot be read
+     */
+    public HashWords tokenize(Path file, boolean stats) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return pool.invoke(new CountTask(channel, 0, channel.size(), stats));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Finds the first delimiter at or after a position, so a range ending
+     * there does not cut a word in two.
+     * 
+     * @param channel the file
+     * @param position where to start looking
+     * @param end the end of the enclosing range
+     * @return the index of the delimiter, or end if there is none
+     * @throws IOException if the file cannot be read
+     */
+    static long nextDelimiter(FileChannel channel, long position, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        while (position < end) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return end;
+            }
+            for (int i = 0; i < read && position + i < end; i++) {
+                if (MappedTokenizer.isDelimiter(buffer.get(i))) {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+        return end;
+    }
+
+    /**
+     * Counts the range [start, end), splitting it in two while it is larger
+     * than the minimum chunk.
+     */
+    private final class CountTask extends RecursiveTask<HashWords> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final boolean stats;
+
+        CountTask(FileChannel channel, long start, long end, boolean stats) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.stats = stats;
+        }
+
+        @Override
+        protected HashWords compute() {
+            try {
+                if (end - start > minChunk) {
+                    long middle = nextDelimiter(channel, start + (end - start) / 2, end);
+                    if (middle < end) {
+                        CountTask right = new CountTask(channel, middle, end, stats);
+                        right.fork();
+                        HashWords left = new CountTask(channel, start, middle, stats).compute();
+                        HashWords other = right.join();
+
+                        // Merge the smaller table into the larger one
+                        if (left.numUniqueWordsInTable() < other.numUniqueWordsInTable()) {
+                            other.merge(left);
+                            return other;
+                        }
+                        left.merge(other);
+                        return left;
+                    }
+                }
+                HashWords table = new HashWords(1024);
+                table.setStatsEnabled(stats);
+                new MappedTokenizer().tokenize(channel, start, end, table);
+                return table;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the ParallelTokenizer class.
+ * The merged result must match a sequential run exactly.
+ */
+public class ParallelTokenizerTest {
+    private static final String[] WORDS = {"the", "Freedom", "ring", "dream", "Let",
+        "we", "will", "be", "able", "NATION", "day", "of", "and"};
+
+    private Path file;
+    private ForkJoinPool pool;
+
+    /**
+     * Setup method, writes a text of random words and creates a pool.
+     * 
+     * @throws IOException if the file cannot be written
+     */
+    @Before
+    public void setup() throws IOException {
+        file = Files.createTempFile("parallel", ".txt");
+        Random random = new Random(7);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+            if (random.nextInt(5) == 0) {
+                text.append(random.nextInt(300));
+            }
+            text.append(random.nextInt(8) == 0 ? ", " : (i % 12 == 11 ? ".\n" : " "));
+        }
+        Files.write(file, text.toString().getBytes(StandardCharsets.US_ASCII));
+        pool = new ForkJoinPool(4);
+    }
+
+    /**
+     * Deletes the file and stops the pool.
+     * 
+     * @throws IOException if the file cannot be deleted
+     */
+    @After
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Test that small ranges merged together give the sequential result.
+     * 
+     * @throws IOException if the file cannot be read
+     */
+    @Test
+    public void testMatchesSequentialResult() throws IOException {
+        HashWords sequential = new HashWords(17);
+        new MappedTokenizer().tokenize(file, sequential);
+
+        HashWords parallel = new ParallelTokenizer(pool, 100).tokenize(file);
+
+        assertEquals("Same total number of words",
+                sequential.totalNumOfWords(), parallel.totalNumOfWords());
+        assertEquals("Same number of unique words",
+                sequential.numUniqueWordsInTable(), parallel.numUniqueWordsInTable());
+        assertEquals("Same most common word", sequential.mostCommonWord(), parallel.mostCommonWord());
+        for (String w : WORDS) {
+            assertEquals("Same term frequency of '" + w + "'",
+                    sequential.termFrequency(w), parallel.termFrequency(w), 0.0);
+            assertEquals("Same frequency of '" + w + "7'",
+                    sequential.frequency(w + "7"), parallel.frequency(w + "7"));
+        }
+    }
+
+    /**
+     * Test that stats asked for cover every partial table.
+     * 
+     * @throws IOException if the file cannot be read
+     */
+    @Test
+    public void testStats() throws IOException {
+        HashWords parallel = new ParallelTokenizer(pool, 100).tokenize(file, true);
+        assertTrue("Stats enabled on the result", parallel.isStatsEnabled());
+        HashWordsStats stats = parallel.stats();
+        long probes = 0;
+        for (int i = 0; i < HashWordsStats.HISTOGRAM_BUCKETS; i++) {
+            probes += stats.hitProbeHistogram()[i] + stats.missProbeHistogram()[i];
+        }
+        assertTrue("Every token looked up", probes >= parallel.totalNumOfWords());
+        assertFalse("Off by default",
+                new ParallelTokenizer(pool, 100).tokenize(file).isStatsEnabled());
+    }
+
+    /**
+     * Test a file smaller than one range and an empty file.
+     * 
+     * @throws IOException if the file cannot be read
+     */
+    @Test
+    public void testSmallFiles() throws IOException {
+        Files.write(file, "one two, two".getBytes(StandardCharsets.US_ASCII));
+        HashWords parallel = new ParallelTokenizer(pool, 1).tokenize(file);
+        assertEquals("Total number of words should be 3", 3, parallel.totalNumOfWords());
+        assertEquals("Frequency of 'two' should be 2", 2, parallel.frequency("two"));
+
+        Files.write(file, new byte[0]);
+        parallel = new ParallelTokenizer(pool, 1).tokenize(file);
+        assertEquals("Empty file has no words", 0, parallel.totalNumOfWords());
+    }
+
+    /**
+     * Test that a range is only split on a delimiter.
+     * 
+     * @throws IOException if the file cannot be read
+     */
+    @Test
+    public void testNextDelimiter() throws IOException {
+        Files.write(file, "abcdef ghi".getBytes(StandardCharsets.US_ASCII));
+        try (FileChannel channel = FileChannel.open(file)) {
+            assertEquals("Skips to the space", 6, ParallelTokenizer.nextDelimiter(channel, 2, 10));
+            assertEquals("No delimiter before the end", 10,
+                    ParallelTokenizer.nextDelimiter(channel, 7, 10));
+        }
+    }
+}
@@ -0,0 +1,468 @@
+import java.util.Arrays;
+
+/**
+ * Autocomplete over the words of a {@link HashWords} table: the most common
+ * words that start with a prefix, e.g. {@code suggest("the", 5)}.
+ * 
+ * <p>The words are kept in a trie stored as parallel int arrays, one entry
+ * per node. The child of a node for a char is found in an open-addressing
+ * table keyed by {@code (node, char)}, so walking a prefix costs one probe per
+ * char whatever the fan-out. Every node also keeps the ids of the
+ * {@code maxSuggestions} most common words below it, best first, in
+ * {@code top[node * maxSuggestions ...]}. A suggestion walks the prefix and
+ * copies that list, so it takes time in the length of the prefix plus the
+ * number of words asked for, not the size of the vocabulary.
+ * 
+ * <p>{@link #addWord(CharSequence)} counts a word into the table and moves
+ * it up the lists on its path, which costs {@code O(length * maxSuggestions)}.
+ * Counts changed on the table directly (e.g. by
+ * {@link HashWords#decrement(String)}) are picked up with
+ * {@link #update(CharSequence)}; a word whose count drops is replaced in the
+ * lists on its path from the lists of the nodes below. Nodes are never freed,
+ * so a removed word keeps its path with a count of 0.
+ * 
+ * @author Zander Polk
+ */
+public class PrefixIndex {
+    private static final int NONE = -1;
+
+    private final HashWords table;
+    private final int maxSuggestions;
+
+    // Nodes: the word ending at the node, the first child and the next sibling
+    private int[] terminal;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] top;            // Best word ids below each node, maxSuggestions per node
+    private int[] topFill;
+    private int nodes;
+
+    // Children by (node << 16 | char) + 1, with 0 for an empty slot
+    private long[] edgeKeys;
+    private int[] edgeChildren;
+    private int edges;
+
+    // Words by id
+    private String[] words;
+    private long[] counts;
+    private int numWords;
+
+    private int[] path = new int[16];   // Nodes from the root to the last word looked up
+
+    /**
+     * Builds an index of every word in a table. The table is read once; later
+     * words must be added through {@link #addWord(CharSequence)} or picked up
+     * with {@link #update(CharSequence)}.
+     * 
+     * @param table the counted words
+     * @param maxSuggestions the most suggestions kept per prefix, from 1 to 255
+     * @throws IllegalArgumentException if maxSuggestions is out of range
+     */
+    public PrefixIndex(HashWords table, int maxSuggestions) {
+        if (maxSuggestions < 1 || maxSuggestions > 255) {
+            throw new IllegalArgumentException("maxSuggestions must be in [1, 255]: "
+                    + maxSuggestions);
+        }
+        this.table = table;
+        this.maxSuggestions = maxSuggestions;
+        int capacity = 64;
+        terminal = new int[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        top = new int[capacity * maxSuggestions];
+        topFill = new int[capacity];
+        edgeKeys = new long[capacity * 2];
+        edgeChildren = new int[capacity * 2];
+        words = new String[capacity];
+        counts = new long[capacity];
+        newNode();  // The root, for the empty prefix
+        table.forEach((word, count) -> raise(idFor(word), count));
+    }
+
+    /**
+     * Returns the table the words are counted into.
+     * 
+     * @return the table
+     */
+    public HashWords table() {
+        return table;
+    }
+
+    /**
+     * Returns the most suggestions kept per prefix.
+     * 
+     * @return maxSuggestions
+     */
+    public int maxSuggestions() {
+        return maxSuggestions;
+    }
+
+    /**
+     * Counts a word into the table and updates the suggestions on its path.
+     * 
+     * @param w the word, in any case
+     */
+    public void addWord(CharSequence w) {
+        String word = table.wordOf(table.addWordForId(w));
+        raise(idFor(word), 1);
+    }
+
+    /**
+     * Brings the index up to date with the count of a word in the table,
+     * after the table was changed without going through the index.
+     * 
+     * @param w the word, in any case
+     */
+    public void update(CharSequence w) {
+        long count = table.longFrequency(w);
+        int id = find(w);
+        if (id == NONE) {
+            if (count > 0) {
+                raise(idFor(table.wordOf(table.idOf(w))), count);
+            }
+        } else if (count > counts[id]) {
+            raise(id, count - counts[id]);
+        } else if (count < counts[id]) {
+            lower(id, counts[id] - count);
+        }
+    }
+
+    /**
+     * Returns the most common words that start with a prefix, highest count
+     * first and alphabetical among equal counts. Case is ignored.
+     * 
+     * @param prefix the start of the words; "" for the most common words
+     * @param n the number of suggestions wanted
+     * @return at most min(n, maxSuggestions()) words with their counts
+     * @throws IllegalArgumentException if n is negative
+     */
+    public WordFrequency[] suggest(CharSequence prefix, int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative: " + n);
+        }
+        int node = 0;
+        for (int i = 0; i < prefix.length() && node != NONE; i++) {
+            node = child(node, Character.toLowerCase(prefix.charAt(i)));
+        }
+        if (node == NONE) {
+            return new WordFrequency[0];
+        }
+        WordFrequency[] suggestions = new WordFrequency[Math.min(n, topFill[node])];
+        int base = node * maxSuggestions;
+        for (int i = 0; i < suggestions.length; i++) {
+            int id = top[base + i];
+            suggestions[i] = new WordFrequency(words[id], counts[id]);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns the count of a word as the index last saw it.
+     * 
+     * @param w the word, in any case
+     * @return its count; 0 if it is not indexed
+     */
+    public long frequency(CharSequence w) {
+        int id = find(w);
+        return id == NONE ? 0 : counts[id];
+    }
+
+    /**
+     * Raises the count of a word and moves it up the lists on its path.
+     * {@link #path} must hold the path of the word.
+     * 
+     * @param id the word
+     * @param by the amount added, at least 1
+     */
+    private void raise(int id, long by) {
+        counts[id] += by;
+        for (int k = words[id].length(); k >= 0; k--) {
+            promote(path[k], id);
+        }
+    }
+
+    /**
+     * Lowers the count of a word and rebuilds, deepest first, every list on
+     * its path that holds it. {@link #path} must hold the path of the word.
+     * 
+     * @param id the word
+     * @param by the amount taken away, at most its count
+     */
+    private void lower(int id, long by) {
+        counts[id] -= by;
+        for (int k = words[id].length(); k >= 0; k--) {
+            int node = path[k];
+            if (indexOf(node, id) >= 0) {
+                rebuild(node);
+            }
+        }
+    }
+
+    /**
+     * Moves a word whose count went up to its place in the list of a node,
+     * adding it if it now ranks among the best.
+     * 
+     * @param node a node on the path of the word
+     * @param id the word
+     * @return false if the list is full of words that rank before it
+     */
+    private boolean promote(int node, int id) {
+        int base = node * maxSuggestions;
+        int i = indexOf(node, id);
+        if (i < 0) {
+            int fill = topFill[node];
+            if (fill < maxSuggestions) {
+                i = fill;
+                topFill[node] = fill + 1;
+            } else if (better(id, top[base + fill - 1])) {
+                i = fill - 1;
+            } else {
+                return false;
+            }
+        }
+        while (i > 0 && better(id, top[base + i - 1])) {
+            top[base + i] = top[base + i - 1];
+            i--;
+        }
+        top[base + i] = id;
+        return true;
+    }
+
+    /**
+     * Refills the list of a node from the word ending there and the lists of
+     * its children, which are already up to date.
+     * 
+     * @param node the node
+     */
+    private void rebuild(int node) {
+        topFill[node] = 0;
+        if (terminal[node] != NONE && counts[terminal[node]] > 0) {
+            promote(node, terminal[node]);
+        }
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+            int base = c * maxSuggestions;
+            for (int i = 0; i < topFill[c]; i++) {
+                int id = top[base + i];
+                if (counts[id] > 0 && !promote(node, id)) {
+                    break;  // The rest of this child's list ranks lower still
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the place of a word in the list of a node.
+     * 
+     * @param node the node
+     * @param id the word
+     * @return its index in the list, or -1 if it is not there
+     */
+    private int indexOf(int node, int id) {
+        int base = node * maxSuggestions;
+        for (int i = 0; i < topFill[node]; i++) {
+            if (top[base + i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Orders two words for the suggestion lists.
+     * 
+     * @param a a word
+     * @param b another word
+     * @return true if a ranks before b
+     */
+    private boolean better(int a, int b) {
+        return counts[a] > counts[b]
+                || counts[a] == counts[b] && words[a].compareTo(words[b]) < 0;
+    }
+
+    /**
+     * Walks to the node of an indexed word, filling {@link #path}.
+     * 
+     * @param w the word, in any case
+     * @return its id, or -1 if it is not indexed
+     */
+    private int find(CharSequence w) {
+        int length = w.length();
+        ensurePath(length);
+        int node = 0;
+        path[0] = 0;
+        for (int i = 0; i < length; i++) {
+            node = child(node, Character.toLowerCase(w.charAt(i)));
+            if (node == NONE) {
+                return NONE;
+            }
+            path[i + 1] = node;
+        }
+        return terminal[node];
+    }
+
+    /**
+     * Walks to the node of a word, adding the nodes and the word that are
+     * missing, and fills {@link #path}.
+     * 
+     * @param word the lower-cased word
+     * @return its id
+     */
+    private int idFor(String word) {
+        int length = word.length();
+        ensurePath(length);
+        int node = 0;
+        path[0] = 0;
+        for (int i = 0; i < length; i++) {
+            char c = word.charAt(i);
+            int next = child(node, c);
+            if (next == NONE) {
+                next = newNode();
+                addEdge(node, c, next);
+                nextSibling[next] = firstChild[node];
+                firstChild[node] = next;
+            }
+            node = next;
+            path[i + 1] = node;
+        }
+        if (terminal[node] == NONE) {
+            if (numWords == words.length) {
+                words = Arrays.copyOf(words, numWords * 2);
+                counts = Arrays.copyOf(counts, numWords * 2);
+            }
+            words[numWords] = word;
+            terminal[node] = numWords++;
+        }
+        return terminal[node];
+    }
+
+    /**
+     * Makes room in {@link #path} for a word.
+     * 
+     * @param length the length of the word
+     */
+    private void ensurePath(int length) {
+        if (path.length <= length) {
+            path = new int[Math.max(length + 1, path.length * 2)];
+        }
+    }
+
+    /**
+     * Adds a node with no word, children or suggestions.
+     * 
+     * @return the new node
+     */
+    private int newNode() {
+        if (nodes == terminal.length) {
+            int capacity = nodes * 2;
+            terminal = Arrays.copyOf(terminal, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            top = Arrays.copyOf(top, capacity * maxSuggestions);
+            topFill = Arrays.copyOf(topFill, capacity);
+        }
+        terminal[nodes] = NONE;
+        firstChild[nodes] = NONE;
+        nextSibling[nodes] = NONE;
+        return nodes++;
+    }
+
+    /**
+     * Returns the key of an edge in the child table.
+     * 
+     * @param node the parent
+     * @param c the char of the edge
+     * @return a non-zero key
+     */
+    private static long edgeKey(int node, char c) {
+        return ((long) node << 16 | c) + 1;
+    }
+
+    /**
+     * Returns the home slot of an edge key.
+     * 
+     * @param key the key
+     * @param tableSize the number of slots, a power of two
+     * @return the slot
+     */
+    private static int home(long key, int tableSize) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (tableSize - 1);
+    }
+
+    /**
+     * Follows an edge.
+     * 
+     * @param node the parent
+     * @param c the char of the edge
+     * @return the child, or -1 if there is none
+     */
+    private int child(int node, char c) {
+        long key = edgeKey(node, c);
+        int mask = edgeKeys.length - 1;
+        for (int slot = home(key, edgeKeys.length); edgeKeys[slot] != 0; slot = (slot + 1) & mask) {
+            if (edgeKeys[slot] == key) {
+                return edgeChildren[slot];
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Adds an edge, growing the child table past half full.
+     * 
+     * @param node the parent
+     * @param c the char of the edge
+     * @param childNode the child
+     */
+    private void addEdge(int node, char c, int childNode) {
+        if (++edges * 2 > edgeKeys.length) {
+            long[] oldKeys = edgeKeys;
+            int[] oldChildren = edgeChildren;
+            edgeKeys = new long[oldKeys.length * 2];
+            edgeChildren = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    putEdge(oldKeys[i], oldChildren[i]);
+                }
+            }
+        }
+        putEdge(edgeKey(node, c), childNode);
+    }
+
+    /**
+     * Stores an edge that is not in the child table yet.
+     * 
+     * @param key the edge key
+     * @param childNode the child
+     */
+    private void putEdge(long key, int childNode) {
+        int mask = edgeKeys.length - 1;
+        int slot = home(key, edgeKeys.length);
+        while (edgeKeys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        edgeKeys[slot] = key;
+        edgeChildren[slot] = childNode;
+    }
+
+    /**
+     * Returns the number of trie nodes, one per distinct prefix.
+     * 
+     * @return the number of nodes, including the root
+     */
+    public int numNodes() {
+        return nodes;
+    }
+
+    /**
+     * Estimates the heap used by the index, not counting the table or the
+     * words, which are shared with it.
+     * 
+     * @return the estimated size in bytes
+     */
+    public long estimatedBytes() {
+        return 4 * (16 + 4L * terminal.length) + 16 + 4L * top.length
+                + 16 + 8L * edgeKeys.length + 16 + 4L * edgeChildren.length
+                + 16 + 4L * words.length + 16 + 8L * counts.length;
+    }
+}
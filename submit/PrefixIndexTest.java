@@ -0,0 +1,146 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the PrefixIndex class.
+ */
+public class PrefixIndexTest {
+    private HashWords table;
+    private PrefixIndex index;
+
+    /**
+     * Setup method, indexes a small table with three suggestions per prefix.
+     */
+    @Before
+    public void setup() {
+        table = new HashWords(16);
+        for (String w : "the then them there they theory that this these the the then".split(" ")) {
+            table.addWord(w);
+        }
+        index = new PrefixIndex(table, 3);
+    }
+
+    /**
+     * Returns the words of some suggestions.
+     * 
+     * @param suggestions the suggestions
+     * @return their words, in order
+     */
+    private static List<String> words(WordFrequency[] suggestions) {
+        List<String> words = new ArrayList<>();
+        for (WordFrequency s : suggestions) {
+            words.add(s.getWord());
+        }
+        return words;
+    }
+
+    /**
+     * Test suggestions built from the table.
+     */
+    @Test
+    public void testSuggest() {
+        assertEquals("By count, then alphabetically", List.of("the", "then", "them"),
+                words(index.suggest("the", 3)));
+        assertEquals("Count kept", 3, index.suggest("the", 1)[0].getLongCount());
+        assertEquals("Case is ignored", List.of("the", "then"), words(index.suggest("TH", 2)));
+        assertEquals("Longer prefix", List.of("theory"), words(index.suggest("theo", 3)));
+        assertEquals("Whole word", List.of("this"), words(index.suggest("this", 3)));
+        assertEquals("No match", 0, index.suggest("x", 3).length);
+        assertEquals("No match past a word", 0, index.suggest("thisx", 3).length);
+        assertEquals("Capped at maxSuggestions", 3, index.suggest("t", 10).length);
+        assertEquals("Empty prefix", "the", index.suggest("", 1)[0].getWord());
+        assertEquals("None asked for", 0, index.suggest("t", 0).length);
+    }
+
+    /**
+     * Test that added words move up the suggestions.
+     */
+    @Test
+    public void testAddWord() {
+        for (int i = 0; i < 3; i++) {
+            index.addWord("These");
+        }
+        assertEquals("Counted into the table", 4, table.frequency("these"));
+        assertEquals("Moved up", List.of("these", "the", "then"), words(index.suggest("th", 3)));
+        index.addWord("tzar");
+        assertEquals("New word", List.of("tzar"), words(index.suggest("tz", 3)));
+    }
+
+    /**
+     * Test that counts lowered on the table are picked up by update().
+     */
+    @Test
+    public void testUpdateLowered() {
+        table.remove("the");
+        index.update("the");
+        assertEquals("Removed word dropped, next one pulled in",
+                List.of("then", "that", "them"), words(index.suggest("th", 3)));
+        assertEquals("Count now 0", 0, index.frequency("the"));
+        table.decrement("then");
+        index.update("then");
+        assertEquals("Lowered word reordered", List.of("that", "them", "then"),
+                words(index.suggest("th", 3)));
+        table.addWord("the", 5);
+        index.update("the");
+        assertEquals("Back again", "the", index.suggest("th", 1)[0].getWord());
+        table.addWord("thorn");
+        index.update("thorn");
+        assertEquals("New word from the table", List.of("thorn"), words(index.suggest("tho", 3)));
+    }
+
+    /**
+     * Test random changes against a scan of the table.
+     */
+    @Test
+    public void testAgainstScan() {
+        HashWords words = new HashWords(64);
+        PrefixIndex random = new PrefixIndex(words, 5);
+        Random r = new Random(21);
+        for (int i = 0; i < 20_000; i++) {
+            String w = Integer.toString((int) Math.abs(r.nextGaussian() * 400), 7);
+            if (r.nextInt(10) == 0) {
+                words.decrement(w);
+                random.update(w);
+            } else {
+                random.addWord(w);
+            }
+        }
+        for (String prefix : new String[] {"", "1", "2", "10", "11", "116", "3", "1000"}) {
+            List<WordFrequency> expected = new ArrayList<>();
+            words.forEach((w, count) -> {
+                if (w.startsWith(prefix)) {
+                    expected.add(new WordFrequency(w, count));
+                }
+            });
+            expected.sort((a, b) -> a.getLongCount() != b.getLongCount()
+                    ? Long.compare(b.getLongCount(), a.getLongCount())
+                    : a.getWord().compareTo(b.getWord()));
+            WordFrequency[] got = random.suggest(prefix, 5);
+            assertEquals(prefix, Math.min(5, expected.size()), got.length);
+            for (int i = 0; i < got.length; i++) {
+                assertEquals(prefix + " #" + i, expected.get(i).getWord(), got[i].getWord());
+                assertEquals(prefix + " #" + i, expected.get(i).getLongCount(),
+                        got[i].getLongCount());
+            }
+        }
+    }
+
+    /**
+     * Test that a negative number of suggestions is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeN() {
+        index.suggest("t", -1);
+    }
+
+    /**
+     * Test that an empty suggestion list is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoSuggestions() {
+        new PrefixIndex(table, 0);
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * How {@link HashWords} resolves collisions, i.e. which slot it tries next
+ * when the home slot of a word is taken by another word.
+ * 
+ * @author Zander Polk
+ */
+public enum ProbingStrategy {
+    /**
+     * Try the next slot, wrapping around with a modulo. Works with any table
+     * size; this is the original behaviour.
+     */
+    LINEAR,
+
+    /**
+     * Try slots 1, 2, 3, ... further on than the previous one (home + 1, + 3,
+     * + 6, ...). The table size is kept a power of two, so slots are found with
+     * a mask instead of a modulo and every slot is still visited. Spreads out
+     * the clusters that linear probing builds.
+     */
+    TRIANGULAR,
+
+    /**
+     * Linear probing over a power-of-two table where a word being inserted
+     * takes the slot of any word that sits closer to its own home slot. This
+     * evens out probe lengths, and a lookup can stop as soon as it passes a
+     * word closer to home than itself, which makes misses cheap.
+     */
+    ROBIN_HOOD;
+
+    /**
+     * Rounds a requested table size to one this strategy can use.
+     * 
+     * @param requested the wanted number of slots
+     * @return requested for linear probing, otherwise the next power of two
+     */
+    int tableSizeFor(int requested) {
+        if (this == LINEAR || Integer.bitCount(requested) == 1) {
+            return requested;
+        }
+        return Integer.highestOneBit(requested) << 1;
+    }
+
+    /**
+     * Maps a full hash onto a table with the given number of slots.
+     * 
+     * @param hash the full hash of a word
+     * @param tableSize the number of slots
+     * @return the home slot for that hash
+     */
+    int home(int hash, int tableSize) {
+        if (this == LINEAR) {
+            return (hash & 0x7fffffff) % tableSize;
+        }
+        return hash & (tableSize - 1);
+    }
+
+    /**
+     * Returns the slot to try after a collision.
+     * 
+     * @param key the slot just tried
+     * @param step the number of slots tried so far, starting at 1
+     * @param tableSize the number of slots
+     * @return the next slot
+     */
+    int next(int key, int step, int tableSize) {
+        if (this == LINEAR) {
+            return (key + 1) % tableSize;  // Linear probing
+        }
+        if (this == TRIANGULAR) {
+            return (key + step) & (tableSize - 1);
+        }
+        return (key + 1) & (tableSize - 1);
+    }
+
+    /**
+     * How far a word sits from its home slot, for Robin Hood hashing.
+     * 
+     * @param hash the full hash of the word
+     * @param key the slot it sits in
+     * @param tableSize the number of slots
+     * @return the number of slots between home and key
+     */
+    int displacement(int hash, int key, int tableSize) {
+        return (key - home(hash, tableSize)) & (tableSize - 1);
+    }
+}
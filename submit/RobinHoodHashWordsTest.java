@@ -0,0 +1,28 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Runs the whole {@link HashWordsTest} suite with Robin Hood hashing.
+ */
+public class RobinHoodHashWordsTest extends HashWordsTest {
+
+    /**
+     * Uses Robin Hood hashing for every table of the suite.
+     * 
+     * @return {@link ProbingStrategy#ROBIN_HOOD}
+     */
+    @Override
+    protected ProbingStrategy probing() {
+        return ProbingStrategy.ROBIN_HOOD;
+    }
+
+    /**
+     * Test that the initial size is rounded up to a power of two.
+     */
+    @Override
+    @Test
+    public void testConstructorAndSize() {
+        assertEquals("Initial size of 10 is rounded up to 16", 16, newTable(10).size());
+        assertEquals("Powers of two are kept", 64, newTable(64).size());
+    }
+}
@@ -0,0 +1,531 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Frequency-bucket index behind {@link HashWords#topK(int)} and
+ * {@link HashWords#mostCommonWord()}.
+ * 
+ * <p>Every word gets an id, and the ids are grouped into buckets of equal
+ * count. The buckets form a list ordered by count, so counting one more
+ * occurrence moves an id to the neighbouring bucket without a search, and
+ * the most common words are always found at the top of the list.
+ * 
+ * <p>Each bucket keeps its words in alphabetical order, as a treap: a binary
+ * search tree on the word whose shape is fixed by a pseudo-random priority
+ * per id, which keeps it balanced on average. Moving a word into a bucket of
+ * b words takes about log b comparisons, and a bucket holding nearly the
+ * whole vocabulary, as the count-1 bucket does in the long tail of a text,
+ * hands out its first k words in O(log b + k). So {@link #top(int)} costs
+ * O(k log b) at worst whatever the size of the vocabulary, and
+ * {@link #mostCommon()} is the leftmost word of the top bucket. Most moves
+ * are made by the frequent words, which sit in small buckets near the top.
+ * 
+ * <p>The ids of removed words are handed out again. Counts are kept once per
+ * bucket rather than once per word, so they are longs without costing every
+ * word 8 bytes.
+ * 
+ * @author Zander Polk
+ */
+class TopKIndex {
+    private static final int NONE = -1;
+
+    // Per word id: the word, its sort key, its bucket (and so its count) and
+    // its place in the bucket's tree. Free ids are chained through right.
+    private String[] words;
+    private long[] sortKeys;
+    private int[] bucketOf;
+    private int[] left;
+    private int[] right;
+    private int[] parent;
+    private int used;      // Ids handed out so far
+    private int size;      // Ids holding a word
+    private int freeId = NONE;
+
+    // Per bucket: its count, the root of its tree, its number of ids and the
+    // buckets above/below it. Free buckets are chained through above.
+    private long[] bucketCount;
+    private int[] bucketRoot;
+    private int[] bucketSize;
+    private int[] above;
+    private int[] below;
+    private int bucketsUsed;
+    private int freeBucket = NONE;
+    private int top = NONE;
+    private int bottom = NONE;
+
+    /**
+     * Creates an empty index.
+     * 
+     * @param capacity the number of words to make room for
+     */
+    TopKIndex(int capacity) {
+        capacity = Math.max(capacity, 4);
+        words = new String[capacity];
+        sortKeys = new long[capacity];
+        bucketOf = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        parent = new int[capacity];
+        bucketCount = new long[16];
+        bucketRoot = new int[16];
+        bucketSize = new int[16];
+        above = new int[16];
+        below = new int[16];
+    }
+
+    /**
+     * Returns the number of words in the index.
+     * 
+     * @return the number of words added and not removed
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a word with the given count. Counts of 1 and counts at or above the
+     * current top are placed in O(1); anything else walks the bucket list.
+     * 
+     * @param word the lower-cased word
+     * @param count its count, at least 1
+     * @return the id of the word
+     */
+    int add(String word, long count) {
+        int id = newId(word);
+        int bucket;
+        if (top != NONE && count >= bucketCount[top]) {
+            bucket = count == bucketCount[top] ? top : newBucket(count, top, NONE);
+        } else {
+            // Walk up from the bottom to the first bucket with count >= count
+            int lower = NONE;
+            bucket = bottom;
+            while (bucket != NONE && bucketCount[bucket] < count) {
+                lower = bucket;
+                bucket = above[bucket];
+            }
+            if (bucket == NONE || bucketCount[bucket] != count) {
+                bucket = newBucket(count, lower, bucket);
+            }
+        }
+        link(id, bucket);
+        return id;
+    }
+
+    /**
+     * Adds many words to an empty index at once. Their buckets are made from
+     * the sorted distinct counts, which are far fewer than the words, and
+     * each word is then linked straight into its bucket, so no word walks
+     * the bucket list, whatever order they come in.
+     * 
+     * @param words the lower-cased words
+     * @param counts their counts, each at least 1
+     * @return the id of each word
+     * @throws IllegalStateException if the index is not empty
+     */
+    int[] addAll(String[] words, long[] counts) {
+        if (size > 0) {
+            throw new IllegalStateException("addAll needs an empty index");
+        }
+        Map<Long, Integer> bucketFor = new HashMap<>();
+        for (long count : counts) {
+            bucketFor.put(count, NONE);
+        }
+        long[] distinct = new long[bucketFor.size()];
+        int d = 0;
+        for (long count : bucketFor.keySet()) {
+            distinct[d++] = count;
+        }
+        Arrays.sort(distinct);
+        for (long count : distinct) {
+            bucketFor.put(count, newBucket(count, top, NONE));  // Rising, so each goes on top
+        }
+        int[] ids = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            ids[i] = newId(words[i]);
+            link(ids[i], bucketFor.get(counts[i]));
+        }
+        return ids;
+    }
+
+    /**
+     * Hands out an id for a word, from the free list or the end of the arrays.
+     * The id is not in any bucket yet.
+     * 
+     * @param word the lower-cased word
+     * @return the id
+     */
+    private int newId(String word) {
+        int id;
+        if (freeId != NONE) {
+            id = freeId;
+            freeId = right[id];
+        } else {
+            if (used == words.length) {
+                int capacity = used * 2;
+                words = Arrays.copyOf(words, capacity);
+                sortKeys = Arrays.copyOf(sortKeys, capacity);
+                bucketOf = Arrays.copyOf(bucketOf, capacity);
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+            }
+            id = used++;
+        }
+        size++;
+        words[id] = word;
+        sortKeys[id] = sortKey(word);
+        return id;
+    }
+
+    /**
+     * Counts more occurrences of a word. Adding 1 is O(1); larger steps walk
+     * past the buckets in between.
+     * 
+     * @param id the id of the word
+     * @param delta the number of occurrences to add, at least 1
+     */
+    void increment(int id, long delta) {
+        int lower = bucketOf[id];
+        long count = bucketCount[lower] + delta;
+        int upper = above[lower];
+        while (upper != NONE && bucketCount[upper] < count) {
+            lower = upper;
+            upper = above[upper];
+        }
+        if (upper == NONE || bucketCount[upper] != count) {
+            upper = newBucket(count, lower, upper);
+        }
+        unlink(id);
+        link(id, upper);
+    }
+
+    /**
+     * Estimates the heap used by the index arrays, not counting the words,
+     * which are shared with the table.
+     * 
+     * @return the estimated size in bytes
+     */
+    long estimatedBytes() {
+        return 5 * (16 + 4L * words.length) + 16 + 8L * sortKeys.length
+                + 4 * (16 + 4L * bucketCount.length) + 16 + 8L * bucketCount.length;
+    }
+
+    /**
+     * Counts fewer occurrences of a word. Subtracting 1 is O(1); larger steps
+     * walk past the buckets in between.
+     * 
+     * @param id the id of the word
+     * @param delta the number of occurrences to take away, less than its count
+     */
+    void decrement(int id, long delta) {
+        int upper = bucketOf[id];
+        long count = bucketCount[upper] - delta;
+        int lower = below[upper];
+        while (lower != NONE && bucketCount[lower] > count) {
+            upper = lower;
+            lower = below[lower];
+        }
+        if (lower == NONE || bucketCount[lower] != count) {
+            lower = newBucket(count, lower, upper);
+        }
+        unlink(id);
+        link(id, lower);
+    }
+
+    /**
+     * Removes a word. Its id may be handed out again by {@link #add}.
+     * 
+     * @param id the id of the word
+     */
+    void remove(int id) {
+        unlink(id);
+        words[id] = null;
+        right[id] = freeId;
+        freeId = id;
+        size--;
+    }
+
+    /**
+     * Returns the count of a word.
+     * 
+     * @param id the id of the word
+     * @return its count
+     */
+    long count(int id) {
+        return bucketCount[bucketOf[id]];
+    }
+
+    /**
+     * Returns the word with an id.
+     * 
+     * @param id the id of the word
+     * @return the word, or null if the id is free
+     */
+    String word(int id) {
+        return words[id];
+    }
+
+    /**
+     * Returns the word with the highest count, the alphabetically first one
+     * if several share that count.
+     * 
+     * @return the most common word, or null if the index is empty
+     */
+    String mostCommon() {
+        return top == NONE ? null : words[leftmost(bucketRoot[top])];
+    }
+
+    /**
+     * Returns the k most common words, highest count first and alphabetical
+     * among equal counts. Each bucket is walked in order only as far as the
+     * words still wanted, so a count that most words share costs no more
+     * than a small one.
+     * 
+     * @param k the number of words wanted
+     * @return at most k words with their counts
+     */
+    WordFrequency[] top(int k) {
+        WordFrequency[] result = new WordFrequency[Math.min(k, size)];
+        int filled = 0;
+        for (int bucket = top; bucket != NONE && filled < result.length; bucket = below[bucket]) {
+            for (int id = leftmost(bucketRoot[bucket]); id != NONE && filled < result.length;
+                    id = successor(id)) {
+                result[filled++] = new WordFrequency(words[id], bucketCount[bucket]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the alphabetically first word of a tree.
+     * 
+     * @param root the root of a bucket's tree
+     * @return its leftmost id
+     */
+    private int leftmost(int root) {
+        int id = root;
+        while (left[id] != NONE) {
+            id = left[id];
+        }
+        return id;
+    }
+
+    /**
+     * Returns the next word of a bucket in alphabetical order.
+     * 
+     * @param id the id of a word
+     * @return the id after it, or NONE if it is the last of its bucket
+     */
+    private int successor(int id) {
+        if (right[id] != NONE) {
+            return leftmost(right[id]);
+        }
+        int up = parent[id];
+        while (up != NONE && right[up] == id) {
+            id = up;
+            up = parent[up];
+        }
+        return up;
+    }
+
+    /**
+     * Packs the first 8 characters of a word into a long that orders like the
+     * words, so most comparisons read one array instead of two strings. A
+     * character past 0xFE ends the key at 0xFF, since the characters after it
+     * no longer decide the order; words with equal keys are compared whole.
+     * 
+     * @param word the word
+     * @return its sort key, compared unsigned
+     */
+    private static long sortKey(String word) {
+        long key = 0;
+        int n = Math.min(8, word.length());
+        for (int i = 0; i < n; i++) {
+            char c = word.charAt(i);
+            if (c >= 0xFF) {
+                key |= 0xFFL << (56 - 8 * i);
+                break;
+            }
+            key |= (long) c << (56 - 8 * i);
+        }
+        return key;
+    }
+
+    /**
+     * Orders two words by their ids.
+     * 
+     * @param a the id of a word
+     * @param b the id of another word
+     * @return true if the word of a comes before the word of b
+     */
+    private boolean before(int a, int b) {
+        int order = Long.compareUnsigned(sortKeys[a], sortKeys[b]);
+        return order != 0 ? order < 0 : words[a].compareTo(words[b]) < 0;
+    }
+
+    /**
+     * Returns the priority that places an id in its tree: a scrambled id, so
+     * trees are shaped as if words arrived in random order.
+     * 
+     * @param id the id of a word
+     * @return its priority; higher ones sit nearer the root
+     */
+    private static int priority(int id) {
+        return Fnv1aHasher.mix(id);
+    }
+
+    /**
+     * Takes a bucket from the free list (or the end of the arrays) and links it
+     * between two neighbours.
+     * 
+     * @param count the count of the bucket
+     * @param lower the bucket below it, or NONE
+     * @param upper the bucket above it, or NONE
+     * @return the new bucket
+     */
+    private int newBucket(long count, int lower, int upper) {
+        int bucket;
+        if (freeBucket != NONE) {
+            bucket = freeBucket;
+            freeBucket = above[bucket];
+        } else {
+            if (bucketsUsed == bucketCount.length) {
+                int capacity = bucketsUsed * 2;
+                bucketCount = Arrays.copyOf(bucketCount, capacity);
+                bucketRoot = Arrays.copyOf(bucketRoot, capacity);
+                bucketSize = Arrays.copyOf(bucketSize, capacity);
+                above = Arrays.copyOf(above, capacity);
+                below = Arrays.copyOf(below, capacity);
+            }
+            bucket = bucketsUsed++;
+        }
+        bucketCount[bucket] = count;
+        bucketRoot[bucket] = NONE;
+        bucketSize[bucket] = 0;
+        below[bucket] = lower;
+        above[bucket] = upper;
+        if (lower != NONE) {
+            above[lower] = bucket;
+        } else {
+            bottom = bucket;
+        }
+        if (upper != NONE) {
+            below[upper] = bucket;
+        } else {
+            top = bucket;
+        }
+        return bucket;
+    }
+
+    /**
+     * Puts an id into a bucket: down the tree to its alphabetical place, then
+     * up past any parent with a lower priority.
+     * 
+     * @param id the id of the word
+     * @param bucket the bucket matching its count
+     */
+    private void link(int id, int bucket) {
+        int up = NONE;
+        boolean toLeft = false;
+        for (int node = bucketRoot[bucket]; node != NONE; node = toLeft ? left[node] : right[node]) {
+            up = node;
+            toLeft = before(id, node);
+        }
+        left[id] = NONE;
+        right[id] = NONE;
+        parent[id] = up;
+        if (up == NONE) {
+            bucketRoot[bucket] = id;
+        } else if (toLeft) {
+            left[up] = id;
+        } else {
+            right[up] = id;
+        }
+        int p = priority(id);
+        while (parent[id] != NONE && priority(parent[id]) < p) {
+            rotateUp(id, bucket);
+        }
+        bucketSize[bucket]++;
+        bucketOf[id] = bucket;
+    }
+
+    /**
+     * Takes an id out of its bucket, and frees the bucket if it is now empty.
+     * The id is rotated down until it has at most one child, which then takes
+     * its place.
+     * 
+     * @param id the id of the word
+     */
+    private void unlink(int id) {
+        int bucket = bucketOf[id];
+        while (left[id] != NONE && right[id] != NONE) {
+            rotateUp(priority(left[id]) > priority(right[id]) ? left[id] : right[id], bucket);
+        }
+        int child = left[id] != NONE ? left[id] : right[id];
+        replaceChild(parent[id], id, child, bucket);
+        if (child != NONE) {
+            parent[child] = parent[id];
+        }
+        if (--bucketSize[bucket] == 0) {
+            int lower = below[bucket];
+            int upper = above[bucket];
+            if (lower != NONE) {
+                above[lower] = upper;
+            } else {
+                bottom = upper;
+            }
+            if (upper != NONE) {
+                below[upper] = lower;
+            } else {
+                top = lower;
+            }
+            above[bucket] = freeBucket;
+            freeBucket = bucket;
+        }
+    }
+
+    /**
+     * Rotates an id above its parent, keeping the alphabetical order.
+     * 
+     * @param id an id that has a parent
+     * @param bucket the bucket of both
+     */
+    private void rotateUp(int id, int bucket) {
+        int up = parent[id];
+        int moved;
+        if (left[up] == id) {
+            moved = right[id];
+            left[up] = moved;
+            right[id] = up;
+        } else {
+            moved = left[id];
+            right[up] = moved;
+            left[id] = up;
+        }
+        if (moved != NONE) {
+            parent[moved] = up;
+        }
+        replaceChild(parent[up], up, id, bucket);
+        parent[id] = parent[up];
+        parent[up] = id;
+    }
+
+    /**
+     * Points a parent, or the root of a bucket, at a new child.
+     * 
+     * @param up the parent, or NONE for the root
+     * @param old the child being replaced
+     * @param child the new child, or NONE
+     * @param bucket the bucket of the tree
+     */
+    private void replaceChild(int up, int old, int child, int bucket) {
+        if (up == NONE) {
+            bucketRoot[bucket] = child;
+        } else if (left[up] == old) {
+            left[up] = child;
+        } else {
+            right[up] = child;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the TopKIndex class.
+ * Random updates are checked against a full sort of the same counts.
+ */
+public class TopKIndexTest {
+    private TopKIndex index;
+
+    /**
+     * Setup method, creates an index with room for a few words.
+     */
+    @Before
+    public void setup() {
+        index = new TopKIndex(2);
+    }
+
+    /**
+     * Test an empty index.
+     */
+    @Test
+    public void testEmpty() {
+        assertNull("No most common word", index.mostCommon());
+        assertEquals("No top words", 0, index.top(5).length);
+    }
+
+    /**
+     * Test increments by one and the alphabetical tie-break.
+     */
+    @Test
+    public void testIncrementAndTies() {
+        int pear = index.add("pear", 1);
+        int apple = index.add("apple", 1);
+        int fig = index.add("fig", 1);
+        assertEquals("Three-way tie goes to 'apple'", "apple", index.mostCommon());
+
+        index.increment(pear, 1);
+        assertEquals("'pear' leads", "pear", index.mostCommon());
+        index.increment(fig, 1);
+        assertEquals("'fig' ties with 'pear'", "fig", index.mostCommon());
+
+        WordFrequency[] top = index.top(3);
+        assertEquals("First is 'fig'", "fig", top[0].getWord());
+        assertEquals("Second is 'pear'", "pear", top[1].getWord());
+        assertEquals("Third is 'apple'", "apple", top[2].getWord());
+        assertEquals("Count of 'apple'", 1, top[2].getCount());
+        assertEquals("Count of 'apple' by id", 1, index.count(apple));
+        assertEquals("Size is 3", 3, index.size());
+    }
+
+    /**
+     * Test adding words with large counts and large increments.
+     */
+    @Test
+    public void testLargeSteps() {
+        int a = index.add("a", 5);
+        index.add("b", 1);
+        index.add("c", 3);
+        index.add("d", 9);
+        index.increment(a, 10);
+        assertEquals("'a' jumped over 'd'", "a", index.mostCommon());
+
+        WordFrequency[] top = index.top(10);
+        assertEquals("All four words", 4, top.length);
+        assertEquals("'a' has 15", 15, top[0].getCount());
+        assertEquals("'d' second", "d", top[1].getWord());
+        assertEquals("'c' third", "c", top[2].getWord());
+        assertEquals("'b' last", "b", top[3].getWord());
+    }
+
+    /**
+     * Test random updates against sorting every count.
+     */
+    @Test
+    public void testRandomAgainstSort() {
+        Random random = new Random(3);
+        int[] counts = new int[300];
+        int[] ids = new int[counts.length];
+        for (int step = 0; step < 20000; step++) {
+            int w = random.nextInt(counts.length);
+            int delta = random.nextInt(10) == 0 ? 1 + random.nextInt(20) : 1;
+            if (counts[w] == 0) {
+                ids[w] = index.add("w" + w, delta);
+            } else {
+                index.increment(ids[w], delta);
+            }
+            counts[w] += delta;
+        }
+
+        List<WordFrequency> expected = new ArrayList<>();
+        for (int w = 0; w < counts.length; w++) {
+            if (counts[w] > 0) {
+                expected.add(new WordFrequency("w" + w, counts[w]));
+            }
+        }
+        Collections.sort(expected, (x, y) -> x.getCount() != y.getCount()
+                ? Integer.compare(y.getCount(), x.getCount()) : x.getWord().compareTo(y.getWord()));
+
+        WordFrequency[] top = index.top(50);
+        for (int i = 0; i < top.length; i++) {
+            assertEquals("Word at rank " + i, expected.get(i).getWord(), top[i].getWord());
+            assertEquals("Count at rank " + i, expected.get(i).getCount(), top[i].getCount());
+        }
+        assertEquals("Most common word", expected.get(0).getWord(), index.mostCommon());
+    }
+
+    /**
+     * Test counts past Integer.MAX_VALUE.
+     */
+    @Test
+    public void testCountsPastIntMax() {
+        long max = Integer.MAX_VALUE;
+        int big = index.add("big", max);
+        int small = index.add("small", 7);
+        index.increment(big, max);
+        assertEquals("Count doubled", 2 * max, index.count(big));
+        index.increment(small, 3 * max);
+        assertEquals("Overtaken", "small", index.mostCommon());
+        WordFrequency[] top = index.top(2);
+        assertEquals("Top count", 3 * max + 7, top[0].getLongCount());
+        assertEquals("Second count", 2 * max, top[1].getLongCount());
+        index.decrement(small, 3 * max);
+        assertEquals("Back to 7", 7, index.count(small));
+        assertEquals("'big' leads", "big", index.mostCommon());
+    }
+
+    /**
+     * Test decrements, removal and reuse of ids.
+     */
+    @Test
+    public void testDecrementAndRemove() {
+        int a = index.add("a", 5);
+        int b = index.add("b", 3);
+        index.add("c", 1);
+        index.decrement(a, 3);
+        assertEquals("'a' fell to 2", 2, index.count(a));
+        assertEquals("'b' leads", "b", index.mostCommon());
+        index.decrement(b, 2);
+        assertEquals("'a' leads again", "a", index.mostCommon());
+
+        index.remove(a);
+        assertEquals("Two words left", 2, index.size());
+        assertEquals("Tie of 'b' and 'c'", "b", index.mostCommon());
+        assertEquals("Removed word is gone", 2, index.top(5).length);
+
+        int d = index.add("d", 7);
+        assertEquals("Id reused", a, d);
+        assertEquals("'d' leads", "d", index.mostCommon());
+        index.remove(d);
+        index.remove(b);
+        index.remove(index.add("e", 1));
+        assertEquals("Only 'c' left", "c", index.mostCommon());
+        assertEquals("One word", 1, index.size());
+    }
+
+    /**
+     * Test random increments, decrements and removals against sorting.
+     */
+    @Test
+    public void testRandomWithRemovalAgainstSort() {
+        Random random = new Random(5);
+        int[] counts = new int[200];
+        int[] ids = new int[counts.length];
+        for (int step = 0; step < 20000; step++) {
+            int w = random.nextInt(counts.length);
+            int delta = 1 + random.nextInt(3);
+            if (counts[w] == 0) {
+                ids[w] = index.add("w" + w, delta);
+                counts[w] = delta;
+            } else if (random.nextBoolean()) {
+                index.increment(ids[w], delta);
+                counts[w] += delta;
+            } else if (counts[w] > delta) {
+                index.decrement(ids[w], delta);
+                counts[w] -= delta;
+            } else {
+                index.remove(ids[w]);
+                counts[w] = 0;
+            }
+        }
+
+        List<WordFrequency> expected = new ArrayList<>();
+        for (int w = 0; w < counts.length; w++) {
+            if (counts[w] > 0) {
+                expected.add(new WordFrequency("w" + w, counts[w]));
+            }
+        }
+        Collections.sort(expected, (x, y) -> x.getCount() != y.getCount()
+                ? Integer.compare(y.getCount(), x.getCount()) : x.getWord().compareTo(y.getWord()));
+
+        assertEquals("Size", expected.size(), index.size());
+        WordFrequency[] top = index.top(expected.size());
+        for (int i = 0; i < top.length; i++) {
+            assertEquals("Word at rank " + i, expected.get(i).getWord(), top[i].getWord());
+            assertEquals("Count at rank " + i, expected.get(i).getCount(), top[i].getCount());
+        }
+    }
+
+    /**
+     * Test that the alphabetical order of each bucket stays right while
+     * words with mostly equal counts move between buckets, checking after
+     * every step.
+     */
+    @Test
+    public void testTiesAfterEveryStep() {
+        Random random = new Random(9);
+        int[] counts = new int[60];
+        int[] ids = new int[counts.length];
+        for (int step = 0; step < 5000; step++) {
+            int w = random.nextInt(counts.length);
+            if (counts[w] == 0) {
+                ids[w] = index.add("w" + w, 1);
+                counts[w] = 1;
+            } else if (random.nextInt(3) > 0 && counts[w] < 3) {
+                index.increment(ids[w], 1);
+                counts[w]++;
+            } else if (counts[w] > 1) {
+                index.decrement(ids[w], 1);
+                counts[w]--;
+            } else {
+                index.remove(ids[w]);
+                counts[w] = 0;
+            }
+
+            List<WordFrequency> expected = new ArrayList<>();
+            for (int v = 0; v < counts.length; v++) {
+                if (counts[v] > 0) {
+                    expected.add(new WordFrequency("w" + v, counts[v]));
+                }
+            }
+            Collections.sort(expected, (x, y) -> x.getCount() != y.getCount()
+                    ? Integer.compare(y.getCount(), x.getCount())
+                    : x.getWord().compareTo(y.getWord()));
+            assertEquals("Most common word at step " + step,
+                    expected.isEmpty() ? null : expected.get(0).getWord(), index.mostCommon());
+            int k = random.nextInt(counts.length);
+            WordFrequency[] top = index.top(k);
+            assertEquals("Top words at step " + step, Math.min(k, expected.size()), top.length);
+            for (int i = 0; i < top.length; i++) {
+                assertEquals("Word at rank " + i, expected.get(i).getWord(), top[i].getWord());
+            }
+        }
+    }
+
+    /**
+     * Test taking a few words from a bucket most words share.
+     */
+    @Test
+    public void testTopOfLargeBucket() {
+        for (int w = 999; w >= 0; w--) {
+            index.add(String.format("w%03d", w), 1);
+        }
+        WordFrequency[] top = index.top(3);
+        assertEquals("First", "w000", top[0].getWord());
+        assertEquals("Second", "w001", top[1].getWord());
+        assertEquals("Third", "w002", top[2].getWord());
+        assertEquals("Most common", "w000", index.mostCommon());
+    }
+
+    /**
+     * Test that buckets fed in alphabetical order, the worst case for an
+     * unbalanced tree, still read out in order after words leave them.
+     */
+    @Test
+    public void testSortedArrivals() {
+        int[] ids = new int[20_000];
+        for (int w = 0; w < ids.length; w++) {
+            ids[w] = index.add(String.format("w%05d", w), 1);
+        }
+        for (int w = 0; w < ids.length; w += 2) {
+            index.increment(ids[w], 1);
+        }
+        WordFrequency[] top = index.top(ids.length / 2 + 3);
+        for (int i = 0; i < ids.length / 2; i++) {
+            assertEquals("Count 2 at rank " + i, String.format("w%05d", 2 * i), top[i].getWord());
+        }
+        for (int i = 0; i < 3; i++) {
+            assertEquals("Count 1 at rank " + i, String.format("w%05d", 2 * i + 1),
+                    top[ids.length / 2 + i].getWord());
+        }
+        assertEquals("Most common", "w00000", index.mostCommon());
+    }
+
+    /**
+     * Test adding many words at once in no particular order.
+     */
+    @Test
+    public void testAddAll() {
+        String[] words = {"pear", "fig", "apple", "kiwi", "plum"};
+        long[] counts = {2, 5, 2, 1L << 40, 5};
+        int[] ids = index.addAll(words, counts);
+        assertEquals("Size", 5, index.size());
+        assertEquals("Most common", "kiwi", index.mostCommon());
+        WordFrequency[] top = index.top(5);
+        String[] expected = {"kiwi", "fig", "plum", "apple", "pear"};
+        for (int i = 0; i < 5; i++) {
+            assertEquals("Word at rank " + i, expected[i], top[i].getWord());
+        }
+        index.increment(ids[0], 3);
+        assertEquals("Counts still move", 5, index.count(ids[0]));
+        int date = index.add("date", 6);
+        assertEquals("Added later", "date", index.top(2)[1].getWord());
+        assertEquals("Count of a later word", 6, index.count(date));
+    }
+}
@@ -0,0 +1,28 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Runs the whole {@link HashWordsTest} suite with triangular probing.
+ */
+public class TriangularProbingHashWordsTest extends HashWordsTest {
+
+    /**
+     * Uses triangular probing for every table of the suite.
+     * 
+     * @return {@link ProbingStrategy#TRIANGULAR}
+     */
+    @Override
+    protected ProbingStrategy probing() {
+        return ProbingStrategy.TRIANGULAR;
+    }
+
+    /**
+     * Test that the initial size is rounded up to a power of two.
+     */
+    @Override
+    @Test
+    public void testConstructorAndSize() {
+        assertEquals("Initial size of 10 is rounded up to 16", 16, newTable(10).size());
+        assertEquals("Powers of two are kept", 64, newTable(64).size());
+    }
+}
@@ -0,0 +1,429 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves a live {@link HashWords} table over a line protocol on localhost.
+ * One thread runs a {@link Selector} loop and is the only thread that
+ * touches the table, so the table needs no locking.
+ * 
+ * <p>Each request is one UTF-8 line, and each gets one reply line, in order
+ * on each connection:
+ * <ul>
+ * <li>{@code ADD <text>} counts the words of the text, split like
+ * {@link MappedTokenizer} does; replies {@code OK <words added>}</li>
+ * <li>{@code FREQ <word>} replies the count of the word</li>
+ * <li>{@code TF <word>} replies its term frequency</li>
+ * <li>{@code CONTAINS <word>} replies {@code true} or {@code false}</li>
+ * <li>{@code MOST} replies the most common word, or an empty line</li>
+ * <li>{@code QUIT} closes the connection</li>
+ * </ul>
+ * Anything else is answered with {@code ERR <reason>}.
+ * 
+ * <p>Ingest is pipelined with queries: a connection counts at most
+ * {@code ingestSlice} words of an {@code ADD} per turn of the loop, and every
+ * other connection gets its turn in between. A query on one connection
+ * therefore waits for at most one slice of another connection's ingest, not
+ * for the whole text. Requests on the same connection still run in order, so
+ * a query sees every word its own connection sent before it.
+ * 
+ * <p>A connection whose replies are not being read stops being served once
+ * {@value #MAX_BUFFERED} bytes of replies are waiting, and one that sends a
+ * line longer than {@value #MAX_LINE} bytes is closed.
+ * 
+ * @author Zander Polk
+ */
+public class WordCountServer implements Closeable {
+    /** Default number of words of an ADD counted per turn of the loop. */
+    public static final int DEFAULT_INGEST_SLICE = 4096;
+    /** Longest request line accepted, in bytes. */
+    public static final int MAX_LINE = 16 << 20;
+    /** Reply and request bytes buffered per connection before it is paused. */
+    static final int MAX_BUFFERED = 1 << 20;
+
+    private final HashWords table;
+    private final int ingestSlice;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final List<Connection> connections = new ArrayList<>();
+    private final MappedTokenizer.AsciiSlice slice = new MappedTokenizer.AsciiSlice();
+    private volatile boolean closed;
+
+    /**
+     * Opens a server on a localhost port.
+     * 
+     * @param table the table to serve; it must not be used elsewhere while
+     *        the server runs
+     * @param port the port, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public WordCountServer(HashWords table, int port) throws IOException {
+        this(table, port, DEFAULT_INGEST_SLICE);
+    }
+
+    /**
+     * Opens a server on a localhost port with the given ingest slice.
+     * 
+     * @param table the table to serve; it must not be used elsewhere while
+     *        the server runs
+     * @param port the port, or 0 for any free port
+     * @param ingestSlice the most words of an ADD counted per turn
+     * @throws IOException if the port cannot be bound
+     * @throws IllegalArgumentException if ingestSlice is not positive
+     */
+    public WordCountServer(HashWords table, int port, int ingestSlice) throws IOException {
+        if (ingestSlice < 1) {
+            throw new IllegalArgumentException("ingestSlice must be positive: " + ingestSlice);
+        }
+        this.table = table;
+        this.ingestSlice = ingestSlice;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Returns the port the server listens on.
+     * 
+     * @return the bound port
+     * @throws IOException if the port cannot be read
+     */
+    public int port() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Serves requests until {@link #close()} is called. Sleeps in the
+     * selector while there is nothing to do.
+     * 
+     * @throws IOException if the selector fails
+     */
+    public void run() throws IOException {
+        try {
+            boolean busy = false;
+            while (!closed) {
+                if (busy) {
+                    selector.selectNow();
+                } else {
+                    selector.select();
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection c = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            c.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            c.flush();
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+
+                busy = false;
+                for (int i = 0; i < connections.size(); i++) {
+                    busy |= connections.get(i).serve();
+                }
+                connections.removeIf(c -> !c.key.isValid());
+            }
+        } finally {
+            for (Connection c : connections) {
+                c.close();
+            }
+            server.close();
+            selector.close();
+        }
+    }
+
+    /**
+     * Stops the server. {@link #run()} returns after closing every connection.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+    }
+
+    /**
+     * Accepts a pending connection.
+     * 
+     * @throws IOException if the connection cannot be set up
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            connections.add(new Connection(channel.register(selector, SelectionKey.OP_READ)));
+        }
+    }
+
+    /**
+     * Runs one request that is not an ADD.
+     * 
+     * @param command the command word
+     * @param argument the rest of the line, "" if there is none
+     * @return the reply line
+     */
+    private String query(String command, String argument) {
+        switch (command) {
+            case "FREQ":
+                return Long.toString(table.longFrequency(argument));
+            case "TF":
+                return Double.toString(table.termFrequency(argument));
+            case "CONTAINS":
+                return Boolean.toString(table.contains(argument));
+            case "MOST":
+                String most = table.mostCommonWord();
+                return most != null ? most : "";
+            default:
+                return "ERR unknown command: " + command;
+        }
+    }
+
+    /**
+     * State of one client: the bytes read but not yet split into lines, the
+     * complete lines waiting to run, the ADD being counted and the replies
+     * not yet written.
+     */
+    private final class Connection {
+        final SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(4096);
+        private ByteBuffer out = ByteBuffer.allocate(4096);
+        private final ArrayDeque<byte[]> lines = new ArrayDeque<>();
+        private int queuedBytes;
+        private byte[] adding;      // The ADD line being counted, null if none
+        private int addPosition;    // Next byte of it to scan
+        private long added;         // Words of it counted so far
+        private boolean quitting;   // Close once the replies are written
+        private boolean ended;      // The client sent everything it will send
+
+        Connection(SelectionKey key) {
+            this.key = key;
+            key.attach(this);
+        }
+
+        /**
+         * Reads what the client sent and queues every complete line.
+         */
+        void read() {
+            try {
+                if (((SocketChannel) key.channel()).read(in) < 0) {
+                    ended = true;   // Answer what was sent, then close
+                    updateInterest();
+                    return;
+                }
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            in.flip();
+            int start = 0;
+            for (int i = 0; i < in.limit(); i++) {
+                if (in.get(i) == '\n') {
+                    int end = i > start && in.get(i - 1) == '\r' ? i - 1 : i;
+                    byte[] line = new byte[end - start];
+                    in.get(start, line);
+                    lines.add(line);
+                    queuedBytes += line.length;
+                    start = i + 1;
+                }
+            }
+            in.position(start);
+            in.compact();
+            if (!in.hasRemaining()) {
+                if (in.capacity() >= MAX_LINE) {
+                    reply("ERR line longer than " + MAX_LINE + " bytes");
+                    quitting = true;
+                    lines.clear();
+                } else {
+                    in.flip();
+                    in = ByteBuffer.allocate(Math.min(MAX_LINE, in.capacity() * 2)).put(in);
+                }
+            }
+            updateInterest();
+        }
+
+        /**
+         * Runs the queued requests of this connection, counting at most one
+         * slice of an ADD.
+         * 
+         * @return true if requests are left for the next turn
+         */
+        boolean serve() {
+            if (!key.isValid()) {
+                return false;
+            }
+            int budget = ingestSlice;
+            while (out.position() < MAX_BUFFERED && !quitting) {
+                if (adding != null) {
+                    budget = ingest(budget);
+                    if (adding != null) {
+                        break;  // Slice used up, let the other connections run
+                    }
+                    reply("OK " + added);
+                    continue;
+                }
+                byte[] line = lines.poll();
+                if (line == null) {
+                    break;
+                }
+                queuedBytes -= line.length;
+                run(line);
+            }
+            if (ended && adding == null && lines.isEmpty()) {
+                quitting = true;
+            }
+            flush();
+            return key.isValid() && out.position() < MAX_BUFFERED
+                    && (adding != null || !lines.isEmpty());
+        }
+
+        /**
+         * Starts an ADD or answers a query.
+         * 
+         * @param line the request, without its line end
+         */
+        private void run(byte[] line) {
+            int space = 0;
+            while (space < line.length && line[space] != ' ') {
+                space++;
+            }
+            String command = new String(line, 0, space, StandardCharsets.US_ASCII);
+            if (command.equals("ADD")) {
+                adding = line;
+                addPosition = space;
+                added = 0;
+            } else if (command.equals("QUIT")) {
+                quitting = true;
+            } else {
+                int from = Math.min(space + 1, line.length);
+                reply(query(command,
+                        new String(line, from, line.length - from, StandardCharsets.UTF_8)));
+            }
+        }
+
+        /**
+         * Counts words of the current ADD.
+         * 
+         * @param budget the most words to count
+         * @return the budget left
+         */
+        private int ingest(int budget) {
+            byte[] line = adding;
+            ByteBuffer bytes = ByteBuffer.wrap(line);
+            int i = addPosition;
+            while (budget > 0) {
+                while (i < line.length && MappedTokenizer.isDelimiter(line[i])) {
+                    i++;
+                }
+                if (i == line.length) {
+                    adding = null;
+                    break;
+                }
+                int wordStart = i;
+                boolean ascii = true;
+                while (i < line.length && !MappedTokenizer.isDelimiter(line[i])) {
+                    ascii &= line[i] >= 0;
+                    i++;
+                }
+                if (ascii) {
+                    slice.set(bytes, wordStart, i - wordStart);
+                    table.addWord(slice);
+                } else {
+                    table.addWord(new String(line, wordStart, i - wordStart,
+                            StandardCharsets.UTF_8));
+                }
+                added++;
+                budget--;
+            }
+            addPosition = i;
+            return budget;
+        }
+
+        /**
+         * Queues a reply line.
+         * 
+         * @param reply the reply, without its line end
+         */
+        private void reply(String reply) {
+            byte[] bytes = (reply + "\n").getBytes(StandardCharsets.UTF_8);
+            if (out.remaining() < bytes.length) {
+                ByteBuffer grown = ByteBuffer.allocate(
+                        Math.max(out.capacity() * 2, out.position() + bytes.length));
+                out.flip();
+                out = grown.put(out);
+            }
+            out.put(bytes);
+        }
+
+        /**
+         * Writes as many queued replies as the socket takes.
+         */
+        void flush() {
+            if (!key.isValid()) {
+                return;
+            }
+            try {
+                out.flip();
+                ((SocketChannel) key.channel()).write(out);
+                out.compact();
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            if (quitting && out.position() == 0) {
+                close();
+                return;
+            }
+            updateInterest();
+        }
+
+        /**
+         * Waits for writes while replies are queued, and stops reading while
+         * too much is buffered.
+         */
+        private void updateInterest() {
+            if (!key.isValid()) {
+                return;
+            }
+            int ops = 0;
+            if (out.position() > 0) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            if (!quitting && !ended && out.position() < MAX_BUFFERED
+                    && queuedBytes < MAX_BUFFERED) {
+                ops |= SelectionKey.OP_READ;
+            }
+            key.interestOps(ops);
+        }
+
+        /**
+         * Closes the connection, dropping anything queued.
+         */
+        void close() {
+            key.cancel();
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                // Nothing left to do with a connection that failed to close
+            }
+        }
+    }
+}
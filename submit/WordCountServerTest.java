@@ -0,0 +1,167 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the WordCountServer class, over real localhost sockets.
+ */
+public class WordCountServerTest {
+    private HashWords table;
+    private WordCountServer server;
+    private Thread serverThread;
+
+    /**
+     * Starts a server on a free port, counting one word per turn so that
+     * ingest is cut into many slices.
+     * 
+     * @throws IOException if the server cannot be opened
+     */
+    @Before
+    public void setup() throws IOException {
+        table = new HashWords(16);
+        table.addWord("the");
+        server = new WordCountServer(table, 0, 1);
+        serverThread = new Thread(() -> {
+            try {
+                server.run();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        serverThread.start();
+    }
+
+    /**
+     * Stops the server.
+     * 
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @After
+    public void tearDown() throws InterruptedException {
+        server.close();
+        serverThread.join(10_000);
+        assertFalse("Server stopped", serverThread.isAlive());
+    }
+
+    /**
+     * A client connection with line-based send and receive.
+     */
+    private final class Client implements AutoCloseable {
+        final Socket socket;
+        final OutputStream out;
+        final BufferedReader in;
+
+        Client() throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), server.port());
+            socket.setSoTimeout(20_000);
+            out = socket.getOutputStream();
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8));
+        }
+
+        void send(String line) throws IOException {
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        String ask(String line) throws IOException {
+            send(line);
+            return in.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /**
+     * Test every command.
+     * 
+     * @throws IOException if the connection fails
+     */
+    @Test
+    public void testCommands() throws IOException {
+        try (Client client = new Client()) {
+            assertEquals("ADD", "OK 6", client.ask("ADD The cat, the hat; caf\u00e9 THE"));
+            assertEquals("FREQ", "4", client.ask("FREQ the"));
+            assertEquals("FREQ ignores case", "4", client.ask("FREQ THE"));
+            assertEquals("FREQ of UTF-8", "1", client.ask("FREQ CAF\u00c9"));
+            assertEquals("FREQ of a missing word", "0", client.ask("FREQ dog"));
+            assertEquals("TF", Double.toString(4 / 7.0), client.ask("TF the"));
+            assertEquals("CONTAINS", "true", client.ask("CONTAINS hat"));
+            assertEquals("CONTAINS a missing word", "false", client.ask("CONTAINS dog"));
+            assertEquals("MOST", "the", client.ask("MOST"));
+            assertEquals("Empty ADD", "OK 0", client.ask("ADD"));
+            assertTrue("Unknown command", client.ask("COUNT the").startsWith("ERR"));
+            client.send("QUIT");
+            assertNull("Closed after QUIT", client.in.readLine());
+        }
+    }
+
+    /**
+     * Test that requests sent together are answered in order, and that
+     * queries see the words sent before them on the same connection.
+     * 
+     * @throws IOException if the connection fails
+     */
+    @Test
+    public void testPipelinedInOrder() throws IOException {
+        try (Client client = new Client()) {
+            StringBuilder batch = new StringBuilder();
+            for (int i = 0; i < 200; i++) {
+                batch.append("ADD word word\nFREQ word\n");
+            }
+            client.out.write(batch.toString().getBytes(StandardCharsets.UTF_8));
+            client.out.flush();
+            for (int i = 1; i <= 200; i++) {
+                assertEquals("ADD " + i, "OK 2", client.in.readLine());
+                assertEquals("FREQ " + i, Integer.toString(2 * i), client.in.readLine());
+            }
+        }
+    }
+
+    /**
+     * Test that a query on one connection is answered while a long ADD on
+     * another is still being counted.
+     * 
+     * @throws IOException if the connection fails
+     */
+    @Test
+    public void testQueryNotBlockedByIngest() throws IOException {
+        try (Client writer = new Client(); Client reader = new Client()) {
+            StringBuilder text = new StringBuilder("ADD");
+            for (int i = 0; i < 300_000; i++) {
+                text.append(" w").append(i % 1000);
+            }
+            writer.send(text.toString());
+            assertEquals("Query answered", "1", reader.ask("FREQ the"));
+            assertFalse("Ingest still running", writer.in.ready());
+            assertEquals("Ingest finished", "OK 300000", writer.in.readLine());
+            assertEquals("All counted", "300", reader.ask("FREQ w7"));
+        }
+    }
+
+    /**
+     * Test that a client that stops sending still gets its replies.
+     * 
+     * @throws IOException if the connection fails
+     */
+    @Test
+    public void testHalfClose() throws IOException {
+        try (Client client = new Client()) {
+            client.send("ADD one two");
+            client.send("FREQ two");
+            client.socket.shutdownOutput();
+            assertEquals("ADD", "OK 2", client.in.readLine());
+            assertEquals("FREQ", "1", client.in.readLine());
+            assertNull("Closed", client.in.readLine());
+        }
+    }
+}
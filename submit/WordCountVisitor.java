@@ -0,0 +1,18 @@
+/**
+ * Receives the words of a {@link HashWords} table with their counts, one
+ * call per word, from {@link HashWords#forEach(WordCountVisitor)}. The count
+ * is passed as a primitive, so visiting a table allocates nothing.
+ * 
+ * @author Zander Polk
+ */
+@FunctionalInterface
+public interface WordCountVisitor {
+
+    /**
+     * Visits one word of the table.
+     * 
+     * @param word the lower-cased word
+     * @param count its count, at least 1
+     */
+    void visit(String word, long count);
+}
@@ -0,0 +1,15 @@
+/**
+ * A table of word counts that words can be added to, the common type of the
+ * counting tables. Read-only tables implement only {@link WordCounts}.
+ * 
+ * @author Zander Polk
+ */
+public interface WordCounter extends WordCounts {
+
+    /**
+     * Counts one occurrence of a word.
+     * 
+     * @param w the word
+     */
+    void addWord(String w);
+}
@@ -0,0 +1,79 @@
+/**
+ * The queries shared by every table of word counts, whether it is still
+ * counting ({@link WordCounter}) or read-only, like a mapped snapshot or a
+ * frozen table, so drivers and benchmarks can swap one for another.
+ * All words are case-insensitive.
+ * 
+ * <p>Tables that count past {@code Integer.MAX_VALUE} return that value from
+ * the int methods and the full count from the long ones.
+ * 
+ * @author Zander Polk
+ */
+public interface WordCounts {
+
+    /**
+     * Returns how many times a word has been added.
+     * 
+     * @param w the word
+     * @return the count of w, or 0 if it was never added
+     */
+    int frequency(String w);
+
+    /**
+     * Returns how many times a word has been added, without a limit of
+     * {@code Integer.MAX_VALUE}.
+     * 
+     * @param w the word
+     * @return the count of w, or 0 if it was never added
+     */
+    default long longFrequency(String w) {
+        return frequency(w);
+    }
+
+    /**
+     * Does this table contain this word (w)?
+     * 
+     * @param w the word
+     * @return true if word is in table; otherwise, false
+     */
+    boolean contains(String w);
+
+    /**
+     * Returns the number of distinct words added so far.
+     * 
+     * @return the number of UNIQUE words
+     */
+    int numUniqueWordsInTable();
+
+    /**
+     * Returns the number of words added so far, duplicates included.
+     * 
+     * @return the sum of all of the word counts
+     */
+    int totalNumOfWords();
+
+    /**
+     * Returns the number of words added so far, without a limit of
+     * {@code Integer.MAX_VALUE}.
+     * 
+     * @return the sum of all of the word counts
+     */
+    default long longTotalNumOfWords() {
+        return totalNumOfWords();
+    }
+
+    /**
+     * Finds the most common word.
+     * 
+     * @return the word with the highest count, or null if nothing was added
+     */
+    String mostCommonWord();
+
+    /**
+     * Ratio of the number of times a word appears to the total number of words.
+     * 
+     * @param w the word
+     * @return frequency(w) / totalNumOfWords(), or 0 if nothing was added
+     */
+    double termFrequency(String w);
+}
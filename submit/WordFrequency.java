@@ -5,7 +5,7 @@
  */
 public class WordFrequency {
     private String word;
-    private int count;
+    private long count;
 
     /**
      * Constructor to create a new WordFrequency instance.
@@ -17,6 +17,18 @@ public class WordFrequency {
         this.count = 1;
     }
 
+    /**
+     * Constructor to create a WordFrequency instance with a known count,
+     * e.g. to report an entry of a table.
+     * 
+     * @param w The word to be assigned to this instance
+     * @param count The number of times the word was seen
+     */
+    public WordFrequency(String w, long count) {
+        this.word = w.toLowerCase();
+        this.count = count;
+    }
+
     /**
      * Gets the word assigned to this instance.
      * 
@@ -29,9 +41,18 @@ public class WordFrequency {
     /**
      * Gets the count associated with this instance.
      * 
-     * @return the count
+     * @return the count, or Integer.MAX_VALUE if it does not fit in an int
      */
     public int getCount() {
+        return (int) Math.min(Integer.MAX_VALUE, count);
+    }
+
+    /**
+     * Gets the full count associated with this instance.
+     * 
+     * @return the count
+     */
+    public long getLongCount() {
         return count;
     }
 
@@ -218,4 +218,27 @@ public class WordFrequencyTest {
         assertFalse("Different words will not be equal", wf1.equals(wf2));
     }
 
+    /**
+     * Test the constructor that takes a count.
+     */
+    @Test
+    public void testConstructorWithCount() {
+        WordFrequency wf = new WordFrequency("Counted", 42);
+        assertEquals("Word should be 'counted'", "counted", wf.getWord());
+        assertEquals("Count should be 42", 42, wf.getCount());
+    }
+
+    /**
+     * Test a count past Integer.MAX_VALUE.
+     */
+    @Test
+    public void testLongCount() {
+        WordFrequency wf = new WordFrequency("hot", 5_000_000_000L);
+        assertEquals("Full count", 5_000_000_000L, wf.getLongCount());
+        assertEquals("Int count stops at the limit", Integer.MAX_VALUE, wf.getCount());
+        WordFrequency max = new WordFrequency("edge", Integer.MAX_VALUE);
+        max.increment();
+        assertEquals("Increment does not wrap", Integer.MAX_VALUE + 1L, max.getLongCount());
+    }
+
 }
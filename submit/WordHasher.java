@@ -0,0 +1,22 @@
+/**
+ * Strategy used by {@link HashWords} to turn a word into a hash code.
+ * Implementations must fold case themselves, so that words which only
+ * differ in case ("The", "the") always hash to the same value. Fold each
+ * char with {@link Character#toLowerCase(char)}, which is how
+ * {@link HashWords} compares words, rather than the locale-dependent
+ * {@link String#toLowerCase()}.
+ * 
+ * @author Zander Polk
+ */
+public interface WordHasher {
+
+    /**
+     * Computes the case-folded hash code of a word.
+     * The value may be any int, including negative ones; {@link HashWords}
+     * maps it onto a slot of the table.
+     * 
+     * @param word the word
+     * @return the hash code of the lower-cased word
+     */
+    int hash(CharSequence word);
+}